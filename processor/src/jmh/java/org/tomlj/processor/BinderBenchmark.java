@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj.processor;
+
+import org.tomlj.Toml;
+import org.tomlj.TomlBinder;
+import org.tomlj.TomlBinders;
+import org.tomlj.TomlConfig;
+import org.tomlj.TomlKey;
+import org.tomlj.TomlParseResult;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares binding a parsed document with a generated binder, the reflective binder and hand-written lookups.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinderBenchmark {
+
+  @TomlConfig
+  public static class Settings {
+    @TomlKey("server.host")
+    String host;
+    @TomlKey("server.port")
+    int port;
+    @TomlKey("server.timeout")
+    long timeout;
+    @TomlKey("cache.enabled")
+    boolean cacheEnabled;
+    @TomlKey("cache.ratio")
+    double cacheRatio;
+  }
+
+  /** The same shape as {@link Settings}, but without a generated binder. */
+  public static class PlainSettings {
+    Server server;
+    Cache cache;
+  }
+
+  public static class Server {
+    String host;
+    int port;
+    long timeout;
+  }
+
+  public static class Cache {
+    boolean enabled;
+    double ratio;
+  }
+
+  private TomlParseResult table;
+  private TomlBinder<PlainSettings> reflective;
+
+  @Setup
+  public void setup() {
+    table = Toml
+        .parse(
+            "[server]\nhost = 'localhost'\nport = 8080\ntimeout = 30\n"
+                + "[cache]\nenabled = true\nratio = 0.75\n");
+    reflective = TomlBinders.binderFor(PlainSettings.class);
+  }
+
+  @Benchmark
+  public Settings manual() {
+    Settings settings = new Settings();
+    settings.host = table.getString("server.host");
+    settings.port = (int) table.getLong("server.port").longValue();
+    settings.timeout = table.getLong("server.timeout");
+    settings.cacheEnabled = table.getBoolean("cache.enabled");
+    settings.cacheRatio = table.getDouble("cache.ratio");
+    return settings;
+  }
+
+  @Benchmark
+  public Settings generated() {
+    return BinderBenchmark_Settings_TomlBinder.INSTANCE.bind(table);
+  }
+
+  @Benchmark
+  public PlainSettings reflective() {
+    return reflective.bind(table);
+  }
+}
@@ -0,0 +1,531 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj.processor;
+
+import org.tomlj.Toml;
+import org.tomlj.TomlConfig;
+import org.tomlj.TomlKey;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a {@code TomlBinder} for each class annotated with {@link TomlConfig}.
+ *
+ * <p>
+ * Generated binders read each field, including inherited fields, through the typed getters of {@code TomlTable}
+ * (the primitive getters for primitive and boxed numbers), using key paths that are parsed at compile time and held in
+ * constants. They are listed in {@code META-INF/services/org.tomlj.TomlBinder}, from
+ * where {@code TomlBinders} loads them into its registry.
+ */
+public final class TomlConfigProcessor extends AbstractProcessor {
+
+  private static final String BINDER_SUFFIX = "_TomlBinder";
+  private static final String SERVICE_FILE = "META-INF/services/org.tomlj.TomlBinder";
+
+  private final Set<String> binders = new TreeSet<>();
+  private final List<Element> originatingElements = new ArrayList<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(TomlConfig.class.getCanonicalName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(TomlConfig.class)) {
+      if (element.getKind() != ElementKind.CLASS) {
+        error(element, "@TomlConfig can only be applied to classes");
+        continue;
+      }
+      TypeElement type = (TypeElement) element;
+      String binderName = generate(type);
+      if (binderName != null) {
+        binders.add(binderName);
+        originatingElements.add(type);
+      }
+    }
+    if (roundEnv.processingOver() && !binders.isEmpty()) {
+      writeServiceFile();
+    }
+    return true;
+  }
+
+  private String generate(TypeElement type) {
+    if (!isBindableClass(type)) {
+      return null;
+    }
+
+    PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+    List<FieldBinding> fields = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    boolean valid = true;
+    // inherited fields are bound too, as they are by reflective binding
+    for (TypeElement declaring = type; declaring != null; declaring = superclassOf(declaring)) {
+      boolean inherited = declaring != type;
+      for (VariableElement field : ElementFilter.fieldsIn(declaring.getEnclosedElements())) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+          continue;
+        }
+        String name = field.getSimpleName().toString();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)) {
+          errorOnField(type, field, "Fields bound by a generated TOML binder must not be private or final");
+          valid = false;
+          continue;
+        }
+        if (inherited
+            && !modifiers.contains(Modifier.PUBLIC)
+            && !pkg.equals(processingEnv.getElementUtils().getPackageOf(declaring))) {
+          errorOnField(
+              type,
+              field,
+              "Inherited fields from other packages bound by a generated TOML binder must be public");
+          valid = false;
+          continue;
+        }
+        List<String> path;
+        TomlKey key = field.getAnnotation(TomlKey.class);
+        if (key != null) {
+          try {
+            path = Toml.parseDottedKey(key.value());
+          } catch (IllegalArgumentException e) {
+            errorOnField(type, field, e.getMessage());
+            valid = false;
+            continue;
+          }
+        } else {
+          path = Collections.singletonList(name);
+        }
+        // a field hidden by a field of a subclass is assigned through a cast to its declaring class
+        String target = names.add(name) ? "result." + name : "((" + declaring.getQualifiedName() + ") result)." + name;
+        FieldBinding binding = new FieldBinding(field, path, "PATH_" + fields.size(), target);
+        if (binding.reader == null) {
+          errorOnField(type, field, "Unsupported type for a generated TOML binder: " + field.asType());
+          valid = false;
+          continue;
+        }
+        fields.add(binding);
+      }
+    }
+    if (!valid) {
+      return null;
+    }
+
+    String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    String simpleName = binderSimpleName(type);
+    String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    String typeName = type.getQualifiedName().toString();
+
+    StringBuilder out = new StringBuilder();
+    out.append("// Generated by ").append(TomlConfigProcessor.class.getName()).append(". Do not edit.\n");
+    if (!packageName.isEmpty()) {
+      out.append("package ").append(packageName).append(";\n\n");
+    }
+    out.append("public final class ").append(simpleName);
+    out.append(" implements org.tomlj.TomlBinder<").append(typeName).append("> {\n\n");
+    out.append("  public static final ").append(simpleName).append(" INSTANCE = new ");
+    out.append(simpleName).append("();\n\n");
+    for (FieldBinding field : fields) {
+      out.append("  private static final java.util.List<java.lang.String> ").append(field.constant);
+      out.append(" =\n      java.util.Collections.unmodifiableList(java.util.Arrays.asList(");
+      for (int i = 0; i < field.path.size(); ++i) {
+        if (i > 0) {
+          out.append(", ");
+        }
+        out.append(stringLiteral(field.path.get(i)));
+      }
+      out.append("));\n");
+    }
+    out.append("  private static final java.util.Set<java.util.List<java.lang.String>> KEY_PATHS =\n");
+    out.append("      java.util.Collections.unmodifiableSet(new java.util.HashSet<>(java.util.Arrays.asList(");
+    for (int i = 0; i < fields.size(); ++i) {
+      if (i > 0) {
+        out.append(", ");
+      }
+      out.append(fields.get(i).constant);
+    }
+    out.append(")));\n\n");
+
+    out.append("  @Override\n");
+    out.append("  public java.lang.Class<").append(typeName).append("> type() {\n");
+    out.append("    return ").append(typeName).append(".class;\n");
+    out.append("  }\n\n");
+
+    out.append("  @Override\n");
+    out.append("  public java.util.Set<java.util.List<java.lang.String>> keyPaths() {\n");
+    out.append("    return KEY_PATHS;\n");
+    out.append("  }\n\n");
+
+    out.append("  @Override\n");
+    out.append("  public ").append(typeName).append(" bind(org.tomlj.TomlTable table) {\n");
+    out.append("    ").append(typeName).append(" result = new ").append(typeName).append("();\n");
+    for (FieldBinding field : fields) {
+      field.appendRead(out);
+    }
+    out.append("    return result;\n");
+    out.append("  }\n");
+    out.append("}\n");
+
+    try {
+      JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+      try (Writer writer = file.openWriter()) {
+        writer.write(out.toString());
+      }
+    } catch (IOException e) {
+      error(type, "Failed to write " + qualifiedName + ": " + e.getMessage());
+      return null;
+    }
+    return qualifiedName;
+  }
+
+  private boolean isBindableClass(TypeElement type) {
+    boolean valid = true;
+    if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+      error(type, "@TomlConfig classes must not be abstract");
+      valid = false;
+    }
+    if (!type.getTypeParameters().isEmpty()) {
+      error(type, "@TomlConfig classes must not be generic");
+      valid = false;
+    }
+    for (Element enclosing = type; enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement()) {
+      if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+        error(type, "@TomlConfig classes must not be private");
+        valid = false;
+        break;
+      }
+      if (((TypeElement) enclosing).getNestingKind() == NestingKind.MEMBER
+          && !enclosing.getModifiers().contains(Modifier.STATIC)) {
+        error(type, "@TomlConfig classes must be static if nested");
+        valid = false;
+        break;
+      }
+    }
+    List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+    boolean hasConstructor = constructors.isEmpty();
+    for (ExecutableElement constructor : constructors) {
+      if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+        hasConstructor = true;
+      }
+    }
+    if (!hasConstructor) {
+      error(type, "@TomlConfig classes must have a non-private no-argument constructor");
+      valid = false;
+    }
+    return valid;
+  }
+
+  private void writeServiceFile() {
+    try {
+      FileObject file = processingEnv
+          .getFiler()
+          .createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE, originatingElements.toArray(new Element[0]));
+      try (Writer writer = file.openWriter()) {
+        for (String binder : binders) {
+          writer.write(binder);
+          writer.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + SERVICE_FILE + ": " + e);
+    }
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private void errorOnField(TypeElement type, VariableElement field, String message) {
+    if (field.getEnclosingElement().equals(type)) {
+      error(field, message);
+    } else {
+      // the superclass may not be part of this compilation, so report the error on the bound class
+      error(type, message + " (" + field.getEnclosingElement() + "." + field.getSimpleName() + ")");
+    }
+  }
+
+  private static TypeElement superclassOf(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    if (superclass.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+    return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+  }
+
+  private static String binderSimpleName(TypeElement type) {
+    StringBuilder name = new StringBuilder(type.getSimpleName());
+    for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement; enclosing =
+        enclosing.getEnclosingElement()) {
+      name.insert(0, '_').insert(0, enclosing.getSimpleName());
+    }
+    return name.append(BINDER_SUFFIX).toString();
+  }
+
+  private static String stringLiteral(String value) {
+    StringBuilder out = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); ++i) {
+      char ch = value.charAt(i);
+      if (ch == '"' || ch == '\\') {
+        out.append('\\').append(ch);
+      } else if (ch < 0x20 || ch > 0x7E) {
+        out.append(String.format("\\u%04x", (int) ch));
+      } else {
+        out.append(ch);
+      }
+    }
+    return out.append('"').toString();
+  }
+
+  /**
+   * How a single value is read from a table (or array) and converted to the field type.
+   */
+  private static final class ValueReader {
+    /**
+     * Statements assigning the value at {@code %p} in {@code table} to {@code %f}, if there is a value, with
+     * {@code %p} standing for the path constant and {@code %f} for the field.
+     */
+    final String tableRead;
+    /** An expression reading the element {@code i} of the array {@code value}, with {@code %p} for its path. */
+    final String elementRead;
+
+    ValueReader(String tableRead, String elementRead) {
+      this.tableRead = tableRead;
+      this.elementRead = elementRead;
+    }
+
+    /**
+     * A reader using a getter that returns {@code null} for missing values, with {@code %s} standing for the value in
+     * the conversion.
+     */
+    static ValueReader nullable(String valueType, String getter, String conversion) {
+      String tableRead = valueType
+          + " value = table."
+          + getter
+          + "(%p);\nif (value != null) {\n  %f = "
+          + conversion.replace("%s", "value")
+          + ";\n}";
+      return new ValueReader(tableRead, conversion.replace("%s", "value." + getter + "(i)"));
+    }
+
+    /**
+     * A reader of a primitive field, which keeps the value the field was initialized with when the value is missing.
+     */
+    static ValueReader primitive(String read, String elementRead) {
+      return new ValueReader("%f = " + read + ";", elementRead);
+    }
+
+    /**
+     * A reader of a boxed number, using a getter returning an {@code OptionalLong} or {@code OptionalDouble}, with
+     * {@code %s} standing for the unboxed value in the conversion.
+     */
+    static ValueReader optional(
+        String optionalType,
+        String find,
+        String getter,
+        String conversion,
+        String elementRead) {
+      String tableRead = "java.util."
+          + optionalType
+          + " value = "
+          + find
+          + ";\nif (value.isPresent()) {\n  %f = "
+          + conversion.replace("%s", "value." + getter + "()")
+          + ";\n}";
+      return new ValueReader(tableRead, elementRead);
+    }
+  }
+
+  private final class FieldBinding {
+    final String target;
+    final List<String> path;
+    final String constant;
+    final TypeMirror type;
+    final ValueReader reader;
+
+    FieldBinding(VariableElement field, List<String> path, String constant, String target) {
+      this.target = target;
+      this.path = path;
+      this.constant = constant;
+      this.type = field.asType();
+      if (isList(type)) {
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        ValueReader elementReader = arguments.size() == 1 ? readerFor(arguments.get(0)) : null;
+        this.reader = (elementReader == null) ? null : listReader(arguments.get(0), elementReader);
+      } else {
+        this.reader = readerFor(type);
+      }
+    }
+
+    void appendRead(StringBuilder out) {
+      out.append("    {\n");
+      String read = reader.tableRead.replace("%p", constant).replace("%f", target);
+      for (String line : read.split("\n")) {
+        out.append("      ").append(line).append('\n');
+      }
+      out.append("    }\n");
+    }
+  }
+
+  private ValueReader listReader(TypeMirror elementType, ValueReader elementReader) {
+    String tableRead = "org.tomlj.TomlArray value = table.getArray(%p);\n"
+        + "if (value != null) {\n"
+        + "  java.util.List<"
+        + boxedName(elementType)
+        + "> list = new java.util.ArrayList<>(value.size());\n"
+        + "  for (int i = 0; i < value.size(); ++i) {\n"
+        + "    list.add("
+        + elementReader.elementRead
+        + ");\n"
+        + "  }\n"
+        + "  %f = list;\n"
+        + "}";
+    return new ValueReader(tableRead, null);
+  }
+
+  private boolean isList(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    String name = element.getQualifiedName().toString();
+    return name.equals("java.util.List") || name.equals("java.util.Collection") || name.equals("java.lang.Iterable");
+  }
+
+  private String boxedName(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).toString();
+    }
+    return processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  private ValueReader readerFor(TypeMirror type) {
+    switch (type.getKind()) {
+      case LONG:
+        return ValueReader.primitive("table.getLongOrDefault(%p, %f)", "value.getLong(i)");
+      case INT:
+        return ValueReader
+            .primitive(
+                "org.tomlj.TomlBinders.intValue(table.getLongOrDefault(%p, %f), %p)",
+                "org.tomlj.TomlBinders.intValue(value.getLong(i), %p)");
+      case DOUBLE:
+        return ValueReader
+            .primitive(
+                "org.tomlj.TomlBinders.doubleValue(table, %p, %f)",
+                "org.tomlj.TomlBinders.doubleValue(value, i)");
+      case FLOAT:
+        return ValueReader
+            .primitive(
+                "(float) org.tomlj.TomlBinders.doubleValue(table, %p, %f)",
+                "(float) org.tomlj.TomlBinders.doubleValue(value, i)");
+      case BOOLEAN:
+        return ValueReader.primitive("table.getBooleanOrDefault(%p, %f)", "value.getBoolean(i)");
+      case DECLARED:
+        break;
+      default:
+        return null;
+    }
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    String name = element.getQualifiedName().toString();
+    switch (name) {
+      case "java.lang.String":
+        return ValueReader.nullable(name, "getString", "%s");
+      case "java.lang.Long":
+        return ValueReader.optional("OptionalLong", "table.findLong(%p)", "getAsLong", "%s", "value.getLong(i)");
+      case "java.lang.Integer":
+        return ValueReader
+            .optional(
+                "OptionalLong",
+                "table.findLong(%p)",
+                "getAsLong",
+                "org.tomlj.TomlBinders.intValue(%s, %p)",
+                "org.tomlj.TomlBinders.intValue(value.getLong(i), %p)");
+      case "java.lang.Double":
+        return ValueReader
+            .optional(
+                "OptionalDouble",
+                "org.tomlj.TomlBinders.findDouble(table, %p)",
+                "getAsDouble",
+                "%s",
+                "org.tomlj.TomlBinders.doubleValue(value, i)");
+      case "java.lang.Float":
+        return ValueReader
+            .optional(
+                "OptionalDouble",
+                "org.tomlj.TomlBinders.findDouble(table, %p)",
+                "getAsDouble",
+                "(float) %s",
+                "(float) org.tomlj.TomlBinders.doubleValue(value, i)");
+      case "java.lang.Boolean":
+        return ValueReader.nullable(name, "getBoolean", "%s");
+      case "java.time.OffsetDateTime":
+        return ValueReader.nullable(name, "getOffsetDateTime", "%s");
+      case "java.time.Instant":
+        return ValueReader.nullable("java.time.OffsetDateTime", "getOffsetDateTime", "%s.toInstant()");
+      case "java.time.LocalDateTime":
+        return ValueReader.nullable(name, "getLocalDateTime", "%s");
+      case "java.time.LocalDate":
+        return ValueReader.nullable(name, "getLocalDate", "%s");
+      case "java.time.LocalTime":
+        return ValueReader.nullable(name, "getLocalTime", "%s");
+      case "org.tomlj.TomlTable":
+        return ValueReader.nullable(name, "getTable", "%s");
+      case "org.tomlj.TomlArray":
+        return ValueReader.nullable(name, "getArray", "%s");
+      default:
+        break;
+    }
+    if (element.getKind() == ElementKind.ENUM) {
+      String conversion = "org.tomlj.TomlBinders.enumValue(" + name + ".class, %s, %p)";
+      return ValueReader.nullable("java.lang.String", "getString", conversion);
+    }
+    if (element.getAnnotation(TomlConfig.class) != null && element.getTypeParameters().isEmpty()) {
+      PackageElement pkg = processingEnv.getElementUtils().getPackageOf(element);
+      String binder = (pkg.isUnnamed() ? "" : pkg.getQualifiedName() + ".") + binderSimpleName(element);
+      return ValueReader.nullable("org.tomlj.TomlTable", "getTable", binder + ".INSTANCE.bind(%s)");
+    }
+    return null;
+  }
+}
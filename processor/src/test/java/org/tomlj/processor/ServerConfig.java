@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj.processor;
+
+import org.tomlj.TomlConfig;
+import org.tomlj.TomlKey;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@TomlConfig
+class ServerConfig extends BaseConfig {
+
+  enum Mode {
+    ACTIVE, PASSIVE
+  }
+
+  @TomlConfig
+  static class Endpoint {
+    String host;
+    int port;
+  }
+
+  String name;
+  @TomlKey("server.port")
+  int port;
+  @TomlKey("server.\"time.out\"")
+  long timeout = 30;
+  boolean enabled;
+  float ratio;
+  Double weight;
+  List<Double> factors;
+  Mode mode;
+  LocalDate since;
+  List<String> tags;
+  List<Endpoint> endpoints;
+  Endpoint primary;
+  transient String ignored;
+}
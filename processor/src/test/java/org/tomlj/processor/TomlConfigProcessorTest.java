@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.tomlj.Toml;
+import org.tomlj.TomlBinder;
+import org.tomlj.TomlBinders;
+import org.tomlj.TomlInvalidTypeException;
+import org.tomlj.TomlParseResult;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+class TomlConfigProcessorTest {
+
+  @Test
+  void shouldRegisterGeneratedBinders() {
+    TomlBinder<ServerConfig> binder = TomlBinders.find(ServerConfig.class);
+    assertNotNull(binder);
+    assertSame(ServerConfig_TomlBinder.INSTANCE.getClass(), binder.getClass());
+    TomlBinder<ServerConfig.Endpoint> endpointBinder = TomlBinders.find(ServerConfig.Endpoint.class);
+    assertNotNull(endpointBinder);
+    assertSame(ServerConfig_Endpoint_TomlBinder.class, endpointBinder.getClass());
+  }
+
+  @Test
+  void shouldPrecomputeKeyPaths() {
+    assertEquals(
+        new HashSet<>(
+            Arrays.asList(
+                Arrays.asList("name"),
+                Arrays.asList("server", "port"),
+                Arrays.asList("server", "time.out"),
+                Arrays.asList("enabled"),
+                Arrays.asList("ratio"),
+                Arrays.asList("weight"),
+                Arrays.asList("factors"),
+                Arrays.asList("mode"),
+                Arrays.asList("since"),
+                Arrays.asList("tags"),
+                Arrays.asList("endpoints"),
+                Arrays.asList("primary"),
+                Arrays.asList("meta", "region"),
+                Arrays.asList("revision"))),
+        ServerConfig_TomlBinder.INSTANCE.keyPaths());
+  }
+
+  @Test
+  void shouldBindWithGeneratedBinder() {
+    TomlParseResult result = Toml
+        .parse(
+            "name = 'alpha'\n"
+                + "enabled = true\n"
+                + "ratio = 0.5\n"
+                + "weight = 2\n"
+                + "factors = [1, 2.5]\n"
+                + "meta = { region = 'eu' }\n"
+                + "mode = 'PASSIVE'\n"
+                + "since = 2020-01-02\n"
+                + "tags = ['a', 'b']\n"
+                + "server = { port = 8080 }\n"
+                + "primary = { host = 'localhost', port = 80 }\n"
+                + "[[endpoints]]\n"
+                + "host = 'example.com'\n");
+    assertFalse(result.hasErrors(), () -> result.errors().toString());
+
+    ServerConfig config = ServerConfig_TomlBinder.INSTANCE.bind(result);
+    assertEquals("alpha", config.name);
+    assertEquals(8080, config.port);
+    assertEquals(30, config.timeout);
+    assertTrue(config.enabled);
+    assertEquals(0.5f, config.ratio);
+    assertEquals(Double.valueOf(2), config.weight);
+    assertEquals(Arrays.asList(1.0, 2.5), config.factors);
+    assertEquals("eu", config.region);
+    assertEquals(1, config.revision);
+    assertEquals(ServerConfig.Mode.PASSIVE, config.mode);
+    assertEquals(LocalDate.of(2020, 1, 2), config.since);
+    assertEquals(Arrays.asList("a", "b"), config.tags);
+    assertEquals("localhost", config.primary.host);
+    assertEquals(80, config.primary.port);
+    assertEquals(1, config.endpoints.size());
+    assertEquals("example.com", config.endpoints.get(0).host);
+    assertEquals(0, config.endpoints.get(0).port);
+    assertNull(config.ignored);
+  }
+
+  @Test
+  void shouldUseGeneratedBinderForParsing() {
+    ServerConfig config =
+        Toml.parse("server.port = 443\nserver.\"time.out\" = 5\nratio = 2\nunrelated = [1, 2]\n", ServerConfig.class);
+    assertEquals(443, config.port);
+    assertEquals(5, config.timeout);
+    assertEquals(2f, config.ratio);
+  }
+
+  @Test
+  void shouldReportInvalidValues() {
+    TomlParseResult result = Toml.parse("server.port = 4294967296\n");
+    TomlInvalidTypeException e =
+        assertThrows(TomlInvalidTypeException.class, () -> ServerConfig_TomlBinder.INSTANCE.bind(result));
+    assertEquals("Value of 'server.port' is out of range for an int", e.getMessage());
+
+    TomlParseResult mode = Toml.parse("mode = 'UNKNOWN'\n");
+    e = assertThrows(TomlInvalidTypeException.class, () -> Toml.bind(mode, ServerConfig.class));
+    assertEquals("Value of 'mode' is not a valid Mode", e.getMessage());
+  }
+}
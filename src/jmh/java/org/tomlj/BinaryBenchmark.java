@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading a document from TOML text with loading it from its binary form.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryBenchmark {
+
+  @Param({"10000"})
+  public int sections;
+
+  private String text;
+  private ByteBuffer binary;
+
+  @Setup
+  public void setUp() throws IOException {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < sections; ++i) {
+      builder.append("[section").append(i).append("]\n");
+      builder.append("name = \"value").append(i).append("\"\n");
+      builder.append("count = ").append(i).append('\n');
+      builder.append("ratio = ").append(i * 0.5).append('\n');
+      builder.append("tags = [\"a\", \"b\", \"c\"]\n");
+    }
+    text = builder.toString();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TomlBinary.write(Toml.parse(text), out);
+    binary = ByteBuffer.wrap(out.toByteArray());
+  }
+
+  @Benchmark
+  public TomlTable parseText() {
+    return Toml.parse(text);
+  }
+
+  @Benchmark
+  public TomlTable readBinary() {
+    return TomlBinary.read(binary.duplicate());
+  }
+
+  @Benchmark
+  public long viewBinary() {
+    return TomlBinary.view(binary).getLongOrDefault("section1.count", 0);
+  }
+}
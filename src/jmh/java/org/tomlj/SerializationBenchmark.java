@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serialization and type lookups of large tables.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+  @Param({"50000"})
+  public int keys;
+
+  private TomlTable table;
+  private Object[] values;
+
+  @Setup
+  public void setUp() {
+    TomlTableBuilder builder = TomlTable.builder();
+    for (int i = 0; i < keys; ++i) {
+      switch (i % 4) {
+        case 0:
+          builder.put("key" + i, i);
+          break;
+        case 1:
+          builder.put("key" + i, "value" + i);
+          break;
+        case 2:
+          builder.put("key" + i, TomlArray.builder().append(i).append("x").build());
+          break;
+        default:
+          builder.put("key" + i, TomlTable.builder().put("nested", i * 0.5).build());
+      }
+    }
+    table = builder.build();
+    values = table.toMap().values().toArray();
+  }
+
+  @Benchmark
+  public String toToml() {
+    return table.toToml();
+  }
+
+  @Benchmark
+  public String toJson() {
+    return table.toJson();
+  }
+
+  @Benchmark
+  public int typeLookups() {
+    int count = 0;
+    for (Object value : values) {
+      count += TomlType.of(value).ordinal();
+    }
+    return count;
+  }
+}
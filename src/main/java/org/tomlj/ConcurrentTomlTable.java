@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A table that can be read and updated concurrently, for configuration that is shared and updated while in use.
+ *
+ * <p>
+ * The table holds a {@link PersistentTomlTable}, which is replaced on each update. Reads never lock: each read
+ * operates on the table current when it starts, and the sets and maps returned by methods such as {@link #keySet()}
+ * are views of that table, so iterating them sees a consistent snapshot however the table is updated meanwhile. Use
+ * {@link #snapshot()} to make several reads from the same snapshot:
+ *
+ * <pre>{@code
+ * TomlTable config = shared.snapshot();
+ * connect(config.getString("db.host"), config.getLong("db.port"));
+ * }</pre>
+ *
+ * <p>
+ * Updates are copy-on-write: each copies only the tables on the path it changes (see {@link PersistentTomlTable}), and
+ * is published atomically. Concurrent updates retry rather than block, so they are never lost. Keys are kept in
+ * insertion order, and values keep their input positions.
+ *
+ * <p>
+ * As the table changes, equality is structural but the hash code is not cached. Views that cache what they derive
+ * from a table, such as a {@link TomlOverlay}, hold a snapshot rather than the table itself, so they must be rebuilt
+ * to see later updates.
+ */
+public final class ConcurrentTomlTable implements TomlTable {
+
+  private final AtomicReference<PersistentTomlTable> current;
+
+  private ConcurrentTomlTable(PersistentTomlTable table) {
+    this.current = new AtomicReference<>(table);
+  }
+
+  /**
+   * @return A new, empty table.
+   */
+  public static ConcurrentTomlTable create() {
+    return new ConcurrentTomlTable(PersistentTomlTable.empty());
+  }
+
+  /**
+   * Create a table holding a copy of another table.
+   *
+   * @param table The table to copy.
+   * @return A new table with the same entries as {@code table}.
+   */
+  public static ConcurrentTomlTable of(TomlTable table) {
+    return new ConcurrentTomlTable(PersistentTomlTable.of(table));
+  }
+
+  /**
+   * @return The current contents of this table, which are not affected by later updates.
+   */
+  public PersistentTomlTable snapshot() {
+    return current.get();
+  }
+
+  /**
+   * Set a value.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @param value The value, which must be of a TOML type (or an {@link Integer}).
+   * @throws IllegalArgumentException If the dotted key cannot be parsed, if an intermediate key holds a value that is
+   *         not a table, or if the value is not of a TOML type.
+   */
+  public void set(String dottedKey, Object value) {
+    requireNonNull(dottedKey);
+    set(Toml.parseDottedKey(dottedKey), value, null);
+  }
+
+  /**
+   * Set a value.
+   *
+   * @param path The key path.
+   * @param value The value, which must be of a TOML type (or an {@link Integer}).
+   * @throws IllegalArgumentException If the path is empty, if an intermediate key holds a value that is not a table,
+   *         or if the value is not of a TOML type.
+   */
+  public void set(List<String> path, Object value) {
+    set(path, value, null);
+  }
+
+  /**
+   * Set a value, with the position in a TOML document where it was defined.
+   *
+   * @param path The key path.
+   * @param value The value, which must be of a TOML type (or an {@link Integer}).
+   * @param position The input position, or {@code null} if the value has no position.
+   * @throws IllegalArgumentException If the path is empty, if an intermediate key holds a value that is not a table,
+   *         or if the value is not of a TOML type.
+   */
+  public void set(List<String> path, Object value, @Nullable TomlPosition position) {
+    requireNonNull(path);
+    requireNonNull(value);
+    // persist once, rather than on each retry
+    Object persisted = PersistentTomlTable.persist(value);
+    update(table -> table.with(path, persisted, position));
+  }
+
+  /**
+   * Remove a value.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @return {@code true} if there was a value at the key.
+   * @throws IllegalArgumentException If the dotted key cannot be parsed.
+   */
+  public boolean remove(String dottedKey) {
+    requireNonNull(dottedKey);
+    return remove(Toml.parseDottedKey(dottedKey));
+  }
+
+  /**
+   * Remove a value.
+   *
+   * @param path The key path.
+   * @return {@code true} if there was a value at the path.
+   * @throws IllegalArgumentException If the path is empty.
+   */
+  public boolean remove(List<String> path) {
+    requireNonNull(path);
+    while (true) {
+      PersistentTomlTable table = current.get();
+      PersistentTomlTable updated = table.without(path);
+      if (updated == table) {
+        return false;
+      }
+      if (current.compareAndSet(table, updated)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Merge another table into this table.
+   *
+   * @param other The table to merge (see {@link PersistentTomlTable#merge(TomlTable)}).
+   */
+  public void merge(TomlTable other) {
+    requireNonNull(other);
+    PersistentTomlTable persisted = PersistentTomlTable.of(other);
+    update(table -> table.merge(persisted));
+  }
+
+  /**
+   * Replace the contents of this table.
+   *
+   * @param table The new contents.
+   */
+  public void replace(TomlTable table) {
+    current.set(PersistentTomlTable.of(table));
+  }
+
+  /**
+   * Atomically update this table.
+   *
+   * <p>
+   * The function may be called more than once if other updates are made concurrently, so it should be free of side
+   * effects.
+   *
+   * @param function A function computing the new contents from the current contents.
+   * @return The new contents.
+   */
+  public PersistentTomlTable update(UnaryOperator<PersistentTomlTable> function) {
+    requireNonNull(function);
+    while (true) {
+      PersistentTomlTable table = current.get();
+      PersistentTomlTable updated = requireNonNull(function.apply(table));
+      if (updated == table || current.compareAndSet(table, updated)) {
+        return updated;
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return current.get().size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return current.get().isEmpty();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return current.get().keySet();
+  }
+
+  @Override
+  public Set<List<String>> keyPathSet(boolean includeTables) {
+    return current.get().keyPathSet(includeTables);
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return current.get().entrySet();
+  }
+
+  @Override
+  public Set<Map.Entry<List<String>, Object>> entryPathSet(boolean includeTables) {
+    return current.get().entryPathSet(includeTables);
+  }
+
+  @Override
+  @Nullable
+  public Object get(List<String> path) {
+    if (path.isEmpty()) {
+      return this;
+    }
+    return current.get().get(path);
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(List<String> path) {
+    return current.get().inputPositionOf(path);
+  }
+
+  @Override
+  public Map<String, Object> toMap() {
+    return current.get().toMap();
+  }
+
+  @Override
+  public Stream<Map.Entry<List<String>, Object>> leafStream() {
+    return snapshot().leafStream();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof TomlTable) && Toml.equals(current.get(), (TomlTable) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return current.get().hashCode();
+  }
+}
@@ -95,4 +95,14 @@ final class EmptyTomlArray implements TomlArray {
   public List<Object> toList() {
     return Collections.emptyList();
   }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof TomlArray) && ((TomlArray) obj).isEmpty();
+  }
+
+  @Override
+  public int hashCode() {
+    return 1;
+  }
 }
@@ -71,4 +71,14 @@ final class EmptyTomlTable implements TomlTable {
   public Map<String, Object> toMap() {
     return Collections.emptyMap();
   }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof TomlTable) && ((TomlTable) obj).isEmpty();
+  }
+
+  @Override
+  public int hashCode() {
+    return 0;
+  }
 }
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable index of every path in a table tree, built in a single depth-first pass.
+ *
+ * <p>
+ * Entries are held in parallel arrays in the order of {@link TomlTable#entryPathSet(boolean)}, and are indexed by
+ * their canonical dotted key (see {@link Toml#joinKeyPath(List)}). The path and entry set views are created once and
+ * shared by every caller.
+ *
+ * <p>
+ * Values are not copied into the index: each entry refers to the table holding it (and, for frozen tables, to its
+ * entry in that table), so values held unboxed stay unboxed.
+ */
+final class FlatIndex {
+
+  private final TomlPath[] paths;
+  private final String[] dottedKeys;
+  // the table holding each entry, and the index of the entry in that table if it is frozen (or -1)
+  private final TomlTable[] owners;
+  private final int[] entries;
+  private final boolean[] isTable;
+  private final int leafCount;
+  // slots hold (entry index + 1), with 0 marking an empty slot
+  private final int[] slots;
+
+  private final Set<List<String>> keyPaths;
+  private final Set<List<String>> leafKeyPaths;
+  private final Set<String> dottedKeySet;
+  private final Set<String> leafDottedKeySet;
+  private final Set<Map.Entry<List<String>, Object>> entryPaths;
+  private final Set<Map.Entry<List<String>, Object>> leafEntryPaths;
+  private final Set<Map.Entry<String, Object>> dottedEntries;
+  private final Set<Map.Entry<String, Object>> leafDottedEntries;
+
+  private static final class Builder {
+    final List<TomlPath> paths = new ArrayList<>();
+    final List<TomlTable> owners = new ArrayList<>();
+    final List<Integer> entries = new ArrayList<>();
+    final List<TomlTable> tables = new ArrayList<>();
+
+    void add(TomlTable table, String[] prefix) {
+      if (table instanceof FrozenTomlTable) {
+        FrozenTomlTable frozen = (FrozenTomlTable) table;
+        for (int i = 0; i < frozen.size(); ++i) {
+          add(table, i, prefix, frozen.key(i), frozen.isTable(i) ? (TomlTable) frozen.value(i) : null);
+        }
+      } else {
+        table.forEach((key, value) -> {
+          add(table, -1, prefix, key, (value instanceof TomlTable) ? (TomlTable) value : null);
+        });
+      }
+    }
+
+    private void add(TomlTable owner, int entry, String[] prefix, String key, @Nullable TomlTable subTable) {
+      String[] keys = Arrays.copyOf(prefix, prefix.length + 1);
+      keys[prefix.length] = key;
+      paths.add(new TomlPath(keys));
+      owners.add(owner);
+      entries.add(entry);
+      tables.add(subTable);
+      if (subTable != null) {
+        add(subTable, keys);
+      }
+    }
+  }
+
+  static FlatIndex build(TomlTable table) {
+    Builder builder = new Builder();
+    builder.add(table, new String[0]);
+    return new FlatIndex(builder);
+  }
+
+  private FlatIndex(Builder builder) {
+    int size = builder.paths.size();
+    this.paths = builder.paths.toArray(new TomlPath[0]);
+    this.dottedKeys = new String[size];
+    this.owners = builder.owners.toArray(new TomlTable[0]);
+    this.entries = new int[size];
+    this.isTable = new boolean[size];
+    int leaves = 0;
+    for (int i = 0; i < size; ++i) {
+      dottedKeys[i] = Toml.joinKeyPath(paths[i]);
+      entries[i] = builder.entries.get(i);
+      isTable[i] = builder.tables.get(i) != null;
+      if (!isTable[i]) {
+        leaves++;
+      }
+    }
+    this.leafCount = leaves;
+    this.slots = buildSlots(dottedKeys);
+
+    this.keyPaths = new PathView<List<String>>(true) {
+      @Override
+      List<String> element(int i) {
+        return paths[i];
+      }
+
+      @Override
+      int indexOfElement(Object o) {
+        return (o instanceof List) ? indexOfPath((List<?>) o) : -1;
+      }
+    };
+    this.leafKeyPaths = new PathView<List<String>>(false) {
+      @Override
+      List<String> element(int i) {
+        return paths[i];
+      }
+
+      @Override
+      int indexOfElement(Object o) {
+        return (o instanceof List) ? indexOfPath((List<?>) o) : -1;
+      }
+    };
+    this.dottedKeySet = new PathView<String>(true) {
+      @Override
+      String element(int i) {
+        return dottedKeys[i];
+      }
+
+      @Override
+      int indexOfElement(Object o) {
+        return (o instanceof String) ? indexOf((String) o) : -1;
+      }
+    };
+    this.leafDottedKeySet = new PathView<String>(false) {
+      @Override
+      String element(int i) {
+        return dottedKeys[i];
+      }
+
+      @Override
+      int indexOfElement(Object o) {
+        return (o instanceof String) ? indexOf((String) o) : -1;
+      }
+    };
+    this.entryPaths = new PathView<Map.Entry<List<String>, Object>>(true) {
+      @Override
+      Map.Entry<List<String>, Object> element(int i) {
+        return new AbstractMap.SimpleImmutableEntry<>(paths[i], value(i));
+      }
+    };
+    this.leafEntryPaths = new PathView<Map.Entry<List<String>, Object>>(false) {
+      @Override
+      Map.Entry<List<String>, Object> element(int i) {
+        return new AbstractMap.SimpleImmutableEntry<>(paths[i], value(i));
+      }
+    };
+    this.dottedEntries = new PathView<Map.Entry<String, Object>>(true) {
+      @Override
+      Map.Entry<String, Object> element(int i) {
+        return new AbstractMap.SimpleImmutableEntry<>(dottedKeys[i], value(i));
+      }
+    };
+    this.leafDottedEntries = new PathView<Map.Entry<String, Object>>(false) {
+      @Override
+      Map.Entry<String, Object> element(int i) {
+        return new AbstractMap.SimpleImmutableEntry<>(dottedKeys[i], value(i));
+      }
+    };
+  }
+
+  private static int[] buildSlots(String[] keys) {
+    int capacity = Integer.highestOneBit(Math.max(1, keys.length * 2 - 1)) << 1;
+    int[] slots = new int[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < keys.length; ++i) {
+      int slot = spread(keys[i].hashCode()) & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = i + 1;
+    }
+    return slots;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Find the entry for a canonical dotted key.
+   *
+   * @param dottedKey The canonical dotted key.
+   * @return The entry index, or {@code -1} if there is no entry for the key (or the key is not in canonical form).
+   */
+  int indexOf(String dottedKey) {
+    int mask = slots.length - 1;
+    int slot = spread(dottedKey.hashCode()) & mask;
+    int entry;
+    while ((entry = slots[slot]) != 0) {
+      if (dottedKeys[entry - 1].equals(dottedKey)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private int indexOfPath(List<?> path) {
+    for (Object key : path) {
+      if (!(key instanceof String)) {
+        return -1;
+      }
+    }
+    @SuppressWarnings("unchecked")
+    List<String> keys = (List<String>) path;
+    int i = path.isEmpty() ? -1 : indexOf(Toml.joinKeyPath(keys));
+    return (i >= 0 && paths[i].equals(path)) ? i : -1;
+  }
+
+  int size() {
+    return paths.length;
+  }
+
+  TomlPath path(int i) {
+    return paths[i];
+  }
+
+  String dottedKey(int i) {
+    return dottedKeys[i];
+  }
+
+  Object value(int i) {
+    if (entries[i] >= 0) {
+      return ((FrozenTomlTable) owners[i]).value(entries[i]);
+    }
+    Object value = owners[i].get(lastKey(i));
+    assert value != null;
+    return value;
+  }
+
+  @Nullable
+  TomlPosition position(int i) {
+    if (entries[i] >= 0) {
+      return ((FrozenTomlTable) owners[i]).position(entries[i]);
+    }
+    return owners[i].inputPositionOf(lastKey(i));
+  }
+
+  private List<String> lastKey(int i) {
+    return paths[i].subList(paths[i].size() - 1, paths[i].size());
+  }
+
+  Set<List<String>> keyPathSet(boolean includeTables) {
+    return includeTables ? keyPaths : leafKeyPaths;
+  }
+
+  Set<String> dottedKeySet(boolean includeTables) {
+    return includeTables ? dottedKeySet : leafDottedKeySet;
+  }
+
+  Set<Map.Entry<List<String>, Object>> entryPathSet(boolean includeTables) {
+    return includeTables ? entryPaths : leafEntryPaths;
+  }
+
+  Set<Map.Entry<String, Object>> dottedEntrySet(boolean includeTables) {
+    return includeTables ? dottedEntries : leafDottedEntries;
+  }
+
+  /**
+   * A read-only set view over the index entries, optionally skipping tables.
+   */
+  private abstract class PathView<E> extends AbstractSet<E> {
+    private final boolean includeTables;
+
+    PathView(boolean includeTables) {
+      this.includeTables = includeTables;
+    }
+
+    abstract E element(int i);
+
+    /**
+     * Find the entry matching an element, or return {@code -2} if the index cannot be used to find it.
+     */
+    int indexOfElement(Object o) {
+      return -2;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      int i = indexOfElement(o);
+      if (i == -2) {
+        return super.contains(o);
+      }
+      return i >= 0 && (includeTables || !isTable[i]);
+    }
+
+    @Override
+    public int size() {
+      return includeTables ? paths.length : leafCount;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+      return new Iterator<E>() {
+        private int next = advance(0);
+
+        private int advance(int i) {
+          while (!includeTables && i < paths.length && isTable[i]) {
+            ++i;
+          }
+          return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return next < paths.length;
+        }
+
+        @Override
+        public E next() {
+          if (next >= paths.length) {
+            throw new NoSuchElementException();
+          }
+          E element = element(next);
+          next = advance(next + 1);
+          return element;
+        }
+      };
+    }
+  }
+}
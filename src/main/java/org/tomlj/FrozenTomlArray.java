@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable array, holding its values and (packed) positions in parallel arrays.
+ */
+final class FrozenTomlArray implements TomlArray {
+
+  private final Object[] values;
+  private final long[] positions;
+  // whether the array was parsed under the homogeneous array rules of TOML 0.5.0 and earlier
+  private final boolean homogeneous;
+  // the structural hash code, computed on first use
+  private int hash;
+
+  FrozenTomlArray(Object[] values, long[] positions, boolean homogeneous) {
+    assert values.length == positions.length;
+    this.values = values;
+    this.positions = positions;
+    this.homogeneous = homogeneous;
+  }
+
+  /**
+   * Create an immutable copy of an array, and of all the tables and arrays it contains.
+   *
+   * @param array The array.
+   * @param keyPool A pool used to share identical key strings between tables.
+   * @return An immutable copy of the array.
+   */
+  static TomlArray copyOf(TomlArray array, Map<String, String> keyPool) {
+    int size = array.size();
+    Object[] values = new Object[size];
+    long[] positions = new long[size];
+    for (int i = 0; i < size; ++i) {
+      values[i] = FrozenTomlTable.freezeValue(array.get(i), keyPool);
+      positions[i] = TomlPosition.pack(array.inputPositionOf(i));
+    }
+    boolean homogeneous = isHomogeneous(array);
+    TomlArray primitiveArray = PrimitiveTomlArray.of(values, positions, homogeneous);
+    return (primitiveArray != null) ? primitiveArray : new FrozenTomlArray(values, positions, homogeneous);
+  }
+
+  /**
+   * @param array An array.
+   * @return {@code true} if the array was parsed under the homogeneous array rules of TOML 0.5.0 and earlier.
+   */
+  static boolean isHomogeneous(TomlArray array) {
+    if (array instanceof MutableTomlArray) {
+      return ((MutableTomlArray) array).isHomogeneous();
+    }
+    if (array instanceof FrozenTomlArray) {
+      return ((FrozenTomlArray) array).homogeneous;
+    }
+    if (array instanceof PrimitiveTomlArray) {
+      return ((PrimitiveTomlArray) array).isHomogeneous();
+    }
+    if (array instanceof TapeTomlArray) {
+      return ((TapeTomlArray) array).isHomogeneous();
+    }
+    return false;
+  }
+
+  private boolean contains(TomlType type) {
+    if (!homogeneous) {
+      throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+    }
+    if (values.length == 0) {
+      return true;
+    }
+    return TomlType.typeFor(values[0]).orElse(null) == type;
+  }
+
+  @Override
+  public boolean containsStrings() {
+    return contains(TomlType.STRING);
+  }
+
+  @Override
+  public boolean containsLongs() {
+    return contains(TomlType.INTEGER);
+  }
+
+  @Override
+  public boolean containsDoubles() {
+    return contains(TomlType.FLOAT);
+  }
+
+  @Override
+  public boolean containsBooleans() {
+    return contains(TomlType.BOOLEAN);
+  }
+
+  @Override
+  public boolean containsOffsetDateTimes() {
+    return contains(TomlType.OFFSET_DATE_TIME);
+  }
+
+  @Override
+  public boolean containsLocalDateTimes() {
+    return contains(TomlType.LOCAL_DATE_TIME);
+  }
+
+  @Override
+  public boolean containsLocalDates() {
+    return contains(TomlType.LOCAL_DATE);
+  }
+
+  @Override
+  public boolean containsLocalTimes() {
+    return contains(TomlType.LOCAL_TIME);
+  }
+
+  @Override
+  public boolean containsArrays() {
+    return contains(TomlType.ARRAY);
+  }
+
+  @Override
+  public boolean containsTables() {
+    return contains(TomlType.TABLE);
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return values.length == 0;
+  }
+
+  @Override
+  public Object get(int index) {
+    return values[index];
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(int index) {
+    // a position of 0 is stored for values that have none
+    return TomlPosition.unpack(positions[index]);
+  }
+
+  @Override
+  public List<Object> toList() {
+    return new ArrayList<>(Arrays.asList(values));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof TomlArray) && Toml.equals(this, (TomlArray) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = Toml.hashCode(this);
+      hash = h;
+    }
+    return h;
+  }
+
+  void measure(TomlMemoryStats.Builder stats) {
+    stats.array(TomlMemoryStats.objectSize(2, 5) + TomlMemoryStats.arraySize(values.length, 0));
+    stats.positions(TomlMemoryStats.arraySize(positions.length, 8));
+    for (Object value : values) {
+      stats.value(value);
+    }
+  }
+}
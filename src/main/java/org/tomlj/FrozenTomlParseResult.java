@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The result of parsing a document: its frozen root table, and the errors encountered while parsing it.
+ *
+ * <p>
+ * Lookups by dotted key parse the key and walk the per-table indexes of the frozen tables, without allocating for
+ * unboxed values. The {@link FlatIndex} of the document, which holds every path, is only built for the dotted and path
+ * set views.
+ */
+final class FrozenTomlParseResult implements TomlParseResult {
+
+  private final FrozenTomlTable table;
+  private final List<TomlParseError> errors;
+  private volatile @Nullable FlatIndex flatIndex;
+  private volatile @Nullable TomlKeyIndex keyIndex;
+
+  FrozenTomlParseResult(FrozenTomlTable table, List<TomlParseError> errors) {
+    this.table = table;
+    this.errors = errors;
+  }
+
+  /**
+   * The index of all paths in the document, which is built on first use of a dotted or path set view.
+   *
+   * @return The index.
+   */
+  FlatIndex flatIndex() {
+    FlatIndex index = flatIndex;
+    if (index == null) {
+      // racing threads may each build an index, but they are identical
+      index = FlatIndex.build(table);
+      flatIndex = index;
+    }
+    return index;
+  }
+
+  @Override
+  public TomlKeyIndex keyIndex() {
+    TomlKeyIndex index = keyIndex;
+    if (index == null) {
+      index = TomlKeyIndex.of(table);
+      keyIndex = index;
+    }
+    return index;
+  }
+
+  private static List<String> pathOf(String dottedKey) {
+    requireNonNull(dottedKey);
+    return Parser.parseDottedKey(dottedKey);
+  }
+
+  @Override
+  public int size() {
+    return table.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return table.isEmpty();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return table.keySet();
+  }
+
+  @Override
+  public Set<String> dottedKeySet() {
+    return flatIndex().dottedKeySet(false);
+  }
+
+  @Override
+  public Set<String> dottedKeySet(boolean includeTables) {
+    return flatIndex().dottedKeySet(includeTables);
+  }
+
+  @Override
+  public Set<List<String>> keyPathSet(boolean includeTables) {
+    return flatIndex().keyPathSet(includeTables);
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return table.entrySet();
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> dottedEntrySet() {
+    return flatIndex().dottedEntrySet(false);
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> dottedEntrySet(boolean includeTables) {
+    return flatIndex().dottedEntrySet(includeTables);
+  }
+
+  @Override
+  public Set<Map.Entry<List<String>, Object>> entryPathSet(boolean includeTables) {
+    return flatIndex().entryPathSet(includeTables);
+  }
+
+  @Override
+  public boolean contains(String dottedKey) {
+    return table.contains(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public Object get(String dottedKey) {
+    return table.get(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public Object get(List<String> path) {
+    return table.get(path);
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(String dottedKey) {
+    return table.inputPositionOf(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(List<String> path) {
+    return table.inputPositionOf(path);
+  }
+
+  @Override
+  @Nullable
+  public String getString(String dottedKey) {
+    return getString(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public Long getLong(String dottedKey) {
+    return getLong(pathOf(dottedKey));
+  }
+
+  @Override
+  public long getLongOrDefault(String dottedKey, long defaultValue) {
+    return table.getLongOrDefault(pathOf(dottedKey), defaultValue);
+  }
+
+  @Override
+  @Nullable
+  public Double getDouble(String dottedKey) {
+    return getDouble(pathOf(dottedKey));
+  }
+
+  @Override
+  public double getDoubleOrDefault(String dottedKey, double defaultValue) {
+    return table.getDoubleOrDefault(pathOf(dottedKey), defaultValue);
+  }
+
+  @Override
+  @Nullable
+  public Boolean getBoolean(String dottedKey) {
+    return getBoolean(pathOf(dottedKey));
+  }
+
+  @Override
+  public boolean getBooleanOrDefault(String dottedKey, boolean defaultValue) {
+    return getBooleanOrDefault(pathOf(dottedKey), defaultValue);
+  }
+
+  @Override
+  @Nullable
+  public OffsetDateTime getOffsetDateTime(String dottedKey) {
+    return getOffsetDateTime(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public LocalDateTime getLocalDateTime(String dottedKey) {
+    return getLocalDateTime(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public LocalDate getLocalDate(String dottedKey) {
+    return getLocalDate(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public LocalTime getLocalTime(String dottedKey) {
+    return getLocalTime(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public TomlArray getArray(String dottedKey) {
+    return getArray(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public TomlTable getTable(String dottedKey) {
+    return getTable(pathOf(dottedKey));
+  }
+
+  @Override
+  public boolean isLong(List<String> path) {
+    return table.isLong(path);
+  }
+
+  @Override
+  public long getLong(List<String> path, LongSupplier defaultValue) {
+    return table.getLong(path, defaultValue);
+  }
+
+  @Override
+  public long getLongOrDefault(List<String> path, long defaultValue) {
+    return table.getLongOrDefault(path, defaultValue);
+  }
+
+  @Override
+  public OptionalLong findLong(List<String> path) {
+    return table.findLong(path);
+  }
+
+  @Override
+  public boolean isDouble(List<String> path) {
+    return table.isDouble(path);
+  }
+
+  @Override
+  public double getDouble(List<String> path, DoubleSupplier defaultValue) {
+    return table.getDouble(path, defaultValue);
+  }
+
+  @Override
+  public double getDoubleOrDefault(List<String> path, double defaultValue) {
+    return table.getDoubleOrDefault(path, defaultValue);
+  }
+
+  @Override
+  public OptionalDouble findDouble(List<String> path) {
+    return table.findDouble(path);
+  }
+
+  @Override
+  public void forEach(BiConsumer<String, Object> action) {
+    table.forEach(action);
+  }
+
+  @Override
+  public Map<String, Object> toMap() {
+    return table.toMap();
+  }
+
+  @Override
+  public List<TomlParseError> errors() {
+    return errors;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return table.equals((obj instanceof FrozenTomlParseResult) ? ((FrozenTomlParseResult) obj).table : obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return table.hashCode();
+  }
+
+  void measure(TomlMemoryStats.Builder stats) {
+    stats.table(TomlMemoryStats.objectSize(4, 0));
+    table.measure(stats);
+  }
+}
@@ -0,0 +1,635 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable table, holding its keys, values and (packed) positions in parallel arrays.
+ *
+ * <p>
+ * Keys are kept in insertion order. Tables with more than {@link #LINEAR_SCAN_LIMIT} keys also have an open-addressing
+ * index from key hash to entry.
+ *
+ * <p>
+ * Integer and float values are stored unboxed in a parallel {@code long[]}, with a marker in place of the value.
+ *
+ * <p>
+ * Equality is structural (see {@link Toml#equals(TomlTable, TomlTable)}), and the hash code is cached.
+ */
+final class FrozenTomlTable implements TomlTable {
+
+  private static final int LINEAR_SCAN_LIMIT = 8;
+  private static final String[] NO_KEYS = new String[0];
+  private static final Object[] NO_VALUES = new Object[0];
+  private static final long[] NO_POSITIONS = new long[0];
+  // markers for values held unboxed
+  static final Object LONG_VALUE = new Object();
+  static final Object DOUBLE_VALUE = new Object();
+
+  private final String[] keys;
+  private final Object[] values;
+  private final long[] positions;
+  // raw bits of integer and float values, or null if the table holds none
+  private final long @Nullable [] primitives;
+  // slots hold (entry index + 1), with 0 marking an empty slot
+  private final int @Nullable [] index;
+  // the structural hash code, computed on first use
+  private int hash;
+  // the number of leaf values plus one, or 0 if not yet counted
+  private int leafCount;
+
+  FrozenTomlTable(String[] keys, Object[] values, long[] positions) {
+    this(keys, values, positions, unbox(values));
+  }
+
+  /**
+   * @param primitives The raw bits of integer and float values, which are marked by {@link #LONG_VALUE} and
+   *        {@link #DOUBLE_VALUE} in {@code values}, or {@code null} if there are none.
+   */
+  FrozenTomlTable(String[] keys, Object[] values, long[] positions, long @Nullable [] primitives) {
+    assert keys.length == values.length && keys.length == positions.length;
+    int size = keys.length;
+    this.keys = (size == 0) ? NO_KEYS : keys;
+    this.values = (size == 0) ? NO_VALUES : values;
+    this.positions = (size == 0) ? NO_POSITIONS : positions;
+    this.index = (size > LINEAR_SCAN_LIMIT) ? buildIndex(keys) : null;
+    this.primitives = primitives;
+  }
+
+  private static long @Nullable [] unbox(Object[] values) {
+    long[] primitives = null;
+    for (int i = 0; i < values.length; ++i) {
+      Object value = values[i];
+      if (value instanceof Long || value instanceof Double) {
+        if (primitives == null) {
+          primitives = new long[values.length];
+        }
+        if (value instanceof Long) {
+          primitives[i] = (Long) value;
+          values[i] = LONG_VALUE;
+        } else {
+          primitives[i] = Double.doubleToRawLongBits((Double) value);
+          values[i] = DOUBLE_VALUE;
+        }
+      } else if (value instanceof Boolean) {
+        values[i] = Boolean.valueOf((Boolean) value);
+      }
+    }
+    return primitives;
+  }
+
+  String key(int i) {
+    return keys[i];
+  }
+
+  /**
+   * Get the value of an entry, boxing it if it is held unboxed.
+   */
+  Object value(int i) {
+    Object value = values[i];
+    if (value == LONG_VALUE) {
+      return primitives[i];
+    }
+    if (value == DOUBLE_VALUE) {
+      return Double.longBitsToDouble(primitives[i]);
+    }
+    return value;
+  }
+
+  boolean isTable(int i) {
+    return values[i] instanceof TomlTable;
+  }
+
+  @Nullable
+  TomlPosition position(int i) {
+    return TomlPosition.unpack(positions[i]);
+  }
+
+  /**
+   * Freeze a value held by a mutable table or array.
+   *
+   * @param value The value.
+   * @param keyPool A pool used to share identical key strings between tables.
+   * @return The value, or an immutable copy of it if it is a table or array not already in frozen form.
+   */
+  static Object freezeValue(Object value, Map<String, String> keyPool) {
+    if (value instanceof MutableTomlTable) {
+      return ((MutableTomlTable) value).freeze(keyPool);
+    }
+    if (value instanceof MutableTomlArray) {
+      return ((MutableTomlArray) value).freeze(keyPool);
+    }
+    if (value instanceof TomlTable && !(value instanceof FrozenTomlTable)) {
+      return copyOf((TomlTable) value, keyPool);
+    }
+    if (value instanceof TomlArray && !(value instanceof FrozenTomlArray) && !(value instanceof PrimitiveTomlArray)) {
+      return FrozenTomlArray.copyOf((TomlArray) value, keyPool);
+    }
+    return value;
+  }
+
+  /**
+   * Create an immutable copy of a table, and of all the tables and arrays it contains.
+   *
+   * @param table The table.
+   * @param keyPool A pool used to share identical key strings between tables.
+   * @return An immutable copy of the table.
+   */
+  static FrozenTomlTable copyOf(TomlTable table, Map<String, String> keyPool) {
+    int size = table.size();
+    String[] keys = new String[size];
+    Object[] values = new Object[size];
+    long[] positions = new long[size];
+    int i = 0;
+    for (String key : table.keySet()) {
+      List<String> path = Collections.singletonList(key);
+      Object value = table.get(path);
+      assert value != null;
+      keys[i] = keyPool.computeIfAbsent(key, k -> k);
+      values[i] = freezeValue(value, keyPool);
+      positions[i] = TomlPosition.pack(table.inputPositionOf(path));
+      ++i;
+    }
+    return new FrozenTomlTable(keys, values, positions);
+  }
+
+  private static int[] buildIndex(String[] keys) {
+    int capacity = Integer.highestOneBit(keys.length * 2 - 1) << 1;
+    int[] index = new int[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < keys.length; ++i) {
+      int slot = spread(keys[i].hashCode()) & mask;
+      while (index[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      index[slot] = i + 1;
+    }
+    return index;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  int indexOf(String key) {
+    int[] index = this.index;
+    if (index == null) {
+      for (int i = 0; i < keys.length; ++i) {
+        if (keys[i].equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    int mask = index.length - 1;
+    int slot = spread(key.hashCode()) & mask;
+    int entry;
+    while ((entry = index[slot]) != 0) {
+      if (keys[entry - 1].equals(key)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return keys.length == 0;
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return new AbstractSet<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(keys)).iterator();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return (o instanceof String) && indexOf((String) o) >= 0;
+      }
+
+      @Override
+      public int size() {
+        return keys.length;
+      }
+    };
+  }
+
+  @Override
+  public Set<List<String>> keyPathSet(boolean includeTables) {
+    Set<List<String>> paths = new LinkedHashSet<>();
+    for (int i = 0; i < keys.length; ++i) {
+      List<String> basePath = Collections.singletonList(keys[i]);
+      if (!(values[i] instanceof TomlTable)) {
+        paths.add(basePath);
+        continue;
+      }
+      if (includeTables) {
+        paths.add(basePath);
+      }
+      for (List<String> subPath : ((TomlTable) values[i]).keyPathSet(includeTables)) {
+        List<String> path = new ArrayList<>(subPath.size() + 1);
+        path.add(keys[i]);
+        path.addAll(subPath);
+        paths.add(path);
+      }
+    }
+    return paths;
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        return new Iterator<Map.Entry<String, Object>>() {
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < keys.length;
+          }
+
+          @Override
+          public Map.Entry<String, Object> next() {
+            if (next >= keys.length) {
+              throw new NoSuchElementException();
+            }
+            int i = next++;
+            return new AbstractMap.SimpleImmutableEntry<>(keys[i], value(i));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return keys.length;
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<List<String>, Object>> entryPathSet(boolean includeTables) {
+    Set<Map.Entry<List<String>, Object>> entries = new LinkedHashSet<>();
+    for (int i = 0; i < keys.length; ++i) {
+      List<String> entryPath = Collections.singletonList(keys[i]);
+      if (!(values[i] instanceof TomlTable)) {
+        entries.add(new AbstractMap.SimpleEntry<>(entryPath, value(i)));
+        continue;
+      }
+      if (includeTables) {
+        entries.add(new AbstractMap.SimpleEntry<>(entryPath, values[i]));
+      }
+      for (Map.Entry<List<String>, Object> subEntry : ((TomlTable) values[i]).entryPathSet(includeTables)) {
+        List<String> subPath = subEntry.getKey();
+        List<String> path = new ArrayList<>(subPath.size() + 1);
+        path.add(keys[i]);
+        path.addAll(subPath);
+        entries.add(new AbstractMap.SimpleEntry<>(path, subEntry.getValue()));
+      }
+    }
+    return entries;
+  }
+
+  @Override
+  @Nullable
+  public Object get(List<String> path) {
+    if (path.isEmpty()) {
+      return this;
+    }
+    FrozenTomlTable table = parentOf(path);
+    if (table == null) {
+      return null;
+    }
+    int i = table.indexOf(path.get(path.size() - 1));
+    return (i >= 0) ? table.value(i) : null;
+  }
+
+  @Override
+  public boolean contains(List<String> path) {
+    if (path.isEmpty()) {
+      return true;
+    }
+    FrozenTomlTable table = parentOf(path);
+    return table != null && table.indexOf(path.get(path.size() - 1)) >= 0;
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(List<String> path) {
+    if (path.isEmpty()) {
+      return TomlPosition.positionAt(1, 1);
+    }
+    FrozenTomlTable table = parentOf(path);
+    if (table == null) {
+      return null;
+    }
+    int i = table.indexOf(path.get(path.size() - 1));
+    return (i >= 0) ? TomlPosition.unpack(table.positions[i]) : null;
+  }
+
+  @Override
+  @Nullable
+  public TomlType typeOf(List<String> path) {
+    if (path.isEmpty()) {
+      return TomlType.TABLE;
+    }
+    FrozenTomlTable table = parentOf(path);
+    int i = (table != null) ? table.indexOf(path.get(path.size() - 1)) : -1;
+    if (i < 0) {
+      return null;
+    }
+    Object value = table.values[i];
+    if (value == LONG_VALUE) {
+      return TomlType.INTEGER;
+    }
+    return (value == DOUBLE_VALUE) ? TomlType.FLOAT : TomlType.of(value);
+  }
+
+  @Override
+  public boolean isLong(List<String> path) {
+    FrozenTomlTable table = path.isEmpty() ? null : parentOf(path);
+    int i = (table != null) ? table.indexOf(path.get(path.size() - 1)) : -1;
+    return i >= 0 && table.values[i] == LONG_VALUE;
+  }
+
+  @Override
+  public long getLong(List<String> path, LongSupplier defaultValue) {
+    requireNonNull(defaultValue);
+    FrozenTomlTable table = leafTableOf(path);
+    int i = (table != null) ? table.primitiveIndex(path, LONG_VALUE) : -1;
+    return (i >= 0) ? table.primitives[i] : defaultValue.getAsLong();
+  }
+
+  @Override
+  public long getLongOrDefault(List<String> path, long defaultValue) {
+    FrozenTomlTable table = leafTableOf(path);
+    int i = (table != null) ? table.primitiveIndex(path, LONG_VALUE) : -1;
+    return (i >= 0) ? table.primitives[i] : defaultValue;
+  }
+
+  @Override
+  public OptionalLong findLong(List<String> path) {
+    FrozenTomlTable table = leafTableOf(path);
+    int i = (table != null) ? table.primitiveIndex(path, LONG_VALUE) : -1;
+    return (i >= 0) ? OptionalLong.of(table.primitives[i]) : OptionalLong.empty();
+  }
+
+  @Override
+  public boolean isDouble(List<String> path) {
+    FrozenTomlTable table = path.isEmpty() ? null : parentOf(path);
+    int i = (table != null) ? table.indexOf(path.get(path.size() - 1)) : -1;
+    return i >= 0 && table.values[i] == DOUBLE_VALUE;
+  }
+
+  @Override
+  public double getDouble(List<String> path, DoubleSupplier defaultValue) {
+    requireNonNull(defaultValue);
+    FrozenTomlTable table = leafTableOf(path);
+    int i = (table != null) ? table.primitiveIndex(path, DOUBLE_VALUE) : -1;
+    return (i >= 0) ? Double.longBitsToDouble(table.primitives[i]) : defaultValue.getAsDouble();
+  }
+
+  @Override
+  public double getDoubleOrDefault(List<String> path, double defaultValue) {
+    FrozenTomlTable table = leafTableOf(path);
+    int i = (table != null) ? table.primitiveIndex(path, DOUBLE_VALUE) : -1;
+    return (i >= 0) ? Double.longBitsToDouble(table.primitives[i]) : defaultValue;
+  }
+
+  @Override
+  public OptionalDouble findDouble(List<String> path) {
+    FrozenTomlTable table = leafTableOf(path);
+    int i = (table != null) ? table.primitiveIndex(path, DOUBLE_VALUE) : -1;
+    return (i >= 0) ? OptionalDouble.of(Double.longBitsToDouble(table.primitives[i])) : OptionalDouble.empty();
+  }
+
+  /**
+   * Find the table holding the last key of a path.
+   *
+   * @return The table, or {@code null} if an element of the path preceding the final key is missing or not a table.
+   * @throws TomlInvalidTypeException If the path is empty (and so refers to this table).
+   */
+  @Nullable
+  private FrozenTomlTable leafTableOf(List<String> path) {
+    if (path.isEmpty()) {
+      throw new TomlInvalidTypeException("Value of '' is a " + TomlType.TABLE.typeName());
+    }
+    return parentOf(path);
+  }
+
+  /**
+   * Find the entry for the last key of a path, which must hold an unboxed value.
+   *
+   * @return The entry index, or {@code -1} if there is no entry for the key.
+   * @throws TomlInvalidTypeException If the entry holds a value of another type.
+   */
+  private int primitiveIndex(List<String> path, Object marker) {
+    int i = indexOf(path.get(path.size() - 1));
+    if (i >= 0 && values[i] != marker) {
+      throw new TomlInvalidTypeException(
+          "Value of '" + Toml.joinKeyPath(path) + "' is a " + TomlType.typeNameFor(value(i)));
+    }
+    return i;
+  }
+
+  @Nullable
+  private FrozenTomlTable parentOf(List<String> path) {
+    FrozenTomlTable table = this;
+    int depth = path.size();
+    for (int i = 0; i < (depth - 1); ++i) {
+      int entry = table.indexOf(path.get(i));
+      if (entry < 0 || !(table.values[entry] instanceof FrozenTomlTable)) {
+        return null;
+      }
+      table = (FrozenTomlTable) table.values[entry];
+    }
+    return table;
+  }
+
+  /**
+   * @return The number of leaf values in this table and all its sub-tables, which is counted on first use.
+   */
+  long leafCount() {
+    int count = leafCount;
+    if (count == 0) {
+      long leaves = 0;
+      for (Object value : values) {
+        leaves += TomlTraversal.leafCount(value);
+      }
+      if (leaves >= Integer.MAX_VALUE) {
+        return leaves;
+      }
+      count = (int) leaves + 1;
+      leafCount = count;
+    }
+    return count - 1L;
+  }
+
+  /**
+   * @return The number of leaf values in this table and all its sub-tables, or {@code -1} if they have not been
+   *         counted yet.
+   */
+  long cachedLeafCount() {
+    return leafCount - 1L;
+  }
+
+  @Override
+  public void forEach(BiConsumer<String, Object> action) {
+    requireNonNull(action);
+    for (int i = 0; i < keys.length; ++i) {
+      action.accept(keys[i], value(i));
+    }
+  }
+
+  @Override
+  public Map<String, Object> toMap() {
+    return new AbstractMap<String, Object>() {
+      @Override
+      public Set<Map.Entry<String, Object>> entrySet() {
+        return FrozenTomlTable.this.entrySet();
+      }
+
+      @Override
+      public Set<String> keySet() {
+        return FrozenTomlTable.this.keySet();
+      }
+
+      @Override
+      public int size() {
+        return keys.length;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return (key instanceof String) && indexOf((String) key) >= 0;
+      }
+
+      @Override
+      @Nullable
+      public Object get(Object key) {
+        int i = (key instanceof String) ? indexOf((String) key) : -1;
+        return (i >= 0) ? value(i) : null;
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof FrozenTomlTable)) {
+      return (obj instanceof TomlTable) && Toml.equals(this, (TomlTable) obj);
+    }
+    FrozenTomlTable other = (FrozenTomlTable) obj;
+    if (keys.length != other.keys.length || (hash != 0 && other.hash != 0 && hash != other.hash)) {
+      return false;
+    }
+    for (int i = 0; i < keys.length; ++i) {
+      int j = other.indexOf(keys[i]);
+      if (j < 0) {
+        return false;
+      }
+      Object value = values[i];
+      if (value == LONG_VALUE || value == DOUBLE_VALUE) {
+        if (other.values[j] != value || !sameBits(value, primitives[i], other.primitives[j])) {
+          return false;
+        }
+      } else if (!Toml.valuesEqual(value, other.values[j])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean sameBits(Object marker, long bits1, long bits2) {
+    if (marker == LONG_VALUE) {
+      return bits1 == bits2;
+    }
+    // compare as Double.equals does, treating all NaNs as equal
+    return Double.doubleToLongBits(Double.longBitsToDouble(bits1)) == Double
+        .doubleToLongBits(Double.longBitsToDouble(bits2));
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      for (int i = 0; i < keys.length; ++i) {
+        Object value = values[i];
+        int valueHash;
+        if (value == LONG_VALUE) {
+          valueHash = Long.hashCode(primitives[i]);
+        } else if (value == DOUBLE_VALUE) {
+          valueHash = Double.hashCode(Double.longBitsToDouble(primitives[i]));
+        } else {
+          valueHash = Toml.hashOf(value);
+        }
+        h += keys[i].hashCode() ^ valueHash;
+      }
+      hash = h;
+    }
+    return h;
+  }
+
+  void measure(TomlMemoryStats.Builder stats) {
+    int size = keys.length;
+    long bytes = TomlMemoryStats.objectSize(5, 4);
+    if (size > 0) {
+      bytes += 2 * TomlMemoryStats.arraySize(size, 0);
+      stats.positions(TomlMemoryStats.arraySize(size, 8));
+    }
+    if (primitives != null) {
+      bytes += TomlMemoryStats.arraySize(size, 8);
+    }
+    if (index != null) {
+      bytes += TomlMemoryStats.arraySize(index.length, 4);
+    }
+    stats.table(bytes);
+    for (int i = 0; i < size; ++i) {
+      stats.string(keys[i]);
+      if (values[i] != LONG_VALUE && values[i] != DOUBLE_VALUE) {
+        stats.value(values[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over the leaf values of a table and all its sub-tables, depth-first.
+ *
+ * <p>
+ * The spliterator splits the range of keys of a table in two, so that each part holds about half of the leaves, and
+ * descends into a sub-table when only that sub-table remains. Splits are exactly sized, using the leaf counts of the
+ * sub-tables (which frozen tables cache).
+ *
+ * <p>
+ * Leaves are only counted when a size is needed, so a short-circuiting traversal does not walk the whole table. So the
+ * spliterator of a table is only {@link #SIZED} if the table has already counted its leaves, while the parts split
+ * from it always are.
+ */
+final class LeafSpliterator implements Spliterator<Map.Entry<List<String>, Object>> {
+
+  /**
+   * A range of the entries of a table.
+   */
+  private static final class Frame {
+    final List<String> path;
+    final String[] keys;
+    final Object[] values;
+    int index;
+    final int end;
+
+    Frame(List<String> path, String[] keys, Object[] values, int index, int end) {
+      this.path = path;
+      this.keys = keys;
+      this.values = values;
+      this.index = index;
+      this.end = end;
+    }
+
+    static Frame of(TomlTable table, List<String> path) {
+      // sized from the entries, which may differ from size() if the table is not immutable
+      List<String> keys = new ArrayList<>();
+      List<Object> values = new ArrayList<>();
+      for (Map.Entry<String, Object> entry : table.entrySet()) {
+        keys.add(entry.getKey());
+        values.add(entry.getValue());
+      }
+      return new Frame(path, keys.toArray(new String[0]), values.toArray(), 0, keys.size());
+    }
+
+    long leafCount() {
+      long leaves = 0;
+      for (int i = index; i < end; ++i) {
+        leaves += TomlTraversal.leafCount(values[i]);
+      }
+      return leaves;
+    }
+
+    List<String> pathTo(int i) {
+      List<String> result = new ArrayList<>(path.size() + 1);
+      result.addAll(path);
+      result.add(keys[i]);
+      return result;
+    }
+  }
+
+  // the frames being traversed, with the innermost first
+  private final Deque<Frame> stack = new ArrayDeque<>();
+  // the number of leaves remaining, or -1 until they are counted
+  private long remaining;
+  // whether the leaves were counted when the spliterator was created, which fixes its characteristics
+  private final boolean sized;
+
+  private LeafSpliterator(Frame frame, long remaining) {
+    stack.push(frame);
+    this.remaining = remaining;
+    this.sized = remaining >= 0;
+  }
+
+  static LeafSpliterator of(TomlTable table) {
+    long leaves = (table instanceof FrozenTomlTable) ? ((FrozenTomlTable) table).cachedLeafCount() : -1;
+    return new LeafSpliterator(Frame.of(table, new ArrayList<>()), leaves);
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Map.Entry<List<String>, Object>> action) {
+    while (!stack.isEmpty()) {
+      Frame frame = stack.peek();
+      if (frame.index == frame.end) {
+        stack.pop();
+        continue;
+      }
+      int i = frame.index++;
+      Object value = frame.values[i];
+      if (value instanceof TomlTable) {
+        stack.push(Frame.of((TomlTable) value, frame.pathTo(i)));
+        continue;
+      }
+      if (remaining > 0) {
+        --remaining;
+      }
+      action.accept(new AbstractMap.SimpleImmutableEntry<>(frame.pathTo(i), value));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Spliterator<Map.Entry<List<String>, Object>> trySplit() {
+    // only split before descending, so the prefix can be handed off as a range of a single table
+    if (stack.size() != 1) {
+      return null;
+    }
+    Frame frame = stack.peek();
+    while (frame.end - frame.index == 1 && frame.values[frame.index] instanceof TomlTable) {
+      Frame child = Frame.of((TomlTable) frame.values[frame.index], frame.pathTo(frame.index));
+      stack.pop();
+      stack.push(child);
+      frame = child;
+    }
+    if (frame.end - frame.index < 2) {
+      return null;
+    }
+    long half = estimateSize() / 2;
+    int mid = frame.index;
+    long leaves = TomlTraversal.leafCount(frame.values[mid++]);
+    while (mid < frame.end - 1) {
+      long next = TomlTraversal.leafCount(frame.values[mid]);
+      if (leaves + next > half) {
+        break;
+      }
+      leaves += next;
+      ++mid;
+    }
+    Frame prefix = new Frame(frame.path, frame.keys, frame.values, frame.index, mid);
+    frame.index = mid;
+    remaining -= leaves;
+    return new LeafSpliterator(prefix, leaves);
+  }
+
+  @Override
+  public long estimateSize() {
+    if (remaining < 0) {
+      long leaves = 0;
+      for (Frame frame : stack) {
+        leaves += frame.leafCount();
+      }
+      remaining = leaves;
+    }
+    return remaining;
+  }
+
+  @Override
+  public int characteristics() {
+    return sized ? ORDERED | SIZED | SUBSIZED | NONNULL : ORDERED | NONNULL;
+  }
+}
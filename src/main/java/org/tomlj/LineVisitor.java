@@ -19,6 +19,8 @@ import org.tomlj.internal.TomlParserBaseVisitor;
 
 import java.util.*;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 final class LineVisitor extends TomlParserBaseVisitor<MutableTomlTable> {
 
   private final TomlVersion version;
@@ -26,20 +28,31 @@ final class LineVisitor extends TomlParserBaseVisitor<MutableTomlTable> {
   private final MutableTomlTable rootTable;
   private MutableTomlTable currentTable;
   private final Map<MutableTomlTable, TomlPosition> openTables;
+  @Nullable
+  private final Projection projection;
+  private List<String> currentPath;
+  private boolean skipping;
 
   LineVisitor(TomlVersion version, ErrorReporter errorReporter) {
+    this(version, errorReporter, null);
+  }
+
+  LineVisitor(TomlVersion version, ErrorReporter errorReporter, @Nullable Projection projection) {
     this.version = version;
     this.errorReporter = errorReporter;
     this.rootTable = new MutableTomlTable(version, TomlPosition.positionAt(1, 1));
     this.currentTable = rootTable;
     this.openTables = new HashMap<>();
+    this.projection = projection;
+    this.currentPath = Collections.emptyList();
+    this.skipping = false;
   }
 
   @Override
   public MutableTomlTable visitKeyval(TomlParser.KeyvalContext ctx) {
     TomlParser.KeyContext keyContext = ctx.key();
     TomlParser.ValContext valContext = ctx.val();
-    if (keyContext == null || valContext == null) {
+    if (keyContext == null || valContext == null || skipping) {
       return rootTable;
     }
     try {
@@ -51,6 +64,9 @@ final class LineVisitor extends TomlParserBaseVisitor<MutableTomlTable> {
       if (!version.after(V0_4_0) && path.size() > 1) {
         throw new TomlParseError("Dotted keys are not supported", new TomlPosition(keyContext));
       }
+      if (projection != null && !projection.includes(currentPath, path)) {
+        return rootTable;
+      }
       Object value = valContext.accept(new ValueVisitor(version));
       if (value != null) {
         currentTable
@@ -76,6 +92,11 @@ final class LineVisitor extends TomlParserBaseVisitor<MutableTomlTable> {
     if (path == null) {
       return rootTable;
     }
+    currentPath = path;
+    skipping = projection != null && !projection.includes(path);
+    if (skipping) {
+      return rootTable;
+    }
     try {
       currentTable = rootTable.createTable(path, new TomlPosition(ctx));
     } catch (TomlParseError e) {
@@ -96,6 +117,11 @@ final class LineVisitor extends TomlParserBaseVisitor<MutableTomlTable> {
     if (path == null) {
       return rootTable;
     }
+    currentPath = path;
+    skipping = projection != null && !projection.includes(path);
+    if (skipping) {
+      return rootTable;
+    }
     try {
       currentTable = rootTable.createTableArray(path, new TomlPosition(ctx));
     } catch (TomlParseError e) {
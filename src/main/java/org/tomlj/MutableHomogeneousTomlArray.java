@@ -23,6 +23,11 @@ final class MutableHomogeneousTomlArray extends MutableTomlArray {
     super(tableArray);
   }
 
+  @Override
+  boolean isHomogeneous() {
+    return true;
+  }
+
   @Override
   public boolean containsStrings() {
     return type == null || type == TomlType.STRING;
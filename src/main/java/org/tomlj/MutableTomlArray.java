@@ -16,6 +16,7 @@ import static org.tomlj.TomlVersion.V0_5_0;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 class MutableTomlArray implements TomlArray {
@@ -49,6 +50,10 @@ class MutableTomlArray implements TomlArray {
     return isTableArray;
   }
 
+  boolean isHomogeneous() {
+    return false;
+  }
+
   @Override
   public boolean containsStrings() {
     throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
@@ -132,6 +137,19 @@ class MutableTomlArray implements TomlArray {
     return this;
   }
 
+  TomlArray freeze(Map<String, String> keyPool) {
+    int size = elements.size();
+    Object[] values = new Object[size];
+    long[] positions = new long[size];
+    for (int i = 0; i < size; ++i) {
+      Element element = elements.get(i);
+      values[i] = FrozenTomlTable.freezeValue(element.value, keyPool);
+      positions[i] = TomlPosition.pack(element.position);
+    }
+    TomlArray primitiveArray = PrimitiveTomlArray.of(values, positions, isHomogeneous());
+    return (primitiveArray != null) ? primitiveArray : new FrozenTomlArray(values, positions, isHomogeneous());
+  }
+
   @Override
   public List<Object> toList() {
     return elements.stream().map(e -> e.value).collect(Collectors.toList());
@@ -12,18 +12,22 @@
  */
 package org.tomlj;
 
+import static java.util.Objects.requireNonNull;
 import static org.tomlj.Parser.parseDottedKey;
 import static org.tomlj.TomlType.typeFor;
 
 import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -75,7 +79,7 @@ final class MutableTomlTable implements TomlTable {
 
   @Override
   public Set<String> keySet() {
-    return properties.keySet();
+    return Collections.unmodifiableSet(properties.keySet());
   }
 
   @Override
@@ -106,11 +110,37 @@ final class MutableTomlTable implements TomlTable {
 
   @Override
   public Set<Entry<String, Object>> entrySet() {
-    return properties
-        .entrySet()
-        .stream()
-        .map(entry -> new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().value))
-        .collect(Collectors.toCollection(LinkedHashSet::new));
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        Iterator<Entry<String, Element>> iterator = properties.entrySet().iterator();
+        return new Iterator<Entry<String, Object>>() {
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public Entry<String, Object> next() {
+            Entry<String, Element> entry = iterator.next();
+            return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().value);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return properties.size();
+      }
+    };
+  }
+
+  @Override
+  public void forEach(BiConsumer<String, Object> action) {
+    requireNonNull(action);
+    for (Entry<String, Element> entry : properties.entrySet()) {
+      action.accept(entry.getKey(), entry.getValue().value);
+    }
   }
 
   @Override
@@ -181,7 +211,56 @@ final class MutableTomlTable implements TomlTable {
 
   @Override
   public Map<String, Object> toMap() {
-    return properties.entrySet().stream().collect(Collectors.toMap(Entry::getKey, e -> e.getValue().value));
+    return new AbstractMap<String, Object>() {
+      @Override
+      public Set<Entry<String, Object>> entrySet() {
+        return MutableTomlTable.this.entrySet();
+      }
+
+      @Override
+      public Set<String> keySet() {
+        return MutableTomlTable.this.keySet();
+      }
+
+      @Override
+      public int size() {
+        return properties.size();
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return properties.containsKey(key);
+      }
+
+      @Override
+      @Nullable
+      public Object get(Object key) {
+        Element element = properties.get(key);
+        return (element != null) ? element.value : null;
+      }
+    };
+  }
+
+  /**
+   * Create an immutable copy of this table, and of all the tables and arrays it contains.
+   *
+   * @param keyPool A pool used to share identical key strings between tables.
+   * @return An immutable copy of this table.
+   */
+  FrozenTomlTable freeze(Map<String, String> keyPool) {
+    int size = properties.size();
+    String[] keys = new String[size];
+    Object[] values = new Object[size];
+    long[] positions = new long[size];
+    int i = 0;
+    for (Map.Entry<String, Element> entry : properties.entrySet()) {
+      String key = entry.getKey();
+      keys[i] = keyPool.computeIfAbsent(key, k -> k);
+      values[i] = FrozenTomlTable.freezeValue(entry.getValue().value, keyPool);
+      positions[i] = TomlPosition.pack(entry.getValue().position);
+      ++i;
+    }
+    return new FrozenTomlTable(keys, values, positions);
   }
 
   MutableTomlTable createTable(List<String> path, TomlPosition position) {
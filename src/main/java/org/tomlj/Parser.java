@@ -15,9 +15,8 @@ package org.tomlj;
 import org.tomlj.internal.TomlLexer;
 import org.tomlj.internal.TomlParser;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
@@ -29,67 +28,18 @@ final class Parser {
   private Parser() {}
 
   static TomlParseResult parse(CharStream stream, TomlVersion version) {
+    return parse(stream, version, null);
+  }
+
+  static TomlParseResult parse(CharStream stream, TomlVersion version, @Nullable Projection projection) {
     TomlLexer lexer = new TomlLexer(stream);
     TomlParser parser = new TomlParser(new CommonTokenStream(lexer));
     parser.removeErrorListeners();
     AccumulatingErrorListener errorListener = new AccumulatingErrorListener();
     parser.addErrorListener(errorListener);
     ParseTree tree = parser.toml();
-    TomlTable table = tree.accept(new LineVisitor(version, errorListener));
-
-    return new TomlParseResult() {
-      @Override
-      public int size() {
-        return table.size();
-      }
-
-      @Override
-      public boolean isEmpty() {
-        return table.isEmpty();
-      }
-
-      @Override
-      public Set<String> keySet() {
-        return table.keySet();
-      }
-
-      @Override
-      public Set<List<String>> keyPathSet(boolean includeTables) {
-        return table.keyPathSet(includeTables);
-      }
-
-      @Override
-      public Set<Map.Entry<String, Object>> entrySet() {
-        return table.entrySet();
-      }
-
-      @Override
-      public Set<Map.Entry<List<String>, Object>> entryPathSet(boolean includeTables) {
-        return table.entryPathSet(includeTables);
-      }
-
-      @Override
-      @Nullable
-      public Object get(List<String> path) {
-        return table.get(path);
-      }
-
-      @Override
-      @Nullable
-      public TomlPosition inputPositionOf(List<String> path) {
-        return table.inputPositionOf(path);
-      }
-
-      @Override
-      public Map<String, Object> toMap() {
-        return table.toMap();
-      }
-
-      @Override
-      public List<TomlParseError> errors() {
-        return errorListener.errors();
-      }
-    };
+    MutableTomlTable mutableTable = tree.accept(new LineVisitor(version, errorListener, projection));
+    return new FrozenTomlParseResult(mutableTable.freeze(new HashMap<>()), errorListener.errors());
   }
 
   static List<String> parseDottedKey(String dottedKey) {
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable array supporting cheap updates.
+ *
+ * <p>
+ * Elements are held in the leaves of a 32-way trie, so {@link #with(int, Object)} and {@link #append(Object)} copy
+ * only the path to the affected leaf, costing {@code O(log n)} time and memory. All tables and arrays held by a
+ * persistent array are themselves persistent.
+ *
+ * @see PersistentTomlTable
+ */
+public final class PersistentTomlArray implements TomlArray {
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+  private static final PersistentTomlArray EMPTY = new PersistentTomlArray(null, 0, 0);
+
+  private static final class Leaf {
+    final Object[] values;
+    final long[] positions;
+
+    Leaf(Object[] values, long[] positions) {
+      this.values = values;
+      this.positions = positions;
+    }
+  }
+
+  // a Leaf when shift is 0, otherwise an Object[] of child nodes
+  private final @Nullable Object root;
+  private final int size;
+  private final int shift;
+  // the structural hash code, computed on first use
+  private int hash;
+
+  private PersistentTomlArray(@Nullable Object root, int size, int shift) {
+    this.root = root;
+    this.size = size;
+    this.shift = shift;
+  }
+
+  /**
+   * @return An empty array.
+   */
+  public static PersistentTomlArray empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Create a persistent copy of an array.
+   *
+   * @param array The array to copy.
+   * @return A persistent array holding the same values and input positions. If {@code array} is already persistent,
+   *         it is returned unchanged.
+   */
+  public static PersistentTomlArray of(TomlArray array) {
+    requireNonNull(array);
+    if (array instanceof PersistentTomlArray) {
+      return (PersistentTomlArray) array;
+    }
+    PersistentTomlArray result = EMPTY;
+    for (int i = 0; i < array.size(); ++i) {
+      result = result.append(PersistentTomlTable.persist(array.get(i)), TomlPosition.pack(array.inputPositionOf(i)));
+    }
+    return result;
+  }
+
+  /**
+   * Append a value to a copy of this array.
+   *
+   * @param value The value, which must be of a TOML type (or an {@link Integer}).
+   * @return An array holding the elements of this array, followed by the value.
+   * @throws IllegalArgumentException If the value is not of a TOML type.
+   */
+  public PersistentTomlArray append(Object value) {
+    return append(PersistentTomlTable.persist(value), 0);
+  }
+
+  private PersistentTomlArray append(Object value, long position) {
+    if (root != null && size == (1 << (shift + BITS))) {
+      Object[] newRoot = new Object[] {root};
+      return new PersistentTomlArray(appendTo(newRoot, shift + BITS, size, value, position), size + 1, shift + BITS);
+    }
+    return new PersistentTomlArray(appendTo(root, shift, size, value, position), size + 1, shift);
+  }
+
+  private static Object appendTo(@Nullable Object node, int level, int index, Object value, long position) {
+    if (level == 0) {
+      Leaf leaf = (Leaf) node;
+      int i = index & MASK;
+      Object[] values = (leaf == null) ? new Object[1] : Arrays.copyOf(leaf.values, i + 1);
+      long[] positions = (leaf == null) ? new long[1] : Arrays.copyOf(leaf.positions, i + 1);
+      values[i] = value;
+      positions[i] = position;
+      return new Leaf(values, positions);
+    }
+    Object[] children = (Object[]) node;
+    int i = (index >>> level) & MASK;
+    int length = (children == null) ? 0 : children.length;
+    Object[] copy = (children == null) ? new Object[1] : Arrays.copyOf(children, Math.max(length, i + 1));
+    copy[i] = appendTo((i < length) ? children[i] : null, level - BITS, index, value, position);
+    return copy;
+  }
+
+  /**
+   * Replace a value in a copy of this array.
+   *
+   * @param index The index of the element to replace.
+   * @param value The value, which must be of a TOML type (or an {@link Integer}).
+   * @return An array holding the value at the index, and otherwise the same elements as this array.
+   * @throws IndexOutOfBoundsException If the index is out of range.
+   * @throws IllegalArgumentException If the value is not of a TOML type.
+   */
+  public PersistentTomlArray with(int index, Object value) {
+    checkIndex(index);
+    return set(index, PersistentTomlTable.persist(value), 0);
+  }
+
+  private PersistentTomlArray set(int index, Object value, long position) {
+    return new PersistentTomlArray(setIn(root, shift, index, value, position), size, shift);
+  }
+
+  private static Object setIn(@Nullable Object node, int level, int index, Object value, long position) {
+    if (level == 0) {
+      Leaf leaf = (Leaf) node;
+      assert leaf != null;
+      Object[] values = leaf.values.clone();
+      long[] positions = leaf.positions.clone();
+      values[index & MASK] = value;
+      positions[index & MASK] = position;
+      return new Leaf(values, positions);
+    }
+    Object[] children = ((Object[]) node).clone();
+    int i = (index >>> level) & MASK;
+    children[i] = setIn(children[i], level - BITS, index, value, position);
+    return children;
+  }
+
+  /**
+   * Remove a value from a copy of this array.
+   *
+   * <p>
+   * Removing the last element costs {@code O(log n)}, but removing any other element shifts the elements that follow
+   * it and costs {@code O(n)}.
+   *
+   * @param index The index of the element to remove.
+   * @return An array holding the elements of this array, without the element at the index.
+   * @throws IndexOutOfBoundsException If the index is out of range.
+   */
+  public PersistentTomlArray without(int index) {
+    checkIndex(index);
+    PersistentTomlArray result = withoutLast();
+    for (int i = index + 1; i < size; ++i) {
+      Leaf leaf = leafFor(i);
+      result = result.set(i - 1, leaf.values[i & MASK], leaf.positions[i & MASK]);
+    }
+    return result;
+  }
+
+  private PersistentTomlArray withoutLast() {
+    if (size == 1) {
+      return EMPTY;
+    }
+    // rebuild the path to the last leaf, dropping nodes left empty
+    Object newRoot = truncate(root, shift, size - 1);
+    int newShift = shift;
+    while (newShift > 0 && ((Object[]) newRoot).length == 1) {
+      newRoot = ((Object[]) newRoot)[0];
+      newShift -= BITS;
+    }
+    return new PersistentTomlArray(newRoot, size - 1, newShift);
+  }
+
+  // truncate a subtree to hold elements before the index (which is the last element of the subtree)
+  @Nullable
+  private static Object truncate(@Nullable Object node, int level, int index) {
+    if (level == 0) {
+      Leaf leaf = (Leaf) node;
+      assert leaf != null;
+      int length = index & MASK;
+      return (length == 0)
+          ? null
+          : new Leaf(Arrays.copyOf(leaf.values, length), Arrays.copyOf(leaf.positions, length));
+    }
+    Object[] children = (Object[]) node;
+    assert children != null;
+    int i = (index >>> level) & MASK;
+    Object child = truncate(children[i], level - BITS, index);
+    if (child == null) {
+      return (i == 0) ? null : Arrays.copyOf(children, i);
+    }
+    Object[] copy = children.clone();
+    copy[i] = child;
+    return copy;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  private Leaf leafFor(int index) {
+    checkIndex(index);
+    Object node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = ((Object[]) node)[(index >>> level) & MASK];
+    }
+    return (Leaf) node;
+  }
+
+  @Override
+  public boolean containsStrings() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public boolean containsLongs() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public boolean containsDoubles() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public boolean containsBooleans() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public boolean containsOffsetDateTimes() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public boolean containsLocalDateTimes() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public boolean containsLocalDates() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public boolean containsLocalTimes() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public boolean containsArrays() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public boolean containsTables() {
+    throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Object get(int index) {
+    return leafFor(index).values[index & MASK];
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(int index) {
+    return TomlPosition.unpack(leafFor(index).positions[index & MASK]);
+  }
+
+  @Override
+  public List<Object> toList() {
+    List<Object> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i += WIDTH) {
+      list.addAll(Arrays.asList(leafFor(i).values));
+    }
+    return list;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof TomlArray) && Toml.equals(this, (TomlArray) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = Toml.hashCode(this);
+      hash = h;
+    }
+    return h;
+  }
+}
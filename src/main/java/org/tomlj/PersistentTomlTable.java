@@ -0,0 +1,662 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable table supporting cheap updates.
+ *
+ * <p>
+ * Updating a persistent table returns a new table, leaving the original unchanged. The new table shares every subtree
+ * that the update did not touch with the original, so an update to a key at depth {@code d} in tables of {@code n}
+ * keys costs {@code O(d log n)} time and memory, however large the document is:
+ *
+ * <pre>{@code
+ * PersistentTomlTable base = PersistentTomlTable.of(Toml.parse(source));
+ * PersistentTomlTable tenant = base.with("limits.requests-per-second", 500).without("debug");
+ * }</pre>
+ *
+ * <p>
+ * All tables and arrays held by a persistent table are themselves persistent. Keys are kept in insertion order, and a
+ * key that is replaced keeps its place. Values added by an update have no input position.
+ */
+public final class PersistentTomlTable implements TomlTable {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  private static final PersistentTomlTable EMPTY = new PersistentTomlTable(null, 0, 0);
+
+  private static final class Element {
+    final String key;
+    final int hash;
+    final Object value;
+    final long position;
+    // the order in which the key was first added to the table
+    final long ordinal;
+
+    Element(String key, int hash, Object value, long position, long ordinal) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.position = position;
+      this.ordinal = ordinal;
+    }
+  }
+
+  /**
+   * A node of the hash array mapped trie. Each slot holds an {@link Element}, a child {@code Node}, or an
+   * {@code Element[]} of entries whose keys have the same hash.
+   */
+  private static final class Node {
+    final int bitmap;
+    final Object[] slots;
+
+    Node(int bitmap, Object[] slots) {
+      this.bitmap = bitmap;
+      this.slots = slots;
+    }
+  }
+
+  private final @Nullable Node root;
+  private final int size;
+  private final long nextOrdinal;
+  // entries in insertion order, built on first iteration
+  private volatile Element @Nullable [] ordered;
+  // the structural hash code, computed on first use
+  private int hash;
+
+  private PersistentTomlTable(@Nullable Node root, int size, long nextOrdinal) {
+    this.root = root;
+    this.size = size;
+    this.nextOrdinal = nextOrdinal;
+  }
+
+  /**
+   * @return An empty table.
+   */
+  public static PersistentTomlTable empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Create a persistent copy of a table.
+   *
+   * @param table The table to copy.
+   * @return A persistent table holding the same keys, values and input positions. If {@code table} is already
+   *         persistent, it is returned unchanged.
+   */
+  public static PersistentTomlTable of(TomlTable table) {
+    requireNonNull(table);
+    if (table instanceof PersistentTomlTable) {
+      return (PersistentTomlTable) table;
+    }
+    PersistentTomlTable result = EMPTY;
+    for (String key : table.keySet()) {
+      List<String> path = Collections.singletonList(key);
+      Object value = table.get(path);
+      assert value != null;
+      result = result.put(key, persist(value), TomlPosition.pack(table.inputPositionOf(path)));
+    }
+    return result;
+  }
+
+  /**
+   * Convert a value to the form held by persistent tables and arrays.
+   *
+   * @throws IllegalArgumentException If the value is not of a TOML type.
+   */
+  static Object persist(Object value) {
+    requireNonNull(value);
+    if (value instanceof Integer) {
+      return ((Integer) value).longValue();
+    }
+    if (value instanceof TomlTable) {
+      return of((TomlTable) value);
+    }
+    if (value instanceof TomlArray) {
+      return PersistentTomlArray.of((TomlArray) value);
+    }
+    if (!TomlType.typeFor(value).isPresent()) {
+      throw new IllegalArgumentException("Unsupported type " + value.getClass().getSimpleName());
+    }
+    return value;
+  }
+
+  /**
+   * Set a value in a copy of this table.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @param value The value, which must be of a TOML type (or an {@link Integer}).
+   * @return A table holding the value at the key, and otherwise the same entries as this table. Missing intermediate
+   *         tables are created.
+   * @throws IllegalArgumentException If the dotted key cannot be parsed, if an intermediate key holds a value that is
+   *         not a table, or if the value is not of a TOML type.
+   */
+  public PersistentTomlTable with(String dottedKey, Object value) {
+    requireNonNull(dottedKey);
+    return with(Toml.parseDottedKey(dottedKey), value);
+  }
+
+  /**
+   * Set a value in a copy of this table.
+   *
+   * @param path The key path.
+   * @param value The value, which must be of a TOML type (or an {@link Integer}).
+   * @return A table holding the value at the path, and otherwise the same entries as this table. Missing intermediate
+   *         tables are created.
+   * @throws IllegalArgumentException If the path is empty, if an intermediate key holds a value that is not a table,
+   *         or if the value is not of a TOML type.
+   */
+  public PersistentTomlTable with(List<String> path, Object value) {
+    requireNonNull(path);
+    if (path.isEmpty()) {
+      throw new IllegalArgumentException("empty path");
+    }
+    return with(path, 0, persist(value), 0);
+  }
+
+  /**
+   * Set a value in a copy of this table, with the position it was defined at.
+   */
+  PersistentTomlTable with(List<String> path, Object value, @Nullable TomlPosition position) {
+    requireNonNull(path);
+    if (path.isEmpty()) {
+      throw new IllegalArgumentException("empty path");
+    }
+    return with(path, 0, persist(value), TomlPosition.pack(position));
+  }
+
+  private PersistentTomlTable with(List<String> path, int depth, Object value, long position) {
+    String key = path.get(depth);
+    Element entry = find(key);
+    if (depth == path.size() - 1) {
+      return put(key, value, position);
+    }
+    PersistentTomlTable table;
+    if (entry == null) {
+      table = EMPTY;
+    } else if (entry.value instanceof PersistentTomlTable) {
+      table = (PersistentTomlTable) entry.value;
+    } else {
+      throw new IllegalArgumentException(Toml.joinKeyPath(path.subList(0, depth + 1)) + " is not a table");
+    }
+    return put(key, table.with(path, depth + 1, value, position), (entry != null) ? entry.position : 0);
+  }
+
+  /**
+   * Remove a value from a copy of this table.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @return A table without the key, and otherwise the same entries as this table. If there is no value at the key,
+   *         this table is returned.
+   * @throws IllegalArgumentException If the dotted key cannot be parsed.
+   */
+  public PersistentTomlTable without(String dottedKey) {
+    requireNonNull(dottedKey);
+    return without(Toml.parseDottedKey(dottedKey));
+  }
+
+  /**
+   * Remove a value from a copy of this table.
+   *
+   * @param path The key path.
+   * @return A table without the path, and otherwise the same entries as this table. If there is no value at the path,
+   *         this table is returned.
+   * @throws IllegalArgumentException If the path is empty.
+   */
+  public PersistentTomlTable without(List<String> path) {
+    requireNonNull(path);
+    if (path.isEmpty()) {
+      throw new IllegalArgumentException("empty path");
+    }
+    return without(path, 0);
+  }
+
+  private PersistentTomlTable without(List<String> path, int depth) {
+    String key = path.get(depth);
+    Element entry = find(key);
+    if (entry == null) {
+      return this;
+    }
+    if (depth == path.size() - 1) {
+      Node newRoot = remove(root, 0, key, entry.hash);
+      return (newRoot == null) ? EMPTY : new PersistentTomlTable(newRoot, size - 1, nextOrdinal);
+    }
+    if (!(entry.value instanceof PersistentTomlTable)) {
+      return this;
+    }
+    PersistentTomlTable table = (PersistentTomlTable) entry.value;
+    PersistentTomlTable updated = table.without(path, depth + 1);
+    return (updated == table) ? this : put(key, updated, entry.position);
+  }
+
+  /**
+   * Merge another table into a copy of this table.
+   *
+   * <p>
+   * Tables present in both are merged recursively. Otherwise, values in {@code other} replace the values in this
+   * table. The cost is proportional to the size of {@code other}.
+   *
+   * @param other The table to merge.
+   * @return The merged table.
+   */
+  public PersistentTomlTable merge(TomlTable other) {
+    requireNonNull(other);
+    PersistentTomlTable result = this;
+    for (String key : other.keySet()) {
+      List<String> path = Collections.singletonList(key);
+      Object value = other.get(path);
+      assert value != null;
+      Element entry = result.find(key);
+      if (entry != null && entry.value instanceof PersistentTomlTable && value instanceof TomlTable) {
+        value = ((PersistentTomlTable) entry.value).merge((TomlTable) value);
+      } else {
+        value = persist(value);
+      }
+      result = result.put(key, value, TomlPosition.pack(other.inputPositionOf(path)));
+    }
+    return result;
+  }
+
+  private PersistentTomlTable put(String key, Object value, long position) {
+    int hash = spread(key.hashCode());
+    Element existing = find(key);
+    if (existing != null && existing.value == value && existing.position == position) {
+      return this;
+    }
+    long ordinal = (existing != null) ? existing.ordinal : nextOrdinal;
+    Element entry = new Element(key, hash, value, position, ordinal);
+    Node newRoot = (root == null) ? new Node(bit(hash, 0), new Object[] {entry}) : insert(root, 0, entry);
+    return (existing != null)
+        ? new PersistentTomlTable(newRoot, size, nextOrdinal)
+        : new PersistentTomlTable(newRoot, size + 1, nextOrdinal + 1);
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  private static int slotOf(Node node, int bit) {
+    return Integer.bitCount(node.bitmap & (bit - 1));
+  }
+
+  private static int hashOf(Object slot) {
+    return (slot instanceof Element) ? ((Element) slot).hash : ((Element[]) slot)[0].hash;
+  }
+
+  @Nullable
+  private Element find(String key) {
+    int hash = spread(key.hashCode());
+    Node node = root;
+    int shift = 0;
+    while (node != null) {
+      int bit = bit(hash, shift);
+      if ((node.bitmap & bit) == 0) {
+        return null;
+      }
+      Object slot = node.slots[slotOf(node, bit)];
+      if (slot instanceof Node) {
+        node = (Node) slot;
+        shift += BITS;
+        continue;
+      }
+      if (slot instanceof Element) {
+        Element entry = (Element) slot;
+        return entry.key.equals(key) ? entry : null;
+      }
+      for (Element entry : (Element[]) slot) {
+        if (entry.key.equals(key)) {
+          return entry;
+        }
+      }
+      return null;
+    }
+    return null;
+  }
+
+  private static Node insert(Node node, int shift, Element entry) {
+    int bit = bit(entry.hash, shift);
+    int i = slotOf(node, bit);
+    if ((node.bitmap & bit) == 0) {
+      Object[] slots = new Object[node.slots.length + 1];
+      System.arraycopy(node.slots, 0, slots, 0, i);
+      slots[i] = entry;
+      System.arraycopy(node.slots, i, slots, i + 1, node.slots.length - i);
+      return new Node(node.bitmap | bit, slots);
+    }
+    Object slot = node.slots[i];
+    Object replacement;
+    if (slot instanceof Node) {
+      replacement = insert((Node) slot, shift + BITS, entry);
+    } else if (hashOf(slot) != entry.hash) {
+      replacement = split(slot, entry, shift + BITS);
+    } else if (slot instanceof Element) {
+      Element existing = (Element) slot;
+      replacement = existing.key.equals(entry.key) ? entry : new Element[] {existing, entry};
+    } else {
+      Element[] collisions = (Element[]) slot;
+      int j = 0;
+      while (j < collisions.length && !collisions[j].key.equals(entry.key)) {
+        ++j;
+      }
+      Element[] copy = Arrays.copyOf(collisions, Math.max(collisions.length, j + 1));
+      copy[j] = entry;
+      replacement = copy;
+    }
+    Object[] slots = node.slots.clone();
+    slots[i] = replacement;
+    return new Node(node.bitmap, slots);
+  }
+
+  // create a node holding two slots whose hashes differ
+  private static Node split(Object slot, Element entry, int shift) {
+    int slotBit = bit(hashOf(slot), shift);
+    int entryBit = bit(entry.hash, shift);
+    if (slotBit == entryBit) {
+      return new Node(slotBit, new Object[] {split(slot, entry, shift + BITS)});
+    }
+    Object[] slots = (Integer.compareUnsigned(slotBit, entryBit) < 0)
+        ? new Object[] {slot, entry}
+        : new Object[] {entry, slot};
+    return new Node(slotBit | entryBit, slots);
+  }
+
+  @Nullable
+  private static Node remove(Node node, int shift, String key, int hash) {
+    int bit = bit(hash, shift);
+    int i = slotOf(node, bit);
+    Object slot = node.slots[i];
+    Object replacement;
+    if (slot instanceof Node) {
+      Node child = remove((Node) slot, shift + BITS, key, hash);
+      // pull a lone entry up into this node
+      replacement = (child != null && child.slots.length == 1 && !(child.slots[0] instanceof Node))
+          ? child.slots[0]
+          : child;
+    } else if (slot instanceof Element) {
+      replacement = null;
+    } else {
+      Element[] collisions = (Element[]) slot;
+      List<Element> remaining = new ArrayList<>(collisions.length - 1);
+      for (Element entry : collisions) {
+        if (!entry.key.equals(key)) {
+          remaining.add(entry);
+        }
+      }
+      replacement = (remaining.size() == 1) ? remaining.get(0) : remaining.toArray(new Element[0]);
+    }
+    if (replacement != null) {
+      Object[] slots = node.slots.clone();
+      slots[i] = replacement;
+      return new Node(node.bitmap, slots);
+    }
+    if (node.slots.length == 1) {
+      return null;
+    }
+    Object[] slots = new Object[node.slots.length - 1];
+    System.arraycopy(node.slots, 0, slots, 0, i);
+    System.arraycopy(node.slots, i + 1, slots, i, slots.length - i);
+    return new Node(node.bitmap & ~bit, slots);
+  }
+
+  private Element[] ordered() {
+    Element[] entries = ordered;
+    if (entries == null) {
+      List<Element> collected = new ArrayList<>(size);
+      if (root != null) {
+        collect(root, collected);
+      }
+      entries = collected.toArray(new Element[0]);
+      Arrays.sort(entries, Comparator.comparingLong(e -> e.ordinal));
+      ordered = entries;
+    }
+    return entries;
+  }
+
+  private static void collect(Node node, List<Element> entries) {
+    for (Object slot : node.slots) {
+      if (slot instanceof Node) {
+        collect((Node) slot, entries);
+      } else if (slot instanceof Element) {
+        entries.add((Element) slot);
+      } else {
+        entries.addAll(Arrays.asList((Element[]) slot));
+      }
+    }
+  }
+
+  @Nullable
+  private PersistentTomlTable parentOf(List<String> path) {
+    PersistentTomlTable table = this;
+    int depth = path.size();
+    for (int i = 0; i < (depth - 1); ++i) {
+      Element entry = table.find(path.get(i));
+      if (entry == null || !(entry.value instanceof PersistentTomlTable)) {
+        return null;
+      }
+      table = (PersistentTomlTable) entry.value;
+    }
+    return table;
+  }
+
+  @Nullable
+  private Element entryOf(List<String> path) {
+    PersistentTomlTable table = parentOf(path);
+    return (table != null) ? table.find(path.get(path.size() - 1)) : null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return new AbstractSet<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        Iterator<Map.Entry<String, Object>> entries = entrySet().iterator();
+        return new Iterator<String>() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public String next() {
+            return entries.next().getKey();
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return (o instanceof String) && find((String) o) != null;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Set<List<String>> keyPathSet(boolean includeTables) {
+    Set<List<String>> paths = new LinkedHashSet<>();
+    for (Element entry : ordered()) {
+      List<String> basePath = Collections.singletonList(entry.key);
+      if (!(entry.value instanceof TomlTable)) {
+        paths.add(basePath);
+        continue;
+      }
+      if (includeTables) {
+        paths.add(basePath);
+      }
+      for (List<String> subPath : ((TomlTable) entry.value).keyPathSet(includeTables)) {
+        List<String> path = new ArrayList<>(subPath.size() + 1);
+        path.add(entry.key);
+        path.addAll(subPath);
+        paths.add(path);
+      }
+    }
+    return paths;
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        Element[] entries = ordered();
+        return new Iterator<Map.Entry<String, Object>>() {
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < entries.length;
+          }
+
+          @Override
+          public Map.Entry<String, Object> next() {
+            if (next >= entries.length) {
+              throw new NoSuchElementException();
+            }
+            Element entry = entries[next++];
+            return new AbstractMap.SimpleImmutableEntry<>(entry.key, entry.value);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<List<String>, Object>> entryPathSet(boolean includeTables) {
+    Set<Map.Entry<List<String>, Object>> entries = new LinkedHashSet<>();
+    for (Element entry : ordered()) {
+      List<String> entryPath = Collections.singletonList(entry.key);
+      if (!(entry.value instanceof TomlTable)) {
+        entries.add(new AbstractMap.SimpleEntry<>(entryPath, entry.value));
+        continue;
+      }
+      if (includeTables) {
+        entries.add(new AbstractMap.SimpleEntry<>(entryPath, entry.value));
+      }
+      for (Map.Entry<List<String>, Object> subEntry : ((TomlTable) entry.value).entryPathSet(includeTables)) {
+        List<String> subPath = subEntry.getKey();
+        List<String> path = new ArrayList<>(subPath.size() + 1);
+        path.add(entry.key);
+        path.addAll(subPath);
+        entries.add(new AbstractMap.SimpleEntry<>(path, subEntry.getValue()));
+      }
+    }
+    return entries;
+  }
+
+  @Override
+  @Nullable
+  public Object get(List<String> path) {
+    if (path.isEmpty()) {
+      return this;
+    }
+    Element entry = entryOf(path);
+    return (entry != null) ? entry.value : null;
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(List<String> path) {
+    if (path.isEmpty()) {
+      return TomlPosition.positionAt(1, 1);
+    }
+    Element entry = entryOf(path);
+    return (entry != null) ? TomlPosition.unpack(entry.position) : null;
+  }
+
+  @Override
+  public Map<String, Object> toMap() {
+    return new AbstractMap<String, Object>() {
+      @Override
+      public Set<Map.Entry<String, Object>> entrySet() {
+        return PersistentTomlTable.this.entrySet();
+      }
+
+      @Override
+      public Set<String> keySet() {
+        return PersistentTomlTable.this.keySet();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return (key instanceof String) && find((String) key) != null;
+      }
+
+      @Override
+      @Nullable
+      public Object get(Object key) {
+        Element entry = (key instanceof String) ? find((String) key) : null;
+        return (entry != null) ? entry.value : null;
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof TomlTable) && Toml.equals(this, (TomlTable) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = Toml.hashCode(this);
+      hash = h;
+    }
+    return h;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A compact table of input positions.
+ *
+ * <p>
+ * Elements of large arrays commonly share a line, so when every position is on the same line only the columns are
+ * stored.
+ */
+final class PositionTable {
+
+  private final int line;
+  private final int @Nullable [] lines;
+  private final int[] columns;
+
+  private PositionTable(int line, int @Nullable [] lines, int[] columns) {
+    this.line = line;
+    this.lines = lines;
+    this.columns = columns;
+  }
+
+  /**
+   * Create a position table.
+   *
+   * @param packed Positions, packed by {@link TomlPosition#pack(TomlPosition)}.
+   * @return A position table.
+   */
+  static PositionTable of(long[] packed) {
+    int[] columns = new int[packed.length];
+    int line = (packed.length == 0) ? 0 : (int) (packed[0] >>> 32);
+    boolean singleLine = true;
+    for (int i = 0; i < packed.length; ++i) {
+      columns[i] = (int) packed[i];
+      singleLine &= ((int) (packed[i] >>> 32)) == line;
+    }
+    if (singleLine) {
+      return new PositionTable(line, null, columns);
+    }
+    int[] lines = new int[packed.length];
+    for (int i = 0; i < packed.length; ++i) {
+      lines[i] = (int) (packed[i] >>> 32);
+    }
+    return new PositionTable(0, lines, columns);
+  }
+
+  @Nullable
+  TomlPosition get(int index) {
+    int line = (lines == null) ? this.line : lines[index];
+    return TomlPosition.unpack(((long) line << 32) | (columns[index] & 0xFFFFFFFFL));
+  }
+
+  long measure() {
+    long bytes = TomlMemoryStats.objectSize(2, 4) + TomlMemoryStats.arraySize(columns.length, 4);
+    return (lines != null) ? bytes + TomlMemoryStats.arraySize(lines.length, 4) : bytes;
+  }
+}
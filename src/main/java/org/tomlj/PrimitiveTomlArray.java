@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable array of longs, doubles or booleans, held unboxed.
+ */
+abstract class PrimitiveTomlArray implements TomlArray {
+
+  private final PositionTable positions;
+  // whether the array was parsed under the homogeneous array rules of TOML 0.5.0 and earlier
+  private final boolean homogeneous;
+  // the structural hash code, computed on first use
+  private int hash;
+
+  PrimitiveTomlArray(long[] positions, boolean homogeneous) {
+    this.positions = PositionTable.of(positions);
+    this.homogeneous = homogeneous;
+  }
+
+  /**
+   * Create a primitive array holding the values, if they are all longs, all doubles or all booleans.
+   *
+   * @param values The values.
+   * @param positions The positions of the values, packed by {@link TomlPosition#pack(TomlPosition)}.
+   * @param homogeneous {@code true} if the array was parsed under the homogeneous array rules.
+   * @return A primitive array, or {@code null} if the values are not all of the same primitive type.
+   */
+  @Nullable
+  static PrimitiveTomlArray of(Object[] values, long[] positions, boolean homogeneous) {
+    if (values.length == 0) {
+      return null;
+    }
+    Class<?> type = values[0].getClass();
+    if (type != Long.class && type != Double.class && type != Boolean.class) {
+      return null;
+    }
+    for (Object value : values) {
+      if (value.getClass() != type) {
+        return null;
+      }
+    }
+    if (type == Long.class) {
+      long[] longs = new long[values.length];
+      for (int i = 0; i < values.length; ++i) {
+        longs[i] = (Long) values[i];
+      }
+      return new OfLong(longs, positions, homogeneous);
+    }
+    if (type == Double.class) {
+      double[] doubles = new double[values.length];
+      for (int i = 0; i < values.length; ++i) {
+        doubles[i] = (Double) values[i];
+      }
+      return new OfDouble(doubles, positions, homogeneous);
+    }
+    boolean[] booleans = new boolean[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      booleans[i] = (Boolean) values[i];
+    }
+    return new OfBoolean(booleans, positions, homogeneous);
+  }
+
+  abstract TomlType elementType();
+
+  abstract int elementHashCode(int index);
+
+  void measure(TomlMemoryStats.Builder stats) {
+    int elementBytes = (elementType() == TomlType.BOOLEAN) ? 1 : 8;
+    stats.array(TomlMemoryStats.objectSize(2, 5) + TomlMemoryStats.arraySize(size(), elementBytes));
+    stats.positions(positions.measure());
+  }
+
+  /**
+   * @return {@code true} if the other array is of the same primitive type and holds equal elements.
+   */
+  abstract boolean elementsEqual(PrimitiveTomlArray other);
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof PrimitiveTomlArray) {
+      return elementsEqual((PrimitiveTomlArray) obj);
+    }
+    return (obj instanceof TomlArray) && Toml.equals(this, (TomlArray) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = 1;
+      for (int i = 0; i < size(); ++i) {
+        h = 31 * h + elementHashCode(i);
+      }
+      hash = h;
+    }
+    return h;
+  }
+
+  boolean isHomogeneous() {
+    return homogeneous;
+  }
+
+  private boolean contains(TomlType type) {
+    if (!homogeneous) {
+      throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+    }
+    return elementType() == type;
+  }
+
+  @Override
+  public boolean containsStrings() {
+    return contains(TomlType.STRING);
+  }
+
+  @Override
+  public boolean containsLongs() {
+    return contains(TomlType.INTEGER);
+  }
+
+  @Override
+  public boolean containsDoubles() {
+    return contains(TomlType.FLOAT);
+  }
+
+  @Override
+  public boolean containsBooleans() {
+    return contains(TomlType.BOOLEAN);
+  }
+
+  @Override
+  public boolean containsOffsetDateTimes() {
+    return contains(TomlType.OFFSET_DATE_TIME);
+  }
+
+  @Override
+  public boolean containsLocalDateTimes() {
+    return contains(TomlType.LOCAL_DATE_TIME);
+  }
+
+  @Override
+  public boolean containsLocalDates() {
+    return contains(TomlType.LOCAL_DATE);
+  }
+
+  @Override
+  public boolean containsLocalTimes() {
+    return contains(TomlType.LOCAL_TIME);
+  }
+
+  @Override
+  public boolean containsArrays() {
+    return contains(TomlType.ARRAY);
+  }
+
+  @Override
+  public boolean containsTables() {
+    return contains(TomlType.TABLE);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    // primitive arrays are never created empty
+    return false;
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+    return positions.get(index);
+  }
+
+  @Override
+  public TomlType typeOf(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+    return elementType();
+  }
+
+  @Override
+  public List<Object> toList() {
+    List<Object> list = new ArrayList<>(size());
+    for (int i = 0; i < size(); ++i) {
+      list.add(get(i));
+    }
+    return list;
+  }
+
+  static final class OfLong extends PrimitiveTomlArray {
+    private final long[] values;
+
+    OfLong(long[] values, long[] positions, boolean homogeneous) {
+      super(positions, homogeneous);
+      this.values = values;
+    }
+
+    @Override
+    TomlType elementType() {
+      return TomlType.INTEGER;
+    }
+
+    @Override
+    int elementHashCode(int index) {
+      return Long.hashCode(values[index]);
+    }
+
+    @Override
+    boolean elementsEqual(PrimitiveTomlArray other) {
+      return (other instanceof OfLong) && Arrays.equals(values, ((OfLong) other).values);
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
+
+    @Override
+    public Object get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public long getLong(int index) {
+      return values[index];
+    }
+
+    @Override
+    public long[] toLongArray() {
+      return values.clone();
+    }
+
+    @Override
+    public LongStream longStream() {
+      return Arrays.stream(values);
+    }
+  }
+
+  static final class OfDouble extends PrimitiveTomlArray {
+    private final double[] values;
+
+    OfDouble(double[] values, long[] positions, boolean homogeneous) {
+      super(positions, homogeneous);
+      this.values = values;
+    }
+
+    @Override
+    TomlType elementType() {
+      return TomlType.FLOAT;
+    }
+
+    @Override
+    int elementHashCode(int index) {
+      return Double.hashCode(values[index]);
+    }
+
+    @Override
+    boolean elementsEqual(PrimitiveTomlArray other) {
+      return (other instanceof OfDouble) && Arrays.equals(values, ((OfDouble) other).values);
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
+
+    @Override
+    public Object get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public double getDouble(int index) {
+      return values[index];
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+      return values.clone();
+    }
+
+    @Override
+    public DoubleStream doubleStream() {
+      return Arrays.stream(values);
+    }
+  }
+
+  static final class OfBoolean extends PrimitiveTomlArray {
+    private final boolean[] values;
+
+    OfBoolean(boolean[] values, long[] positions, boolean homogeneous) {
+      super(positions, homogeneous);
+      this.values = values;
+    }
+
+    @Override
+    TomlType elementType() {
+      return TomlType.BOOLEAN;
+    }
+
+    @Override
+    int elementHashCode(int index) {
+      return Boolean.hashCode(values[index]);
+    }
+
+    @Override
+    boolean elementsEqual(PrimitiveTomlArray other) {
+      return (other instanceof OfBoolean) && Arrays.equals(values, ((OfBoolean) other).values);
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
+
+    @Override
+    public Object get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+      return values[index];
+    }
+
+    @Override
+    public boolean[] toBooleanArray() {
+      return values.clone();
+    }
+  }
+}
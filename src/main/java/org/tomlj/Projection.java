@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of wanted key paths, used to limit which values are materialized during a parse.
+ */
+final class Projection {
+
+  private final Map<String, Projection> children = new HashMap<>();
+  private boolean terminal;
+
+  private Projection() {}
+
+  static Projection of(Set<List<String>> wantedPaths) {
+    requireNonNull(wantedPaths);
+    Projection root = new Projection();
+    for (List<String> path : wantedPaths) {
+      requireNonNull(path);
+      Projection node = root;
+      for (String key : path) {
+        requireNonNull(key);
+        node = node.children.computeIfAbsent(key, k -> new Projection());
+      }
+      node.terminal = true;
+    }
+    return root;
+  }
+
+  /**
+   * Check if the value at a key path should be materialized.
+   *
+   * <p>
+   * A path is included if it is within a wanted subtree, or if it leads towards a wanted path.
+   *
+   * @param prefix The path of the enclosing table.
+   * @param path The path, relative to the enclosing table.
+   * @return {@code true} if the value at the path should be materialized.
+   */
+  boolean includes(List<String> prefix, List<String> path) {
+    Projection node = walk(this, prefix);
+    return node != null && (node.terminal || walk(node, path) != null);
+  }
+
+  boolean includes(List<String> path) {
+    return walk(this, path) != null;
+  }
+
+  private static Projection walk(Projection node, List<String> path) {
+    for (String key : path) {
+      if (node.terminal) {
+        return node;
+      }
+      node = node.children.get(key);
+      if (node == null) {
+        return null;
+      }
+    }
+    return node;
+  }
+}
@@ -0,0 +1,455 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Binds TOML tables to Java objects, using a binding plan that is computed once per class.
+ *
+ * <p>
+ * A class is bound either through its no-argument constructor followed by assignment of its non-final fields, or,
+ * when there is no such constructor, through the constructor with the most parameters (which requires the class to be
+ * compiled with {@code -parameters} so the parameter names are available). Field and parameter names are used as the
+ * TOML keys, unless a field is annotated with {@link TomlKey}.
+ */
+final class ReflectiveBinder<T> implements TomlBinder<T> {
+
+  private static final ClassValue<ReflectiveBinder<?>> BINDERS = new ClassValue<ReflectiveBinder<?>>() {
+    @Override
+    protected ReflectiveBinder<?> computeValue(Class<?> type) {
+      return new ReflectiveBinder<>(type);
+    }
+  };
+
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+  @SuppressWarnings("unchecked")
+  static <T> ReflectiveBinder<T> forClass(Class<T> type) {
+    return (ReflectiveBinder<T>) BINDERS.get(type);
+  }
+
+  private final Class<T> type;
+  private final MethodHandle constructor;
+  private final Property[] constructorProperties;
+  private final Property[] fieldProperties;
+  private volatile @Nullable Set<List<String>> keyPaths;
+
+  private ReflectiveBinder(Class<T> type) {
+    if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isArray() || type.isPrimitive()) {
+      throw new IllegalArgumentException("Cannot bind TOML to " + type.getName());
+    }
+    if (type.getEnclosingClass() != null && !Modifier.isStatic(type.getModifiers())) {
+      throw new IllegalArgumentException("Cannot bind TOML to non-static inner class " + type.getName());
+    }
+    this.type = type;
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    Constructor<?> selected = null;
+    for (Constructor<?> ctor : type.getDeclaredConstructors()) {
+      if (ctor.isSynthetic()) {
+        continue;
+      }
+      if (ctor.getParameterCount() == 0) {
+        selected = ctor;
+        break;
+      }
+      if (selected == null || ctor.getParameterCount() > selected.getParameterCount()) {
+        selected = ctor;
+      }
+    }
+    if (selected == null) {
+      throw new IllegalArgumentException("No constructor available for " + type.getName());
+    }
+
+    Parameter[] parameters = selected.getParameters();
+    this.constructorProperties = new Property[parameters.length];
+    for (int i = 0; i < parameters.length; ++i) {
+      Parameter parameter = parameters[i];
+      if (!parameter.isNamePresent()) {
+        throw new IllegalArgumentException(
+            "Constructor parameter names are not available for "
+                + type.getName()
+                + " (add a no-argument constructor, or compile with -parameters)");
+      }
+      constructorProperties[i] = new Property(
+          Collections.singletonList(parameter.getName()),
+          parameter.getParameterizedType(),
+          null);
+    }
+
+    List<Property> fields = new ArrayList<>();
+    if (parameters.length == 0) {
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (Modifier.isStatic(modifiers)
+              || Modifier.isFinal(modifiers)
+              || Modifier.isTransient(modifiers)
+              || field.isSynthetic()) {
+            continue;
+          }
+          field.setAccessible(true);
+          MethodHandle setter;
+          try {
+            setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+          } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access field " + field.getName() + " of " + type.getName(), e);
+          }
+          TomlKey key = field.getAnnotation(TomlKey.class);
+          List<String> keyPath =
+              (key != null) ? Toml.parseDottedKey(key.value()) : Collections.singletonList(field.getName());
+          fields.add(new Property(keyPath, field.getGenericType(), setter));
+        }
+      }
+    }
+    this.fieldProperties = fields.toArray(new Property[0]);
+
+    selected.setAccessible(true);
+    try {
+      this.constructor = lookup
+          .unreflectConstructor(selected)
+          .asSpreader(Object[].class, parameters.length)
+          .asType(CONSTRUCTOR_TYPE);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Cannot access constructor of " + type.getName(), e);
+    }
+  }
+
+  @Override
+  public Class<T> type() {
+    return type;
+  }
+
+  @Override
+  public Set<List<String>> keyPaths() {
+    Set<List<String>> paths = keyPaths;
+    if (paths == null) {
+      paths = new HashSet<>();
+      collectKeyPaths(Collections.emptyList(), paths, new HashSet<>());
+      paths = Collections.unmodifiableSet(paths);
+      keyPaths = paths;
+    }
+    return paths;
+  }
+
+  private void collectKeyPaths(List<String> prefix, Set<List<String>> paths, Set<Class<?>> visiting) {
+    if (!visiting.add(type)) {
+      // recursive type: read the whole subtree
+      paths.add(prefix);
+      return;
+    }
+    for (Property property : constructorProperties) {
+      property.collectKeyPaths(prefix, paths, visiting);
+    }
+    for (Property property : fieldProperties) {
+      property.collectKeyPaths(prefix, paths, visiting);
+    }
+    visiting.remove(type);
+  }
+
+  @Override
+  public T bind(TomlTable table) {
+    try {
+      return bindTable(table);
+    } catch (Mismatch e) {
+      throw e.toException();
+    }
+  }
+
+  // key paths are only assembled when a value has the wrong type, so binding allocates nothing for them
+  private T bindTable(TomlTable table) {
+    Object[] args = new Object[constructorProperties.length];
+    for (int i = 0; i < constructorProperties.length; ++i) {
+      Property property = constructorProperties[i];
+      Object value = table.get(property.keyPath);
+      args[i] = (value == null) ? property.defaultValue : property.read(value);
+    }
+    Object instance;
+    try {
+      instance = constructor.invokeExact(args);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Failed to construct " + type.getName(), e);
+    }
+    for (Property property : fieldProperties) {
+      Object value = table.get(property.keyPath);
+      if (value == null) {
+        continue;
+      }
+      Object converted = property.read(value);
+      try {
+        property.setter.invokeExact(instance, converted);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(
+            "Failed to set " + Toml.joinKeyPath(property.keyPath) + " on " + type.getName(),
+            e);
+      }
+    }
+    return type.cast(instance);
+  }
+
+  private static final class Property {
+    final List<String> keyPath;
+    final Type type;
+    final ValueReader reader;
+    final @Nullable Object defaultValue;
+    final @Nullable MethodHandle setter;
+
+    Property(List<String> keyPath, Type type, @Nullable MethodHandle setter) {
+      this.keyPath = keyPath;
+      this.type = type;
+      this.reader = readerFor(type);
+      this.defaultValue = defaultValueFor(type);
+      this.setter = setter;
+    }
+
+    Object read(Object value) {
+      try {
+        return reader.read(value);
+      } catch (Mismatch e) {
+        throw e.under(keyPath);
+      }
+    }
+
+    List<String> path(List<String> basePath) {
+      List<String> path = new ArrayList<>(basePath.size() + keyPath.size());
+      path.addAll(basePath);
+      path.addAll(keyPath);
+      return path;
+    }
+
+    void collectKeyPaths(List<String> prefix, Set<List<String>> paths, Set<Class<?>> visiting) {
+      List<String> path = path(prefix);
+      if (type instanceof Class && isBindable((Class<?>) type)) {
+        forClass((Class<?>) type).collectKeyPaths(path, paths, visiting);
+      } else {
+        paths.add(path);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface ValueReader {
+    Object read(Object value);
+  }
+
+  /**
+   * A value that cannot be bound, which collects its key path as it propagates out of the nested readers.
+   */
+  private static final class Mismatch extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String problem;
+    // the key path, innermost key first
+    private final List<String> reversedPath = new ArrayList<>();
+
+    Mismatch(String problem) {
+      // thrown and caught internally, so without a stack trace
+      super(problem, null, false, false);
+      this.problem = problem;
+    }
+
+    Mismatch under(String key) {
+      reversedPath.add(key);
+      return this;
+    }
+
+    Mismatch under(List<String> keys) {
+      for (int i = keys.size() - 1; i >= 0; --i) {
+        reversedPath.add(keys.get(i));
+      }
+      return this;
+    }
+
+    TomlInvalidTypeException toException() {
+      List<String> path = new ArrayList<>(reversedPath);
+      Collections.reverse(path);
+      return new TomlInvalidTypeException("Value of '" + Toml.joinKeyPath(path) + "' " + problem);
+    }
+  }
+
+  private static boolean isBindable(Class<?> type) {
+    return !type.isPrimitive()
+        && !type.isEnum()
+        && !type.isArray()
+        && !type.isInterface()
+        && !type.getName().startsWith("java.")
+        && !TomlTable.class.isAssignableFrom(type)
+        && !TomlArray.class.isAssignableFrom(type);
+  }
+
+  @Nullable
+  private static Object defaultValueFor(Type type) {
+    if (type == long.class) {
+      return 0L;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == double.class) {
+      return 0d;
+    } else if (type == float.class) {
+      return 0f;
+    } else if (type == boolean.class) {
+      return false;
+    }
+    return null;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static ValueReader readerFor(Type type) {
+    if (type instanceof WildcardType) {
+      Type[] upperBounds = ((WildcardType) type).getUpperBounds();
+      return readerFor(upperBounds.length == 0 ? Object.class : upperBounds[0]);
+    }
+    if (type instanceof ParameterizedType) {
+      ParameterizedType parameterized = (ParameterizedType) type;
+      Class<?> raw = (Class<?>) parameterized.getRawType();
+      Type[] arguments = parameterized.getActualTypeArguments();
+      if (raw == List.class || raw == Collection.class || raw == Iterable.class) {
+        ValueReader elementReader = readerFor(arguments[0]);
+        return value -> readList(value, elementReader);
+      }
+      if (raw == Map.class) {
+        if (arguments[0] != String.class) {
+          throw new IllegalArgumentException("Cannot bind TOML to a map with keys of type " + arguments[0]);
+        }
+        ValueReader valueReader = readerFor(arguments[1]);
+        return value -> readMap(value, valueReader);
+      }
+      return readerFor(raw);
+    }
+    if (!(type instanceof Class)) {
+      throw new IllegalArgumentException("Cannot bind TOML to " + type);
+    }
+    Class<?> clazz = (Class<?>) type;
+    if (clazz == String.class || clazz == CharSequence.class) {
+      return value -> cast(value, String.class);
+    } else if (clazz == long.class || clazz == Long.class) {
+      return value -> cast(value, Long.class);
+    } else if (clazz == int.class || clazz == Integer.class) {
+      return value -> intValue(cast(value, Long.class));
+    } else if (clazz == double.class || clazz == Double.class) {
+      return value -> (value instanceof Long) ? ((Long) value).doubleValue() : cast(value, Double.class);
+    } else if (clazz == float.class || clazz == Float.class) {
+      return value -> (value instanceof Long) ? ((Long) value).floatValue() : cast(value, Double.class).floatValue();
+    } else if (clazz == boolean.class || clazz == Boolean.class) {
+      return value -> cast(value, Boolean.class);
+    } else if (clazz == OffsetDateTime.class) {
+      return value -> cast(value, OffsetDateTime.class);
+    } else if (clazz == Instant.class) {
+      return value -> cast(value, OffsetDateTime.class).toInstant();
+    } else if (clazz == LocalDateTime.class) {
+      return value -> cast(value, LocalDateTime.class);
+    } else if (clazz == LocalDate.class) {
+      return value -> cast(value, LocalDate.class);
+    } else if (clazz == LocalTime.class) {
+      return value -> cast(value, LocalTime.class);
+    } else if (clazz == TomlTable.class) {
+      return value -> cast(value, TomlTable.class);
+    } else if (clazz == TomlArray.class) {
+      return value -> cast(value, TomlArray.class);
+    } else if (clazz == Object.class) {
+      return value -> value;
+    } else if (clazz.isEnum()) {
+      Class<? extends Enum> enumType = (Class<? extends Enum>) clazz;
+      return value -> enumValue(enumType, cast(value, String.class));
+    } else if (clazz == List.class || clazz == Collection.class || clazz == Iterable.class) {
+      return value -> readList(value, v -> v);
+    } else if (clazz == Map.class) {
+      return value -> readMap(value, v -> v);
+    } else if (isBindable(clazz)) {
+      // resolved lazily, as nested classes may refer back to the enclosing class
+      return value -> forClass(clazz).bindTable(cast(value, TomlTable.class));
+    }
+    throw new IllegalArgumentException("Cannot bind TOML to " + clazz.getName());
+  }
+
+  private static <V> V cast(Object value, Class<V> type) {
+    if (!type.isInstance(value)) {
+      throw new Mismatch("is a " + TomlType.typeNameFor(value));
+    }
+    return type.cast(value);
+  }
+
+  // as TomlBinders.intValue and enumValue, which generated binders use
+  private static int intValue(long value) {
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new Mismatch("is out of range for an int");
+    }
+    return (int) value;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Object enumValue(Class<? extends Enum> type, String value) {
+    try {
+      return Enum.valueOf(type, value);
+    } catch (IllegalArgumentException e) {
+      throw new Mismatch("is not a valid " + type.getSimpleName());
+    }
+  }
+
+  private static List<Object> readList(Object value, ValueReader elementReader) {
+    TomlArray array = cast(value, TomlArray.class);
+    int size = array.size();
+    List<Object> list = new ArrayList<>(size);
+    for (int i = 0; i < size; ++i) {
+      try {
+        list.add(elementReader.read(array.get(i)));
+      } catch (Mismatch e) {
+        throw e.under(Integer.toString(i));
+      }
+    }
+    return list;
+  }
+
+  private static Map<String, Object> readMap(Object value, ValueReader valueReader) {
+    TomlTable table = cast(value, TomlTable.class);
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> entry : table.entrySet()) {
+      try {
+        map.put(entry.getKey(), valueReader.read(entry.getValue()));
+      } catch (Mismatch e) {
+        throw e.under(entry.getKey());
+      }
+    }
+    return map;
+  }
+}
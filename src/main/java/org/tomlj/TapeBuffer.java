@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The bytes of a tape, addressed by long offsets.
+ *
+ * <p>
+ * Tapes of up to 2 GB are held in a single buffer. Larger tapes are split into segments of {@link #SEGMENT_SIZE}
+ * bytes (except the last), and the rare values that straddle two segments are read a byte at a time.
+ */
+final class TapeBuffer {
+
+  static final int SEGMENT_SHIFT = 30;
+  static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+  private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+  // the largest buffer that can be allocated on all VMs
+  private static final long MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+  private final ByteBuffer[] segments;
+  private final ByteBuffer first;
+  private final long size;
+
+  private TapeBuffer(ByteBuffer[] segments, long size) {
+    this.segments = segments;
+    this.first = segments[0];
+    this.size = size;
+  }
+
+  static TapeBuffer of(ByteBuffer buffer) {
+    return new TapeBuffer(new ByteBuffer[] {buffer.order(ByteOrder.LITTLE_ENDIAN)}, buffer.limit());
+  }
+
+  /**
+   * Allocate direct memory for a tape.
+   */
+  static TapeBuffer allocateDirect(long size) {
+    if (size <= MAX_BUFFER_SIZE) {
+      return of(ByteBuffer.allocateDirect((int) size));
+    }
+    ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+    for (int i = 0; i < segments.length; ++i) {
+      int length = (int) Math.min(SEGMENT_SIZE, size - ((long) i << SEGMENT_SHIFT));
+      segments[i] = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    return new TapeBuffer(segments, size);
+  }
+
+  /**
+   * Map a region of a file holding a tape.
+   */
+  static TapeBuffer map(FileChannel channel, long position, long size) throws IOException {
+    if (size <= MAX_BUFFER_SIZE) {
+      return of(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+    ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+    for (int i = 0; i < segments.length; ++i) {
+      long start = (long) i << SEGMENT_SHIFT;
+      long length = Math.min(SEGMENT_SIZE, size - start);
+      segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + start, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    return new TapeBuffer(segments, size);
+  }
+
+  long size() {
+    return size;
+  }
+
+  boolean isSingleBuffer() {
+    return segments.length == 1;
+  }
+
+  /**
+   * @return The single buffer holding the tape.
+   * @throws IllegalStateException If the tape is held in several segments.
+   */
+  ByteBuffer buffer() {
+    if (segments.length != 1) {
+      throw new IllegalStateException("TOML tape of " + size + " bytes is too large for a single buffer");
+    }
+    return first;
+  }
+
+  byte get(long offset) {
+    if (segments.length == 1) {
+      return first.get((int) offset);
+    }
+    return segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+  }
+
+  int getInt(long offset) {
+    if (segments.length == 1) {
+      return first.getInt((int) offset);
+    }
+    ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)];
+    int local = (int) (offset & SEGMENT_MASK);
+    if (local <= segment.limit() - 4) {
+      return segment.getInt(local);
+    }
+    return (int) getStraddling(offset, 4);
+  }
+
+  long getLong(long offset) {
+    if (segments.length == 1) {
+      return first.getLong((int) offset);
+    }
+    ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)];
+    int local = (int) (offset & SEGMENT_MASK);
+    if (local <= segment.limit() - 8) {
+      return segment.getLong(local);
+    }
+    return getStraddling(offset, 8);
+  }
+
+  // a tape held in a single buffer may be larger than a segment
+  private ByteBuffer segment(long offset) {
+    return (segments.length == 1) ? first : segments[(int) (offset >>> SEGMENT_SHIFT)];
+  }
+
+  private int local(long offset) {
+    return (segments.length == 1) ? (int) offset : (int) (offset & SEGMENT_MASK);
+  }
+
+  // read a little-endian number that straddles two segments
+  private long getStraddling(long offset, int bytes) {
+    long value = 0;
+    for (int i = bytes - 1; i >= 0; --i) {
+      value = (value << 8) | (get(offset + i) & 0xFF);
+    }
+    return value;
+  }
+
+  /**
+   * Copy bytes of the tape into an array.
+   */
+  void get(long offset, byte[] bytes) {
+    int copied = 0;
+    while (copied < bytes.length) {
+      long at = offset + copied;
+      ByteBuffer source = segment(at).duplicate();
+      source.position(local(at));
+      int length = Math.min(bytes.length - copied, source.remaining());
+      source.get(bytes, copied, length);
+      copied += length;
+    }
+  }
+
+  /**
+   * Copy bytes into the tape.
+   */
+  void put(long offset, ByteBuffer bytes) {
+    while (bytes.hasRemaining()) {
+      ByteBuffer target = segment(offset).duplicate();
+      target.position(local(offset));
+      int length = Math.min(bytes.remaining(), target.remaining());
+      ByteBuffer chunk = bytes.duplicate();
+      chunk.limit(chunk.position() + length);
+      target.put(chunk);
+      bytes.position(bytes.position() + length);
+      offset += length;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A flyweight view of an array held in a {@link TomlTape}, decoding values on access.
+ */
+final class TapeTomlArray implements TomlArray {
+
+  private final TomlTape tape;
+  private final long offset;
+
+  TapeTomlArray(TomlTape tape, long offset) {
+    this.tape = tape;
+    this.offset = offset;
+  }
+
+  boolean isHomogeneous() {
+    return tape.isHomogeneous(offset);
+  }
+
+  private boolean contains(byte type) {
+    if (!tape.isHomogeneous(offset)) {
+      throw new UnsupportedOperationException("Deprecated (after 0.5.0, arrays are heterogeneous)");
+    }
+    return tape.count(offset) == 0 || tape.arrayType(offset, 0) == type;
+  }
+
+  @Override
+  public boolean containsStrings() {
+    return contains(TomlTape.STRING);
+  }
+
+  @Override
+  public boolean containsLongs() {
+    return contains(TomlTape.INTEGER);
+  }
+
+  @Override
+  public boolean containsDoubles() {
+    return contains(TomlTape.FLOAT);
+  }
+
+  @Override
+  public boolean containsBooleans() {
+    return contains(TomlTape.BOOLEAN);
+  }
+
+  @Override
+  public boolean containsOffsetDateTimes() {
+    return contains(TomlTape.OFFSET_DATE_TIME);
+  }
+
+  @Override
+  public boolean containsLocalDateTimes() {
+    return contains(TomlTape.LOCAL_DATE_TIME);
+  }
+
+  @Override
+  public boolean containsLocalDates() {
+    return contains(TomlTape.LOCAL_DATE);
+  }
+
+  @Override
+  public boolean containsLocalTimes() {
+    return contains(TomlTape.LOCAL_TIME);
+  }
+
+  @Override
+  public boolean containsArrays() {
+    return contains(TomlTape.ARRAY);
+  }
+
+  @Override
+  public boolean containsTables() {
+    return contains(TomlTape.TABLE);
+  }
+
+  @Override
+  public int size() {
+    return tape.count(offset);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return tape.count(offset) == 0;
+  }
+
+  @Override
+  public Object get(int index) {
+    return tape.arrayValue(offset, checkIndex(index));
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(int index) {
+    return tape.arrayPosition(offset, checkIndex(index));
+  }
+
+  @Override
+  public TomlType typeOf(int index) {
+    return TomlType.ofTapeType(tape.arrayType(offset, checkIndex(index)));
+  }
+
+  @Override
+  public long getLong(int index) {
+    if (tape.arrayType(offset, checkIndex(index)) != TomlTape.INTEGER) {
+      throw new TomlInvalidTypeException(
+          "key at index " + index + " is a " + TomlType.typeNameFor(tape.arrayValue(offset, index)));
+    }
+    return tape.arrayPayload(offset, index);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    if (tape.arrayType(offset, checkIndex(index)) != TomlTape.FLOAT) {
+      throw new TomlInvalidTypeException(
+          "key at index " + index + " is a " + TomlType.typeNameFor(tape.arrayValue(offset, index)));
+    }
+    return Double.longBitsToDouble(tape.arrayPayload(offset, index));
+  }
+
+  private int checkIndex(int index) {
+    int size = tape.count(offset);
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+    return index;
+  }
+
+  @Override
+  public List<Object> toList() {
+    int size = tape.count(offset);
+    List<Object> list = new ArrayList<>(size);
+    for (int i = 0; i < size; ++i) {
+      list.add(tape.arrayValue(offset, i));
+    }
+    return list;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof TapeTomlArray && ((TapeTomlArray) obj).tape == tape && ((TapeTomlArray) obj).offset == offset) {
+      return true;
+    }
+    return (obj instanceof TomlArray) && Toml.equals(this, (TomlArray) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return Toml.hashCode(this);
+  }
+}
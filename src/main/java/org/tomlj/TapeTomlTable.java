@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A flyweight view of a table held in a {@link TomlTape}, decoding values on access.
+ */
+final class TapeTomlTable implements TomlTable {
+
+  private final TomlTape tape;
+  private final long offset;
+
+  TapeTomlTable(TomlTape tape, long offset) {
+    this.tape = tape;
+    this.offset = offset;
+  }
+
+  @Override
+  public int size() {
+    return tape.count(offset);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return tape.count(offset) == 0;
+  }
+
+  private abstract class EntryIterator<T> implements Iterator<T> {
+    private final int size = tape.count(offset);
+    private int next;
+
+    @Override
+    public boolean hasNext() {
+      return next < size;
+    }
+
+    @Override
+    public T next() {
+      if (next >= size) {
+        throw new NoSuchElementException();
+      }
+      return entry(next++);
+    }
+
+    abstract T entry(int i);
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return new AbstractSet<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        return new EntryIterator<String>() {
+          @Override
+          String entry(int i) {
+            return tape.key(offset, i);
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return (o instanceof String) && tape.indexOf(offset, (String) o) >= 0;
+      }
+
+      @Override
+      public int size() {
+        return tape.count(offset);
+      }
+    };
+  }
+
+  @Override
+  public Set<List<String>> keyPathSet(boolean includeTables) {
+    Set<List<String>> paths = new LinkedHashSet<>();
+    for (Map.Entry<List<String>, Object> entry : entryPathSet(includeTables)) {
+      paths.add(entry.getKey());
+    }
+    return paths;
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        return new EntryIterator<Map.Entry<String, Object>>() {
+          @Override
+          Map.Entry<String, Object> entry(int i) {
+            return new AbstractMap.SimpleImmutableEntry<>(tape.key(offset, i), tape.tableValue(offset, i));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return tape.count(offset);
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<List<String>, Object>> entryPathSet(boolean includeTables) {
+    Set<Map.Entry<List<String>, Object>> entries = new LinkedHashSet<>();
+    int size = tape.count(offset);
+    for (int i = 0; i < size; ++i) {
+      String key = tape.key(offset, i);
+      Object value = tape.tableValue(offset, i);
+      if (!(value instanceof TomlTable)) {
+        entries.add(new AbstractMap.SimpleEntry<>(Collections.singletonList(key), value));
+        continue;
+      }
+      if (includeTables) {
+        entries.add(new AbstractMap.SimpleEntry<>(Collections.singletonList(key), value));
+      }
+      for (Map.Entry<List<String>, Object> subEntry : ((TomlTable) value).entryPathSet(includeTables)) {
+        List<String> subPath = subEntry.getKey();
+        List<String> path = new ArrayList<>(subPath.size() + 1);
+        path.add(key);
+        path.addAll(subPath);
+        entries.add(new AbstractMap.SimpleEntry<>(path, subEntry.getValue()));
+      }
+    }
+    return entries;
+  }
+
+  @Override
+  @Nullable
+  public Object get(List<String> path) {
+    if (path.isEmpty()) {
+      return this;
+    }
+    long table = parentOf(path);
+    int i = (table >= 0) ? tape.indexOf(table, path.get(path.size() - 1)) : -1;
+    return (i >= 0) ? tape.tableValue(table, i) : null;
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(List<String> path) {
+    if (path.isEmpty()) {
+      return TomlPosition.positionAt(1, 1);
+    }
+    long table = parentOf(path);
+    int i = (table >= 0) ? tape.indexOf(table, path.get(path.size() - 1)) : -1;
+    return (i >= 0) ? tape.tablePosition(table, i) : null;
+  }
+
+  @Override
+  @Nullable
+  public TomlType typeOf(List<String> path) {
+    if (path.isEmpty()) {
+      return TomlType.TABLE;
+    }
+    long table = parentOf(path);
+    int i = (table >= 0) ? tape.indexOf(table, path.get(path.size() - 1)) : -1;
+    return (i >= 0) ? TomlType.ofTapeType(tape.tableType(table, i)) : null;
+  }
+
+  @Override
+  public boolean isLong(List<String> path) {
+    long table = path.isEmpty() ? -1 : parentOf(path);
+    int i = (table >= 0) ? tape.indexOf(table, path.get(path.size() - 1)) : -1;
+    return i >= 0 && tape.tableType(table, i) == TomlTape.INTEGER;
+  }
+
+  @Override
+  public long getLong(List<String> path, LongSupplier defaultValue) {
+    requireNonNull(defaultValue);
+    long table = leafTableOf(path);
+    int i = (table >= 0) ? primitiveIndex(table, path, TomlTape.INTEGER) : -1;
+    return (i >= 0) ? tape.tablePayload(table, i) : defaultValue.getAsLong();
+  }
+
+  @Override
+  public long getLongOrDefault(List<String> path, long defaultValue) {
+    long table = leafTableOf(path);
+    int i = (table >= 0) ? primitiveIndex(table, path, TomlTape.INTEGER) : -1;
+    return (i >= 0) ? tape.tablePayload(table, i) : defaultValue;
+  }
+
+  @Override
+  public OptionalLong findLong(List<String> path) {
+    long table = leafTableOf(path);
+    int i = (table >= 0) ? primitiveIndex(table, path, TomlTape.INTEGER) : -1;
+    return (i >= 0) ? OptionalLong.of(tape.tablePayload(table, i)) : OptionalLong.empty();
+  }
+
+  @Override
+  public boolean isDouble(List<String> path) {
+    long table = path.isEmpty() ? -1 : parentOf(path);
+    int i = (table >= 0) ? tape.indexOf(table, path.get(path.size() - 1)) : -1;
+    return i >= 0 && tape.tableType(table, i) == TomlTape.FLOAT;
+  }
+
+  @Override
+  public double getDouble(List<String> path, DoubleSupplier defaultValue) {
+    requireNonNull(defaultValue);
+    long table = leafTableOf(path);
+    int i = (table >= 0) ? primitiveIndex(table, path, TomlTape.FLOAT) : -1;
+    return (i >= 0) ? Double.longBitsToDouble(tape.tablePayload(table, i)) : defaultValue.getAsDouble();
+  }
+
+  @Override
+  public double getDoubleOrDefault(List<String> path, double defaultValue) {
+    long table = leafTableOf(path);
+    int i = (table >= 0) ? primitiveIndex(table, path, TomlTape.FLOAT) : -1;
+    return (i >= 0) ? Double.longBitsToDouble(tape.tablePayload(table, i)) : defaultValue;
+  }
+
+  @Override
+  public OptionalDouble findDouble(List<String> path) {
+    long table = leafTableOf(path);
+    int i = (table >= 0) ? primitiveIndex(table, path, TomlTape.FLOAT) : -1;
+    return (i >= 0) ? OptionalDouble.of(Double.longBitsToDouble(tape.tablePayload(table, i))) : OptionalDouble.empty();
+  }
+
+  /**
+   * Find the table holding the last key of a path.
+   *
+   * @return The tape offset of the table, or {@code -1} if an element of the path preceding the final key is missing
+   *         or not a table.
+   * @throws TomlInvalidTypeException If the path is empty (and so refers to this table).
+   */
+  private long leafTableOf(List<String> path) {
+    if (path.isEmpty()) {
+      throw new TomlInvalidTypeException("Value of '' is a " + TomlType.TABLE.typeName());
+    }
+    return parentOf(path);
+  }
+
+  /**
+   * Find the entry for the last key of a path, which must hold a value of the given tape type.
+   *
+   * @return The entry index, or {@code -1} if there is no entry for the key.
+   * @throws TomlInvalidTypeException If the entry holds a value of another type.
+   */
+  private int primitiveIndex(long table, List<String> path, byte type) {
+    int i = tape.indexOf(table, path.get(path.size() - 1));
+    if (i >= 0 && tape.tableType(table, i) != type) {
+      throw new TomlInvalidTypeException(
+          "Value of '" + Toml.joinKeyPath(path) + "' is a " + TomlType.typeNameFor(tape.tableValue(table, i)));
+    }
+    return i;
+  }
+
+  // walks the tape without creating views of the intermediate tables
+  private long parentOf(List<String> path) {
+    long table = offset;
+    int depth = path.size();
+    for (int i = 0; i < (depth - 1); ++i) {
+      int entry = tape.indexOf(table, path.get(i));
+      if (entry < 0 || tape.tableType(table, entry) != TomlTape.TABLE) {
+        return -1;
+      }
+      table = tape.tablePayload(table, entry);
+    }
+    return table;
+  }
+
+  @Override
+  public void forEach(BiConsumer<String, Object> action) {
+    requireNonNull(action);
+    int size = tape.count(offset);
+    for (int i = 0; i < size; ++i) {
+      action.accept(tape.key(offset, i), tape.tableValue(offset, i));
+    }
+  }
+
+  @Override
+  public Map<String, Object> toMap() {
+    return new AbstractMap<String, Object>() {
+      @Override
+      public Set<Map.Entry<String, Object>> entrySet() {
+        return TapeTomlTable.this.entrySet();
+      }
+
+      @Override
+      public Set<String> keySet() {
+        return TapeTomlTable.this.keySet();
+      }
+
+      @Override
+      public int size() {
+        return tape.count(offset);
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return (key instanceof String) && tape.indexOf(offset, (String) key) >= 0;
+      }
+
+      @Override
+      @Nullable
+      public Object get(Object key) {
+        int i = (key instanceof String) ? tape.indexOf(offset, (String) key) : -1;
+        return (i >= 0) ? tape.tableValue(offset, i) : null;
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof TapeTomlTable && ((TapeTomlTable) obj).tape == tape && ((TapeTomlTable) obj).offset == offset) {
+      return true;
+    }
+    return (obj instanceof TomlTable) && Toml.equals(this, (TomlTable) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return Toml.hashCode(this);
+  }
+}
@@ -13,9 +13,6 @@
 package org.tomlj;
 
 import static java.util.Objects.requireNonNull;
-import static org.tomlj.TomlType.ARRAY;
-import static org.tomlj.TomlType.TABLE;
-import static org.tomlj.TomlType.typeFor;
 
 import java.io.*;
 import java.nio.channels.ReadableByteChannel;
@@ -24,9 +21,10 @@ import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.regex.Pattern;
 
@@ -177,6 +175,162 @@ public final class Toml {
     return Parser.parse(stream, version.canonical);
   }
 
+  /**
+   * Parse a TOML string, materializing only the requested key paths (see {@link #parse(String, TomlVersion, Set)}).
+   *
+   * @param input The input to parse.
+   * @param wantedPaths The key paths to materialize.
+   * @return The parse result.
+   */
+  public static TomlParseResult parse(String input, Set<List<String>> wantedPaths) {
+    return parse(input, TomlVersion.LATEST, wantedPaths);
+  }
+
+  /**
+   * Parse a TOML string, materializing only the requested key paths.
+   *
+   * <p>
+   * The whole document is checked for syntax errors, but values are only decoded for keys that are within (or lead
+   * towards) one of the wanted paths. All other keys are omitted from the result, and semantic errors (such as
+   * duplicate keys or out of range values) within them are not reported.
+   *
+   * @param input The input to parse.
+   * @param version The version level to parse at.
+   * @param wantedPaths The key paths to materialize.
+   * @return The parse result.
+   */
+  public static TomlParseResult parse(String input, TomlVersion version, Set<List<String>> wantedPaths) {
+    CharStream stream = CharStreams.fromString(input);
+    return Parser.parse(stream, version.canonical, Projection.of(wantedPaths));
+  }
+
+  /**
+   * Parse a TOML file, materializing only the requested key paths (see {@link #parse(String, TomlVersion, Set)}).
+   *
+   * @param file The input file to parse.
+   * @param wantedPaths The key paths to materialize.
+   * @return The parse result.
+   * @throws IOException If an IO error occurs.
+   */
+  public static TomlParseResult parse(Path file, Set<List<String>> wantedPaths) throws IOException {
+    return parse(file, TomlVersion.LATEST, wantedPaths);
+  }
+
+  /**
+   * Parse a TOML file, materializing only the requested key paths (see {@link #parse(String, TomlVersion, Set)}).
+   *
+   * @param file The input file to parse.
+   * @param version The version level to parse at.
+   * @param wantedPaths The key paths to materialize.
+   * @return The parse result.
+   * @throws IOException If an IO error occurs.
+   */
+  public static TomlParseResult parse(Path file, TomlVersion version, Set<List<String>> wantedPaths)
+      throws IOException {
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    decoder.onMalformedInput(CodingErrorAction.REPORT);
+    decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+    InputStreamReader reader = new InputStreamReader(Files.newInputStream(file), decoder);
+    return parse(reader, version, wantedPaths);
+  }
+
+  /**
+   * Parse a TOML reader, materializing only the requested key paths (see {@link #parse(String, TomlVersion, Set)}).
+   *
+   * @param reader The reader to obtain the TOML document from.
+   * @param version The version level to parse at.
+   * @param wantedPaths The key paths to materialize.
+   * @return The parse result.
+   * @throws IOException If an IO error occurs.
+   */
+  public static TomlParseResult parse(Reader reader, TomlVersion version, Set<List<String>> wantedPaths)
+      throws IOException {
+    CharStream stream = CharStreams.fromReader(reader);
+    return Parser.parse(stream, version.canonical, Projection.of(wantedPaths));
+  }
+
+  /**
+   * Parse a TOML string and bind it to a new instance of a Java class.
+   *
+   * <p>
+   * Only the keys read by the binding are materialized during the parse (see {@link #bind(TomlTable, Class)} for the
+   * binding rules).
+   *
+   * @param input The input to parse.
+   * @param type The class to bind to.
+   * @param <T> The type to bind to.
+   * @return A new instance of the class.
+   * @throws TomlParseError If the TOML document contains errors.
+   * @throws TomlInvalidTypeException If a value in the document does not match the type it is bound to.
+   * @throws IllegalArgumentException If the class cannot be bound.
+   */
+  public static <T> T parse(String input, Class<T> type) {
+    requireNonNull(type);
+    TomlBinder<T> binder = TomlBinders.binderFor(type);
+    TomlParseResult result = parse(input, TomlVersion.LATEST, binder.keyPaths());
+    return bindResult(result, binder);
+  }
+
+  /**
+   * Parse a TOML file and bind it to a new instance of a Java class.
+   *
+   * <p>
+   * Only the keys read by the binding are materialized during the parse (see {@link #bind(TomlTable, Class)} for the
+   * binding rules).
+   *
+   * @param file The input file to parse.
+   * @param type The class to bind to.
+   * @param <T> The type to bind to.
+   * @return A new instance of the class.
+   * @throws IOException If an IO error occurs.
+   * @throws TomlParseError If the TOML document contains errors.
+   * @throws TomlInvalidTypeException If a value in the document does not match the type it is bound to.
+   * @throws IllegalArgumentException If the class cannot be bound.
+   */
+  public static <T> T parse(Path file, Class<T> type) throws IOException {
+    requireNonNull(type);
+    TomlBinder<T> binder = TomlBinders.binderFor(type);
+    TomlParseResult result = parse(file, TomlVersion.LATEST, binder.keyPaths());
+    return bindResult(result, binder);
+  }
+
+  private static <T> T bindResult(TomlParseResult result, TomlBinder<T> binder) {
+    if (result.hasErrors()) {
+      throw result.errors().get(0);
+    }
+    return binder.bind(result);
+  }
+
+  /**
+   * Bind a TOML table to a new instance of a Java class.
+   *
+   * <p>
+   * If a binder has been registered for the class (see {@link TomlBinders}), it is used. Otherwise, classes with a
+   * no-argument constructor are bound by assigning their non-static, non-final and non-transient fields (including
+   * inherited fields), and other classes are bound using the constructor with the most parameters, which requires the
+   * class to be compiled with {@code -parameters}. Field and parameter names are used as the table keys (or the dotted
+   * key of a field's {@link TomlKey} annotation), and keys that are missing from the table leave fields unset (or pass
+   * {@code null}, zero or {@code false} to the constructor).
+   *
+   * <p>
+   * Supported field types are {@link String}, {@code long}, {@code int}, {@code double}, {@code float},
+   * {@code boolean} (and their boxed forms), {@link java.time.OffsetDateTime}, {@link java.time.Instant},
+   * {@link java.time.LocalDateTime}, {@link java.time.LocalDate}, {@link java.time.LocalTime}, enums (from strings),
+   * {@link List} (from arrays), {@link Map} with string keys (from tables), {@link TomlTable}, {@link TomlArray} and
+   * other classes (from tables, bound using the same rules). Binding plans are computed once per class and cached.
+   *
+   * @param table The table to bind.
+   * @param type The class to bind to.
+   * @param <T> The type to bind to.
+   * @return A new instance of the class.
+   * @throws TomlInvalidTypeException If a value in the table does not match the type it is bound to.
+   * @throws IllegalArgumentException If the class cannot be bound.
+   */
+  public static <T> T bind(TomlTable table, Class<T> type) {
+    requireNonNull(table);
+    return TomlBinders.binderFor(type).bind(table);
+  }
+
   /**
    * Parse a dotted key into individual parts.
    *
@@ -285,39 +439,18 @@ public final class Toml {
    * @return Returns true if the arrays are equivalent, else false.
    */
   public static boolean equals(TomlArray array1, TomlArray array2) {
-    if (array1.size() != array2.size()) {
+    if (array1 == array2) {
+      return true;
+    }
+    int size = array1.size();
+    if (size != array2.size()) {
       return false;
     }
-
-    for (int i = 0; i < array1.size(); i++) {
-      Object value1 = array1.get(i);
-      Object value2 = array2.get(i);
-
-      Optional<TomlType> tomlType1 = typeFor(value1);
-      assert tomlType1.isPresent();
-
-      Optional<TomlType> tomlType2 = typeFor(value2);
-      assert tomlType2.isPresent();
-
-      if (tomlType1.get() != tomlType2.get()) {
+    for (int i = 0; i < size; i++) {
+      if (!valuesEqual(array1.get(i), array2.get(i))) {
         return false;
       }
-
-      if (tomlType1.get().equals(TABLE)) {
-        if (!equals((TomlTable) value1, (TomlTable) value2)) {
-          return false;
-        }
-      } else if (tomlType1.get().equals(ARRAY)) {
-        if (!equals((TomlArray) value1, (TomlArray) value2)) {
-          return false;
-        }
-      } else {
-        if (!value1.equals(value2)) {
-          return false;
-        }
-      }
     }
-
     return true;
   }
 
@@ -329,49 +462,93 @@ public final class Toml {
    * @return Returns true if the tables are equivalent, else false.
    */
   public static boolean equals(TomlTable table1, TomlTable table2) {
-    if (table1.entrySet().size() != table2.entrySet().size()) {
+    if (table1 == table2) {
+      return true;
+    }
+    if (table1 instanceof FrozenTomlTable && table2 instanceof FrozenTomlTable) {
+      return table1.equals(table2);
+    }
+    if (table1.size() != table2.size()) {
       return false;
     }
     for (Map.Entry<String, Object> entry : table1.entrySet()) {
-      String key = entry.getKey();
-      if (!table2.keySet().contains(key)) {
-        return false;
-      }
-
-      Object value1 = entry.getValue();
-      Optional<Map.Entry<String, Object>> value2Entry =
-          table2.entrySet().stream().filter(entry2 -> entry2.getKey().equals(key)).findFirst();
-
-      if (!value2Entry.isPresent()) {
+      Object value2 = table2.get(Collections.singletonList(entry.getKey()));
+      if (value2 == null || !valuesEqual(entry.getValue(), value2)) {
         return false;
       }
+    }
+    return true;
+  }
 
-      Object value2 = value2Entry.get().getValue();
-
-      Optional<TomlType> tomlType1 = typeFor(value1);
-      assert tomlType1.isPresent();
+  static boolean valuesEqual(Object value1, Object value2) {
+    if (value1 == value2) {
+      return true;
+    }
+    if (value1 instanceof TomlTable) {
+      return (value2 instanceof TomlTable) && equals((TomlTable) value1, (TomlTable) value2);
+    }
+    if (value1 instanceof TomlArray) {
+      return (value2 instanceof TomlArray) && equals((TomlArray) value1, (TomlArray) value2);
+    }
+    return value1.equals(value2);
+  }
 
-      Optional<TomlType> tomlType2 = typeFor(value2);
-      assert tomlType2.isPresent();
+  /**
+   * Computes a hash code for the contents of a table.
+   *
+   * <p>
+   * Tables that are equivalent according to {@link #equals(TomlTable, TomlTable)} have the same hash code. The
+   * immutable tables provided by this library (including parse results) return this hash code from
+   * {@link Object#hashCode()}, computing it once, and are equal to any equivalent table.
+   *
+   * @param table The table.
+   * @return The hash code: the sum of {@code key.hashCode() ^ hash(value)} over the entries of the table.
+   */
+  public static int hashCode(TomlTable table) {
+    int hash = 0;
+    for (Map.Entry<String, Object> entry : table.entrySet()) {
+      hash += entry.getKey().hashCode() ^ hashOf(entry.getValue());
+    }
+    return hash;
+  }
 
-      if (tomlType1.get() != tomlType2.get()) {
-        return false;
-      }
+  /**
+   * Computes a hash code for the contents of an array.
+   *
+   * <p>
+   * Arrays that are equivalent according to {@link #equals(TomlArray, TomlArray)} have the same hash code. The
+   * immutable arrays provided by this library return this hash code from {@link Object#hashCode()}, computing it once,
+   * and are equal to any equivalent array.
+   *
+   * @param array The array.
+   * @return The hash code, computed over the elements as for {@link List#hashCode()}.
+   */
+  public static int hashCode(TomlArray array) {
+    int hash = 1;
+    for (int i = 0; i < array.size(); i++) {
+      hash = 31 * hash + hashOf(array.get(i));
+    }
+    return hash;
+  }
 
-      if (tomlType1.get().equals(TABLE)) {
-        if (!equals((TomlTable) value1, (TomlTable) value2)) {
-          return false;
-        }
-      } else if (tomlType1.get().equals(ARRAY)) {
-        if (!equals((TomlArray) value1, (TomlArray) value2)) {
-          return false;
-        }
-      } else {
-        if (!value1.equals(value2)) {
-          return false;
-        }
-      }
+  static int hashOf(Object value) {
+    if (value instanceof TomlTable) {
+      return hasStructuralHashCode(value) ? value.hashCode() : hashCode((TomlTable) value);
     }
-    return true;
+    if (value instanceof TomlArray) {
+      return hasStructuralHashCode(value) ? value.hashCode() : hashCode((TomlArray) value);
+    }
+    return value.hashCode();
+  }
+
+  // whether a table or array implements hashCode() as its (cached) structural hash
+  static boolean hasStructuralHashCode(Object value) {
+    return value instanceof FrozenTomlTable
+        || value instanceof FrozenTomlArray
+        || value instanceof PrimitiveTomlArray
+        || value instanceof FrozenTomlParseResult
+        || value instanceof PersistentTomlTable
+        || value instanceof PersistentTomlArray
+        || value instanceof TomlOverlay;
   }
 }
@@ -19,8 +19,13 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.framework.qual.DefaultQualifier;
 import org.checkerframework.framework.qual.TypeUseLocation;
 
@@ -31,6 +36,15 @@ import org.checkerframework.framework.qual.TypeUseLocation;
     locations = {TypeUseLocation.RETURN, TypeUseLocation.PARAMETER, TypeUseLocation.FIELD})
 public interface TomlArray {
 
+  /**
+   * Create a builder for an immutable array.
+   *
+   * @return A new builder.
+   */
+  static TomlArrayBuilder builder() {
+    return new TomlArrayBuilder();
+  }
+
   /**
    * The size of the array.
    *
@@ -147,12 +161,30 @@ public interface TomlArray {
   /**
    * Get the position where a value is defined in the TOML document.
    *
+   * <p>
+   * Values of parsed documents always have a position. Values that were not parsed have none, such as the elements of
+   * an array built with {@link #builder()}.
+   *
    * @param index The array index.
-   * @return The input position.
+   * @return The input position, or {@code null} if the value was not defined in a TOML document.
    * @throws IndexOutOfBoundsException If the index is out of bounds.
    */
+  @Nullable
   TomlPosition inputPositionOf(int index);
 
+  /**
+   * Get the type of the value at a specified index.
+   *
+   * @param index The array index.
+   * @return The type.
+   * @throws IndexOutOfBoundsException If the index is out of bounds.
+   */
+  default TomlType typeOf(int index) {
+    TomlType type = TomlType.of(get(index));
+    assert type != null;
+    return type;
+  }
+
   /**
    * Get a string at a specified index.
    *
@@ -324,6 +356,84 @@ public interface TomlArray {
    */
   List<Object> toList();
 
+  /**
+   * Get the elements of this array as an array of longs.
+   *
+   * @return The elements of this array as a {@code long[]}.
+   * @throws TomlInvalidTypeException If any element of this array is not a long.
+   */
+  default long[] toLongArray() {
+    long[] result = new long[size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = getLong(i);
+    }
+    return result;
+  }
+
+  /**
+   * Get the elements of this array as an array of doubles.
+   *
+   * @return The elements of this array as a {@code double[]}.
+   * @throws TomlInvalidTypeException If any element of this array is not a double.
+   */
+  default double[] toDoubleArray() {
+    double[] result = new double[size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = getDouble(i);
+    }
+    return result;
+  }
+
+  /**
+   * Get the elements of this array as an array of booleans.
+   *
+   * @return The elements of this array as a {@code boolean[]}.
+   * @throws TomlInvalidTypeException If any element of this array is not a boolean.
+   */
+  default boolean[] toBooleanArray() {
+    boolean[] result = new boolean[size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = getBoolean(i);
+    }
+    return result;
+  }
+
+  /**
+   * Get the elements of this array as a stream.
+   *
+   * <p>
+   * The stream is lazy, exactly sized, and splits evenly for parallel traversal.
+   *
+   * @return The elements of this array.
+   */
+  default Stream<Object> elementStream() {
+    return IntStream.range(0, size()).mapToObj(this::get);
+  }
+
+  /**
+   * Get the elements of this array as a stream of longs.
+   *
+   * <p>
+   * The stream is lazy: a {@link TomlInvalidTypeException} is thrown when an element that is not a long is reached.
+   *
+   * @return The elements of this array as a {@link LongStream}.
+   */
+  default LongStream longStream() {
+    return IntStream.range(0, size()).mapToLong(this::getLong);
+  }
+
+  /**
+   * Get the elements of this array as a stream of doubles.
+   *
+   * <p>
+   * The stream is lazy: a {@link TomlInvalidTypeException} is thrown when an element that is not a double is reached.
+   *
+   * @return The elements of this array as a {@link DoubleStream}.
+   */
+  default DoubleStream doubleStream() {
+    return IntStream.range(0, size()).mapToDouble(this::getDouble);
+  }
+
   /**
    * Return a representation of this array using JSON.
    *
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A builder for immutable arrays.
+ *
+ * <p>
+ * Arrays are built directly in the compact form used for parsed documents, without producing and parsing TOML:
+ *
+ * <pre>{@code
+ * TomlArray ports = TomlArray.builder().append(8080).append(8443).build();
+ * }</pre>
+ *
+ * <p>
+ * Integer, float and boolean values added through the primitive overloads are stored without boxing, and an array
+ * holding only integers, only floats or only booleans is built without boxing its elements. Values built by a builder
+ * have no input position.
+ *
+ * @see TomlArray#builder()
+ */
+public final class TomlArrayBuilder {
+
+  private static final Object BOOLEAN_VALUE = new Object();
+
+  // values, or a marker for values held in bits
+  private Object[] values = new Object[4];
+  private long[] bits = new long[4];
+  private int size;
+
+  TomlArrayBuilder() {}
+
+  /**
+   * Append a string value.
+   *
+   * @param value The value.
+   * @return This builder.
+   */
+  public TomlArrayBuilder append(String value) {
+    requireNonNull(value);
+    add(value, 0);
+    return this;
+  }
+
+  /**
+   * Append an integer value.
+   *
+   * @param value The value.
+   * @return This builder.
+   */
+  public TomlArrayBuilder append(long value) {
+    add(FrozenTomlTable.LONG_VALUE, value);
+    return this;
+  }
+
+  /**
+   * Append a float value.
+   *
+   * @param value The value.
+   * @return This builder.
+   */
+  public TomlArrayBuilder append(double value) {
+    add(FrozenTomlTable.DOUBLE_VALUE, Double.doubleToRawLongBits(value));
+    return this;
+  }
+
+  /**
+   * Append a boolean value.
+   *
+   * @param value The value.
+   * @return This builder.
+   */
+  public TomlArrayBuilder append(boolean value) {
+    add(BOOLEAN_VALUE, value ? 1 : 0);
+    return this;
+  }
+
+  /**
+   * Append a value.
+   *
+   * @param value The value, which must be of a TOML type (or an {@link Integer}).
+   * @return This builder.
+   * @throws IllegalArgumentException If the value is not of a TOML type.
+   */
+  public TomlArrayBuilder append(Object value) {
+    requireNonNull(value);
+    if (value instanceof Long || value instanceof Integer) {
+      return append(((Number) value).longValue());
+    }
+    if (value instanceof Double) {
+      return append(((Double) value).doubleValue());
+    }
+    if (value instanceof Boolean) {
+      return append(((Boolean) value).booleanValue());
+    }
+    if (!TomlType.typeFor(value).isPresent()) {
+      throw new IllegalArgumentException("Unsupported type " + value.getClass().getSimpleName());
+    }
+    add(FrozenTomlTable.freezeValue(value, new HashMap<>()), 0);
+    return this;
+  }
+
+  private void add(Object value, long bits) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+      this.bits = Arrays.copyOf(this.bits, size * 2);
+    }
+    values[size] = value;
+    this.bits[size] = bits;
+    ++size;
+  }
+
+  private Object value(int i) {
+    Object value = values[i];
+    if (value == FrozenTomlTable.LONG_VALUE) {
+      return bits[i];
+    }
+    if (value == FrozenTomlTable.DOUBLE_VALUE) {
+      return Double.longBitsToDouble(bits[i]);
+    }
+    if (value == BOOLEAN_VALUE) {
+      return bits[i] != 0;
+    }
+    return value;
+  }
+
+  /**
+   * Build the array.
+   *
+   * <p>
+   * The builder may continue to be used after building an array, without affecting the arrays already built.
+   *
+   * @return An immutable array holding the appended values.
+   */
+  public TomlArray build() {
+    long[] positions = new long[size];
+    if (size > 0 && isAll(values[0])) {
+      Object marker = values[0];
+      if (marker == FrozenTomlTable.LONG_VALUE) {
+        return new PrimitiveTomlArray.OfLong(Arrays.copyOf(bits, size), positions, false);
+      }
+      if (marker == FrozenTomlTable.DOUBLE_VALUE) {
+        double[] doubles = new double[size];
+        for (int i = 0; i < size; ++i) {
+          doubles[i] = Double.longBitsToDouble(bits[i]);
+        }
+        return new PrimitiveTomlArray.OfDouble(doubles, positions, false);
+      }
+      if (marker == BOOLEAN_VALUE) {
+        boolean[] booleans = new boolean[size];
+        for (int i = 0; i < size; ++i) {
+          booleans[i] = bits[i] != 0;
+        }
+        return new PrimitiveTomlArray.OfBoolean(booleans, positions, false);
+      }
+    }
+    Object[] boxed = new Object[size];
+    for (int i = 0; i < size; ++i) {
+      boxed[i] = value(i);
+    }
+    return new FrozenTomlArray(boxed, positions, false);
+  }
+
+  // whether every value is the given marker
+  private boolean isAll(Object marker) {
+    if (marker != FrozenTomlTable.LONG_VALUE && marker != FrozenTomlTable.DOUBLE_VALUE && marker != BOOLEAN_VALUE) {
+      return false;
+    }
+    for (int i = 1; i < size; ++i) {
+      if (values[i] != marker) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads and writes tables in a compact binary form, which is much faster to load than TOML text.
+ *
+ * <p>
+ * The binary form is the {@link TomlTape} format: a typed, position-independent encoding of the document with a
+ * shared string table and, optionally, the input positions of values. It can be loaded into heap tables with
+ * {@link #read(InputStream)} or {@link #read(ByteBuffer)}, or used in place, without decoding, with
+ * {@link #view(ByteBuffer)} or {@link TomlTape#map(java.nio.file.Path)}.
+ */
+public final class TomlBinary {
+  // the largest array that can be allocated on all VMs
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+  private TomlBinary() {}
+
+  /**
+   * Write a table, with its input positions, to a stream.
+   *
+   * @param table The table to write.
+   * @param out The stream to write to.
+   * @throws IOException If an IO error occurs.
+   */
+  public static void write(TomlTable table, OutputStream out) throws IOException {
+    write(table, out, true);
+  }
+
+  /**
+   * Write a table to a stream.
+   *
+   * @param table The table to write.
+   * @param out The stream to write to.
+   * @param includePositions Whether the input positions of values are written.
+   * @throws IOException If an IO error occurs.
+   */
+  public static void write(TomlTable table, OutputStream out, boolean includePositions) throws IOException {
+    requireNonNull(table);
+    requireNonNull(out);
+    TomlTape.write(table, out, includePositions);
+  }
+
+  /**
+   * Write a table, with its input positions, into a buffer.
+   *
+   * @param table The table to write.
+   * @param buffer The buffer to write to, starting at its position.
+   * @throws java.nio.BufferOverflowException If there is insufficient space in the buffer.
+   */
+  public static void write(TomlTable table, ByteBuffer buffer) {
+    write(table, buffer, true);
+  }
+
+  /**
+   * Write a table into a buffer.
+   *
+   * @param table The table to write.
+   * @param buffer The buffer to write to, starting at its position.
+   * @param includePositions Whether the input positions of values are written.
+   * @throws java.nio.BufferOverflowException If there is insufficient space in the buffer, in which case nothing is
+   *         written.
+   */
+  public static void write(TomlTable table, ByteBuffer buffer, boolean includePositions) {
+    requireNonNull(table);
+    requireNonNull(buffer);
+    TomlTape.write(table, buffer, includePositions);
+  }
+
+  /**
+   * Read a table from a stream, into heap tables and arrays.
+   *
+   * @param in The stream to read from. Exactly one encoded table is read.
+   * @return The table.
+   * @throws IOException If an IO error occurs, or the stream ends before the table does.
+   * @throws IllegalArgumentException If the stream does not hold an encoded table, or the table is too large to be read
+   *         into an array (use {@link TomlTape#map(java.nio.file.Path)} for larger tables).
+   */
+  public static TomlTable read(InputStream in) throws IOException {
+    requireNonNull(in);
+    byte[] header = new byte[TomlTape.HEADER_SIZE];
+    readFully(in, header, 0);
+    ByteBuffer fields = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+    TomlTape.checkHeader(fields.getInt(0), fields.getInt(4));
+    long length = fields.getLong(TomlTape.LENGTH_OFFSET);
+    if (length < TomlTape.HEADER_SIZE) {
+      throw new IllegalArgumentException("Not an encoded TOML table");
+    }
+    if (length > MAX_ARRAY_SIZE) {
+      throw new IllegalArgumentException("Encoded TOML table of " + length + " bytes is too large to read");
+    }
+    byte[] bytes = new byte[(int) length];
+    System.arraycopy(header, 0, bytes, 0, header.length);
+    readFully(in, bytes, header.length);
+    return TomlTape.wrap(ByteBuffer.wrap(bytes)).decode();
+  }
+
+  private static void readFully(InputStream in, byte[] bytes, int offset) throws IOException {
+    for (int n = offset; n < bytes.length;) {
+      int count = in.read(bytes, n, bytes.length - n);
+      if (count < 0) {
+        throw new EOFException("Unexpected end of encoded TOML table");
+      }
+      n += count;
+    }
+  }
+
+  /**
+   * Read a table from a buffer, into heap tables and arrays.
+   *
+   * @param buffer The buffer to read from, starting at its position. The position is advanced past the table.
+   * @return The table.
+   * @throws IllegalArgumentException If the buffer does not hold an encoded table.
+   */
+  public static TomlTable read(ByteBuffer buffer) {
+    TomlTape tape = tapeAt(buffer);
+    TomlTable table = tape.decode();
+    buffer.position(buffer.position() + (int) tape.size());
+    return table;
+  }
+
+  /**
+   * Use a table held in a buffer in place, without decoding it.
+   *
+   * <p>
+   * The table and its contents are views that decode values on access. The buffer contents must not be modified while
+   * the table is in use.
+   *
+   * @param buffer The buffer holding the table, starting at its position. The position is not changed.
+   * @return The table.
+   * @throws IllegalArgumentException If the buffer does not hold an encoded table.
+   */
+  public static TomlTable view(ByteBuffer buffer) {
+    return tapeAt(buffer).root();
+  }
+
+  private static TomlTape tapeAt(ByteBuffer buffer) {
+    requireNonNull(buffer);
+    ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    if (slice.remaining() < TomlTape.HEADER_SIZE) {
+      throw new IllegalArgumentException("Not an encoded TOML table");
+    }
+    long length = slice.getLong(TomlTape.LENGTH_OFFSET);
+    if (length < TomlTape.HEADER_SIZE || length > slice.remaining()) {
+      throw new IllegalArgumentException("Truncated or corrupt encoded TOML table");
+    }
+    slice.limit((int) length);
+    return TomlTape.wrap(slice);
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binds TOML tables to instances of a Java class.
+ *
+ * @param <T> The type of the bound objects.
+ */
+public interface TomlBinder<T> {
+
+  /**
+   * The class this binder creates instances of.
+   *
+   * @return The bound class.
+   */
+  Class<T> type();
+
+  /**
+   * The key paths read by this binder, relative to the bound table.
+   *
+   * <p>
+   * Used to limit which values are materialized when parsing a document for binding.
+   *
+   * @return The key paths read by this binder.
+   */
+  Set<List<String>> keyPaths();
+
+  /**
+   * Bind a table to a new instance of the class.
+   *
+   * @param table The table to bind.
+   * @return A new instance of the class.
+   * @throws TomlInvalidTypeException If a value in the table does not match the type it is bound to.
+   */
+  T bind(TomlTable table);
+}
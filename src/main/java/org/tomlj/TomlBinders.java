@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A static registry of {@link TomlBinder}s.
+ *
+ * <p>
+ * Binders generated for {@link TomlConfig} classes are listed by the annotation processor in
+ * {@code META-INF/services/org.tomlj.TomlBinder}, and are loaded from there (without any classpath scanning) the first
+ * time the registry is used. Binders may also be registered explicitly.
+ */
+public final class TomlBinders {
+
+  private static final class Registry {
+    static final Map<Class<?>, TomlBinder<?>> BINDERS = new ConcurrentHashMap<>();
+
+    static {
+      @SuppressWarnings("rawtypes")
+      ServiceLoader<TomlBinder> loader = ServiceLoader.load(TomlBinder.class);
+      for (TomlBinder<?> binder : loader) {
+        BINDERS.putIfAbsent(binder.type(), binder);
+      }
+    }
+  }
+
+  private TomlBinders() {}
+
+  /**
+   * Register a binder, replacing any binder previously registered for the same class.
+   *
+   * @param binder The binder to register.
+   */
+  public static void register(TomlBinder<?> binder) {
+    requireNonNull(binder);
+    Registry.BINDERS.put(binder.type(), binder);
+  }
+
+  /**
+   * Find the registered binder for a class.
+   *
+   * @param type The bound class.
+   * @param <T> The bound type.
+   * @return The registered binder, or {@code null} if there is no binder registered for the class.
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public static <T> TomlBinder<T> find(Class<T> type) {
+    requireNonNull(type);
+    return (TomlBinder<T>) Registry.BINDERS.get(type);
+  }
+
+  /**
+   * Get a binder for a class.
+   *
+   * <p>
+   * The registered binder is returned if there is one, otherwise a reflective binder is created (see
+   * {@link Toml#bind(TomlTable, Class)} for its binding rules).
+   *
+   * @param type The bound class.
+   * @param <T> The bound type.
+   * @return A binder for the class.
+   * @throws IllegalArgumentException If there is no registered binder and the class cannot be bound reflectively.
+   */
+  public static <T> TomlBinder<T> binderFor(Class<T> type) {
+    TomlBinder<T> binder = find(type);
+    return (binder != null) ? binder : ReflectiveBinder.forClass(type);
+  }
+
+  /**
+   * Narrow a TOML integer to an {@code int}, for use by generated binders.
+   *
+   * @param value The integer value.
+   * @param path The key path the value was read from.
+   * @return The value as an {@code int}.
+   * @throws TomlInvalidTypeException If the value is out of range for an {@code int}.
+   */
+  public static int intValue(long value, List<String> path) {
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new TomlInvalidTypeException("Value of '" + Toml.joinKeyPath(path) + "' is out of range for an int");
+    }
+    return (int) value;
+  }
+
+  /**
+   * Get a floating-point value from a table, for use by generated binders.
+   *
+   * <p>
+   * Integer values are converted to doubles, as they are when binding reflectively.
+   *
+   * @param table The table.
+   * @param path The key path.
+   * @param defaultValue The value returned if there is no value at the path.
+   * @return The value, or the default.
+   * @throws TomlInvalidTypeException If the value is present but is not a float or an integer.
+   */
+  public static double doubleValue(TomlTable table, List<String> path, double defaultValue) {
+    if (table.typeOf(path) == TomlType.INTEGER) {
+      return table.getLongOrDefault(path, 0L);
+    }
+    return table.getDoubleOrDefault(path, defaultValue);
+  }
+
+  /**
+   * Find a floating-point value in a table, for use by generated binders.
+   *
+   * <p>
+   * Integer values are converted to doubles, as they are when binding reflectively.
+   *
+   * @param table The table.
+   * @param path The key path.
+   * @return The value, or an empty optional if there is no value at the path.
+   * @throws TomlInvalidTypeException If the value is present but is not a float or an integer.
+   */
+  public static OptionalDouble findDouble(TomlTable table, List<String> path) {
+    if (table.typeOf(path) == TomlType.INTEGER) {
+      return OptionalDouble.of(table.getLongOrDefault(path, 0L));
+    }
+    return table.findDouble(path);
+  }
+
+  /**
+   * Get a floating-point element of an array, for use by generated binders.
+   *
+   * <p>
+   * Integer elements are converted to doubles, as they are when binding reflectively.
+   *
+   * @param array The array.
+   * @param index The index of the element.
+   * @return The element.
+   * @throws TomlInvalidTypeException If the element is not a float or an integer.
+   */
+  public static double doubleValue(TomlArray array, int index) {
+    return (array.typeOf(index) == TomlType.INTEGER) ? array.getLong(index) : array.getDouble(index);
+  }
+
+  /**
+   * Convert a TOML string to an enum constant, for use by generated binders.
+   *
+   * @param type The enum class.
+   * @param value The string value.
+   * @param path The key path the value was read from.
+   * @param <E> The enum type.
+   * @return The enum constant.
+   * @throws TomlInvalidTypeException If the string does not name a constant of the enum.
+   */
+  public static <E extends Enum<E>> E enumValue(Class<E> type, String value, List<String> path) {
+    try {
+      return Enum.valueOf(type, value);
+    } catch (IllegalArgumentException e) {
+      throw new TomlInvalidTypeException(
+          "Value of '" + Toml.joinKeyPath(path) + "' is not a valid " + type.getSimpleName());
+    }
+  }
+}
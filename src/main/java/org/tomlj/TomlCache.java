@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An in-memory cache of parsed files, shared by the components of an application that read the same files.
+ *
+ * <p>
+ * {@link #parse(Path)} can be used in place of {@link Toml#parse(Path)}. A cached result is returned while the size
+ * and modification time of the file are unchanged. Files modified within a couple of seconds before being parsed are
+ * also hashed when next read, as a later change may not have updated their modification time. Results are weighed by
+ * their estimated retained size (see {@link TomlMemoryStats}), and the least recently used results are evicted when
+ * the total weight exceeds the maximum. A result heavier than the maximum is returned but not cached.
+ *
+ * <p>
+ * Loading is single-flight: concurrent requests for the same unchanged file wait for one parse to complete, rather
+ * than each parsing the file. Cached results are immutable and can be shared freely between threads.
+ */
+public final class TomlCache {
+
+  // modification times closer than this to the time of a parse are not trusted
+  private static final long MTIME_GRANULARITY_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+  private final long maximumBytes;
+  // guarded by this
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  // guarded by this
+  private long weight;
+  private final ConcurrentHashMap<Stamp, FutureTask<Entry>> loading = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private TomlCache(long maximumBytes) {
+    this.maximumBytes = maximumBytes;
+  }
+
+  /**
+   * Create a cache.
+   *
+   * @param maximumBytes The maximum estimated size of all cached results, in bytes.
+   * @return The cache.
+   * @throws IllegalArgumentException If {@code maximumBytes} is negative.
+   */
+  public static TomlCache create(long maximumBytes) {
+    if (maximumBytes < 0) {
+      throw new IllegalArgumentException("maximumBytes must be non-negative");
+    }
+    return new TomlCache(maximumBytes);
+  }
+
+  /**
+   * Parse a TOML file, or return the cached result if the file is unchanged.
+   *
+   * @param file The input file to parse.
+   * @return The parse result.
+   * @throws IOException If an IO error occurs.
+   */
+  public TomlParseResult parse(Path file) throws IOException {
+    return parse(file, TomlVersion.LATEST);
+  }
+
+  /**
+   * Parse a TOML file, or return the cached result if the file is unchanged.
+   *
+   * @param file The input file to parse.
+   * @param version The version level to parse at.
+   * @return The parse result.
+   * @throws IOException If an IO error occurs.
+   */
+  public TomlParseResult parse(Path file, TomlVersion version) throws IOException {
+    requireNonNull(file);
+    requireNonNull(version);
+    Key key = new Key(file.toAbsolutePath().normalize(), version.canonical);
+    // the attributes are read before parsing, so a change during the parse is seen by the next lookup
+    BasicFileAttributes attributes = Files.readAttributes(key.path, BasicFileAttributes.class);
+    Stamp stamp = new Stamp(key, attributes.size(), attributes.lastModifiedTime().toMillis());
+
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.stamp.equals(stamp) && entry.hash == null) {
+        hits.increment();
+        return entry.result;
+      }
+    }
+    Entry confirmed = confirm(stamp);
+    if (confirmed != null) {
+      hits.increment();
+      return confirmed.result;
+    }
+    misses.increment();
+
+    FutureTask<Entry> task = new FutureTask<>(() -> load(stamp));
+    FutureTask<Entry> existing = loading.putIfAbsent(stamp, task);
+    if (existing == null) {
+      try {
+        task.run();
+      } finally {
+        loading.remove(stamp, task);
+      }
+    } else {
+      task = existing;
+    }
+    try {
+      return task.get().result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for " + file + " to be parsed", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  // an untrusted entry with the same stamp is only used if the contents of the file are unchanged
+  private @Nullable Entry confirm(Stamp stamp) throws IOException {
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(stamp.key);
+    }
+    if (entry == null || entry.hash == null || !entry.stamp.equals(stamp)) {
+      return null;
+    }
+    byte[] contents = Files.readAllBytes(stamp.key.path);
+    if (!Arrays.equals(entry.hash, TomlParseCache.sha256(contents))) {
+      return null;
+    }
+    if (isTrusted(stamp)) {
+      // the modification time is now old enough that a later change would update it
+      store(new Entry(stamp, entry.result, entry.weight, null));
+    }
+    return entry;
+  }
+
+  private Entry load(Stamp stamp) throws IOException {
+    byte[] contents = Files.readAllBytes(stamp.key.path);
+    TomlParseResult result = Toml.parse(new ByteArrayInputStream(contents), stamp.key.version);
+    byte @Nullable [] hash = isTrusted(stamp) ? null : TomlParseCache.sha256(contents);
+    Entry entry = new Entry(stamp, result, result.memoryStats().total(), hash);
+    store(entry);
+    return entry;
+  }
+
+  private static boolean isTrusted(Stamp stamp) {
+    return System.currentTimeMillis() - stamp.mtime > MTIME_GRANULARITY_MILLIS;
+  }
+
+  private void store(Entry entry) {
+    if (entry.weight <= maximumBytes) {
+      synchronized (this) {
+        Entry previous = entries.put(entry.stamp.key, entry);
+        if (previous != null) {
+          weight -= previous.weight;
+        }
+        weight += entry.weight;
+        evict();
+      }
+    }
+  }
+
+  // called while holding the lock
+  private void evict() {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (weight > maximumBytes && iterator.hasNext()) {
+      weight -= iterator.next().weight;
+      iterator.remove();
+      evictions.increment();
+    }
+  }
+
+  /**
+   * Discard the cached results for a file.
+   *
+   * @param file The file.
+   */
+  public synchronized void invalidate(Path file) {
+    Path path = file.toAbsolutePath().normalize();
+    Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Key, Entry> entry = iterator.next();
+      if (entry.getKey().path.equals(path)) {
+        weight -= entry.getValue().weight;
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Discard all cached results.
+   */
+  public synchronized void invalidateAll() {
+    entries.clear();
+    weight = 0;
+  }
+
+  /**
+   * @return The number of cached results.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return The estimated size of all cached results, in bytes.
+   */
+  public synchronized long weightedSize() {
+    return weight;
+  }
+
+  /**
+   * @return The maximum estimated size of all cached results, in bytes.
+   */
+  public long maximumBytes() {
+    return maximumBytes;
+  }
+
+  /**
+   * @return The number of requests answered from the cache.
+   */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * @return The number of requests that parsed the file, or waited for a concurrent parse of it.
+   */
+  public long missCount() {
+    return misses.sum();
+  }
+
+  /**
+   * @return The number of results evicted to keep within the maximum size.
+   */
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "TomlCache{size="
+        + size()
+        + ", weightedSize="
+        + weightedSize()
+        + ", hits="
+        + hitCount()
+        + ", misses="
+        + missCount()
+        + ", evictions="
+        + evictionCount()
+        + "}";
+  }
+
+  private static final class Key {
+    final Path path;
+    final TomlVersion version;
+
+    Key(Path path, TomlVersion version) {
+      this.path = path;
+      this.version = version;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return path.equals(other.path) && version == other.version;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * path.hashCode() + version.hashCode();
+    }
+  }
+
+  private static final class Stamp {
+    final Key key;
+    final long size;
+    final long mtime;
+
+    Stamp(Key key, long size, long mtime) {
+      this.key = key;
+      this.size = size;
+      this.mtime = mtime;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Stamp)) {
+        return false;
+      }
+      Stamp other = (Stamp) obj;
+      return key.equals(other.key) && size == other.size && mtime == other.mtime;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * key.hashCode() + Long.hashCode(size)) + Long.hashCode(mtime);
+    }
+  }
+
+  private static final class Entry {
+    final Stamp stamp;
+    final TomlParseResult result;
+    final long weight;
+    // the hash of the contents, if the modification time is too recent to be trusted
+    final byte @Nullable [] hash;
+
+    Entry(Stamp stamp, TomlParseResult result, long weight, byte @Nullable [] hash) {
+      this.stamp = stamp;
+      this.result = result;
+      this.weight = weight;
+      this.hash = hash;
+    }
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The differences between two tables.
+ *
+ * <p>
+ * A diff lists the key paths that were added, removed or changed between an old and a new table:
+ *
+ * <pre>{@code
+ * TomlDiff diff = TomlDiff.compute(previous, Toml.parse(path));
+ * for (TomlDiff.Change change : diff.changes()) {
+ *   System.out.println(change);
+ * }
+ * }</pre>
+ *
+ * <p>
+ * Tables present in both are compared key by key, so a change is reported at the deepest path that differs. Arrays
+ * are compared as values, and a table that is only present on one side is reported as a single change. Subtrees that
+ * are the same object, or whose cached structural hash codes show them to be equal, are skipped without being
+ * traversed, so computing a diff costs time proportional to the size of the tables at most.
+ */
+public final class TomlDiff {
+
+  /**
+   * The kind of a change.
+   */
+  public enum Kind {
+    /** The path is only present in the new table. */
+    ADDED,
+    /** The path is only present in the old table. */
+    REMOVED,
+    /** The path has different values in the old and new tables. */
+    CHANGED
+  }
+
+  /**
+   * A change to a key path.
+   */
+  public static final class Change {
+    private final Kind kind;
+    private final TomlPath path;
+    @Nullable
+    private final Object oldValue;
+    @Nullable
+    private final Object newValue;
+    @Nullable
+    private final TomlPosition oldPosition;
+    @Nullable
+    private final TomlPosition newPosition;
+
+    Change(
+        Kind kind,
+        TomlPath path,
+        @Nullable Object oldValue,
+        @Nullable Object newValue,
+        @Nullable TomlPosition oldPosition,
+        @Nullable TomlPosition newPosition) {
+      this.kind = kind;
+      this.path = path;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+      this.oldPosition = oldPosition;
+      this.newPosition = newPosition;
+    }
+
+    /**
+     * @return The kind of change.
+     */
+    public Kind kind() {
+      return kind;
+    }
+
+    /**
+     * @return The key path that changed.
+     */
+    public List<String> path() {
+      return path;
+    }
+
+    /**
+     * @return The dotted key that changed, in canonical form.
+     */
+    public String dottedKey() {
+      return path.toString();
+    }
+
+    /**
+     * @return The value in the old table, or {@code null} if the path was added.
+     */
+    @Nullable
+    public Object oldValue() {
+      return oldValue;
+    }
+
+    /**
+     * @return The value in the new table, or {@code null} if the path was removed.
+     */
+    @Nullable
+    public Object newValue() {
+      return newValue;
+    }
+
+    /**
+     * @return The input position in the old table, or {@code null} if the path was added or the position is unknown.
+     */
+    @Nullable
+    public TomlPosition oldPosition() {
+      return oldPosition;
+    }
+
+    /**
+     * @return The input position in the new table, or {@code null} if the path was removed or the position is
+     *         unknown.
+     */
+    @Nullable
+    public TomlPosition newPosition() {
+      return newPosition;
+    }
+
+    @Override
+    public String toString() {
+      switch (kind) {
+        case ADDED:
+          return "+ " + path + " = " + newValue;
+        case REMOVED:
+          return "- " + path + " = " + oldValue;
+        default:
+          return "~ " + path + " = " + oldValue + " -> " + newValue;
+      }
+    }
+  }
+
+  private final List<Change> changes;
+
+  private TomlDiff(List<Change> changes) {
+    this.changes = changes;
+  }
+
+  /**
+   * Compute the differences between two tables.
+   *
+   * @param oldTable The old table.
+   * @param newTable The new table.
+   * @return The differences.
+   */
+  public static TomlDiff compute(TomlTable oldTable, TomlTable newTable) {
+    requireNonNull(oldTable);
+    requireNonNull(newTable);
+    List<Change> changes = new ArrayList<>();
+    if (!sameSubtree(oldTable, newTable)) {
+      diff(oldTable, newTable, new String[0], changes);
+    }
+    return new TomlDiff(Collections.unmodifiableList(changes));
+  }
+
+  // whether two tables can be seen to be equal without traversing them
+  private static boolean sameSubtree(TomlTable oldTable, TomlTable newTable) {
+    if (oldTable == newTable) {
+      return true;
+    }
+    if (Toml.hasStructuralHashCode(oldTable) && Toml.hasStructuralHashCode(newTable)) {
+      return oldTable.hashCode() == newTable.hashCode() && Toml.equals(oldTable, newTable);
+    }
+    return false;
+  }
+
+  private static void diff(TomlTable oldTable, TomlTable newTable, String[] prefix, List<Change> changes) {
+    for (String key : oldTable.keySet()) {
+      List<String> keyPath = Collections.singletonList(key);
+      Object oldValue = oldTable.get(keyPath);
+      Object newValue = newTable.get(keyPath);
+      assert oldValue != null;
+      TomlPath path = pathOf(prefix, key);
+      if (newValue == null) {
+        changes.add(new Change(Kind.REMOVED, path, oldValue, null, oldTable.inputPositionOf(keyPath), null));
+      } else if (oldValue instanceof TomlTable && newValue instanceof TomlTable) {
+        if (!sameSubtree((TomlTable) oldValue, (TomlTable) newValue)) {
+          diff((TomlTable) oldValue, (TomlTable) newValue, path.toArray(new String[0]), changes);
+        }
+      } else if (!Toml.valuesEqual(oldValue, newValue)) {
+        TomlPosition oldPosition = oldTable.inputPositionOf(keyPath);
+        TomlPosition newPosition = newTable.inputPositionOf(keyPath);
+        changes.add(new Change(Kind.CHANGED, path, oldValue, newValue, oldPosition, newPosition));
+      }
+    }
+    for (String key : newTable.keySet()) {
+      List<String> keyPath = Collections.singletonList(key);
+      if (!oldTable.contains(keyPath)) {
+        Object newValue = newTable.get(keyPath);
+        TomlPosition newPosition = newTable.inputPositionOf(keyPath);
+        changes.add(new Change(Kind.ADDED, pathOf(prefix, key), null, newValue, null, newPosition));
+      }
+    }
+  }
+
+  private static TomlPath pathOf(String[] prefix, String key) {
+    String[] keys = Arrays.copyOf(prefix, prefix.length + 1);
+    keys[prefix.length] = key;
+    return new TomlPath(keys);
+  }
+
+  /**
+   * @return The changes, with the changes to each table listed in the order of the old table's keys, followed by
+   *         the keys added in the new table.
+   */
+  public List<Change> changes() {
+    return changes;
+  }
+
+  /**
+   * @return {@code true} if the tables are equivalent.
+   */
+  public boolean isEmpty() {
+    return changes.isEmpty();
+  }
+
+  /**
+   * Apply the changes to a table.
+   *
+   * <p>
+   * Applying a diff to its old table produces a table equal to its new table. If {@code base} is a
+   * {@link PersistentTomlTable}, the result shares every subtree that the changes do not touch with it.
+   *
+   * @param base The table to apply the changes to.
+   * @return A new table with the changes applied.
+   * @throws IllegalArgumentException If a changed path passes through a value in {@code base} that is not a table.
+   */
+  public PersistentTomlTable apply(TomlTable base) {
+    PersistentTomlTable result = PersistentTomlTable.of(base);
+    for (Change change : changes) {
+      if (change.kind == Kind.REMOVED) {
+        result = result.without(change.path);
+      } else {
+        assert change.newValue != null;
+        result = result.with(change.path, change.newValue);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (Change change : changes) {
+      builder.append(change).append('\n');
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A value in a TOML document, with its key path and input position.
+ */
+public final class TomlEntry {
+
+  private final TomlPath path;
+  private final Object value;
+  @Nullable
+  private final TomlPosition position;
+
+  TomlEntry(TomlPath path, Object value, @Nullable TomlPosition position) {
+    this.path = path;
+    this.value = value;
+    this.position = position;
+  }
+
+  /**
+   * The key path of the value.
+   *
+   * @return The key path.
+   */
+  public List<String> path() {
+    return path;
+  }
+
+  /**
+   * The dotted key of the value, in canonical form.
+   *
+   * @return The dotted key.
+   */
+  public String dottedKey() {
+    return path.toString();
+  }
+
+  /**
+   * The value.
+   *
+   * @return The value.
+   */
+  public Object value() {
+    return value;
+  }
+
+  /**
+   * The position of the value in the input document.
+   *
+   * @return The input position, or {@code null} if the position is not known.
+   */
+  @Nullable
+  public TomlPosition position() {
+    return position;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof TomlEntry)) {
+      return false;
+    }
+    TomlEntry other = (TomlEntry) obj;
+    return path.equals(other.path) && value.equals(other.value) && Objects.equals(position, other.position);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * path.hashCode() + value.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return path + " = " + value + (position != null ? " (" + position + ")" : "");
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A sorted index of the keys in a TOML document, supporting prefix and wildcard queries.
+ *
+ * <p>
+ * The index is a trie with one node per key, built in a single pass over the table tree. Children of each node are
+ * sorted, so queries return entries in key order. Entries are the leaf values of the document (all values other than
+ * tables, so arrays are leaf values).
+ *
+ * <p>
+ * The index is immutable, and may be queried concurrently. Queries return lazy views, which walk the trie as they are
+ * iterated.
+ */
+public final class TomlKeyIndex {
+
+  private static final String[] NO_KEYS = new String[0];
+  private static final Node[] NO_CHILDREN = new Node[0];
+
+  private static final class Node {
+    final String[] keys;
+    final Node[] children;
+    @Nullable
+    final TomlEntry entry;
+
+    Node(String[] keys, Node[] children, @Nullable TomlEntry entry) {
+      this.keys = keys;
+      this.children = children;
+      this.entry = entry;
+    }
+
+    @Nullable
+    Node child(String key) {
+      int i = Arrays.binarySearch(keys, key);
+      return (i >= 0) ? children[i] : null;
+    }
+  }
+
+  private final Node root;
+  private final int size;
+
+  /**
+   * Build an index of the keys in a table.
+   *
+   * @param table The table.
+   * @return The index.
+   */
+  public static TomlKeyIndex of(TomlTable table) {
+    requireNonNull(table);
+    int[] size = new int[1];
+    Node root = build(table, NO_KEYS, size);
+    return new TomlKeyIndex(root, size[0]);
+  }
+
+  private static Node build(TomlTable table, String[] prefix, int[] size) {
+    String[] keys = table.keySet().toArray(NO_KEYS);
+    Arrays.sort(keys);
+    Node[] children = (keys.length == 0) ? NO_CHILDREN : new Node[keys.length];
+    for (int i = 0; i < keys.length; ++i) {
+      String[] path = Arrays.copyOf(prefix, prefix.length + 1);
+      path[prefix.length] = keys[i];
+      List<String> key = Collections.singletonList(keys[i]);
+      Object value = table.get(key);
+      assert value != null;
+      if (value instanceof TomlTable) {
+        children[i] = build((TomlTable) value, path, size);
+      } else {
+        TomlEntry entry = new TomlEntry(new TomlPath(path), value, table.inputPositionOf(key));
+        children[i] = new Node(NO_KEYS, NO_CHILDREN, entry);
+        size[0]++;
+      }
+    }
+    return new Node(keys, children, null);
+  }
+
+  private TomlKeyIndex(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * The number of entries in the index.
+   *
+   * @return The number of leaf values in the document.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Find the entry for a key path.
+   *
+   * @param path The key path.
+   * @return The entry, or {@code null} if there is no leaf value at the path.
+   */
+  @Nullable
+  public TomlEntry entry(List<String> path) {
+    requireNonNull(path);
+    Node node = root;
+    for (String key : path) {
+      node = node.child(key);
+      if (node == null) {
+        return null;
+      }
+    }
+    return node.entry;
+  }
+
+  /**
+   * All the entries in the index, in key order.
+   *
+   * @return A lazy view of all the entries.
+   */
+  public Iterable<TomlEntry> entries() {
+    return () -> new MatchIterator(new String[0]);
+  }
+
+  /**
+   * The entries at and under a key path, in key order.
+   *
+   * @param prefix The key path.
+   * @return A lazy view of the entry at the path (if it is a leaf value) and of the entries under it.
+   */
+  public Iterable<TomlEntry> entriesUnder(List<String> prefix) {
+    requireNonNull(prefix);
+    String[] pattern = prefix.toArray(NO_KEYS);
+    for (String key : pattern) {
+      requireNonNull(key);
+    }
+    return () -> new MatchIterator(pattern);
+  }
+
+  /**
+   * The entries at and under the key paths matching a pattern, in key order.
+   *
+   * <p>
+   * A pattern is a dotted key (e.g. {@code "services.*.endpoints"}) in which an unquoted {@code *} matches any single
+   * key. A quoted {@code "*"} matches only the key {@code *}. An empty pattern matches every entry.
+   *
+   * @param pattern The pattern.
+   * @return A lazy view of the entries at and under every key path matching the pattern.
+   * @throws IllegalArgumentException If the pattern cannot be parsed.
+   */
+  public Iterable<TomlEntry> entriesMatching(String pattern) {
+    requireNonNull(pattern);
+    String[] segments = parsePattern(pattern);
+    return () -> new MatchIterator(segments);
+  }
+
+  /**
+   * Parse a pattern into its keys, with {@code null} standing for a wildcard.
+   */
+  private static String[] parsePattern(String pattern) {
+    List<String> segments = new ArrayList<>();
+    if (pattern.trim().isEmpty()) {
+      return NO_KEYS;
+    }
+    int start = 0;
+    char quote = 0;
+    for (int i = 0; i <= pattern.length(); ++i) {
+      char ch = (i < pattern.length()) ? pattern.charAt(i) : '.';
+      if (quote != 0) {
+        if (ch == '\\' && quote == '"') {
+          ++i;
+        } else if (ch == quote) {
+          quote = 0;
+        }
+        continue;
+      }
+      if (ch == '"' || ch == '\'') {
+        quote = ch;
+      } else if (ch == '.') {
+        String segment = pattern.substring(start, i).trim();
+        if (segment.equals("*")) {
+          segments.add(null);
+        } else {
+          List<String> keys = Parser.parseDottedKey(segment);
+          if (keys.size() != 1) {
+            throw new IllegalArgumentException("Invalid key pattern: " + pattern);
+          }
+          segments.add(keys.get(0));
+        }
+        start = i + 1;
+      }
+    }
+    if (quote != 0) {
+      throw new IllegalArgumentException("Invalid key pattern: " + pattern);
+    }
+    return segments.toArray(NO_KEYS);
+  }
+
+  private static final class Frame {
+    final Node node;
+    final int depth;
+    int next = -1;
+
+    Frame(Node node, int depth) {
+      this.node = node;
+      this.depth = depth;
+    }
+  }
+
+  /**
+   * Walks the trie depth-first, following the pattern (where {@code null} keys are wildcards) and then every node
+   * under the nodes that match it.
+   */
+  private final class MatchIterator implements Iterator<TomlEntry> {
+    private final String[] pattern;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    @Nullable
+    private TomlEntry next;
+
+    MatchIterator(String[] pattern) {
+      this.pattern = pattern;
+      stack.push(new Frame(root, 0));
+      advance();
+    }
+
+    private void advance() {
+      next = null;
+      while (!stack.isEmpty()) {
+        Frame frame = stack.peek();
+        Node node = frame.node;
+        if (frame.next < 0) {
+          frame.next = 0;
+          if (frame.depth >= pattern.length && node.entry != null) {
+            next = node.entry;
+            stack.pop();
+            return;
+          }
+        }
+        if (frame.depth < pattern.length && pattern[frame.depth] != null) {
+          stack.pop();
+          Node child = node.child(pattern[frame.depth]);
+          if (child != null) {
+            stack.push(new Frame(child, frame.depth + 1));
+          }
+          continue;
+        }
+        if (frame.next < node.children.length) {
+          stack.push(new Frame(node.children[frame.next++], frame.depth + 1));
+          continue;
+        }
+        stack.pop();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public TomlEntry next() {
+      TomlEntry entry = next;
+      if (entry == null) {
+        throw new NoSuchElementException();
+      }
+      advance();
+      return entry;
+    }
+  }
+}
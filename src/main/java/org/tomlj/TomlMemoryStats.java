@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An estimate of the heap memory retained by a table and everything it holds.
+ *
+ * <p>
+ * Sizes are computed from a model of the object layout of the classes holding the document, for a 64-bit HotSpot JVM
+ * with compressed object pointers (12-byte object headers, 16-byte array headers, 4-byte references and 8-byte
+ * alignment), and compact strings. Objects shared within the document, such as pooled keys, are counted once. Cached
+ * JDK instances ({@link Boolean} values, small {@link Long} values and {@link java.time.ZoneOffset}s) are not counted.
+ * Lookup indexes that are built on first use are not included.
+ */
+public final class TomlMemoryStats {
+
+  private static final int OBJECT_HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int ALIGNMENT = 8;
+
+  private final long strings;
+  private final long boxedNumbers;
+  private final long temporals;
+  private final long tables;
+  private final long arrays;
+  private final long positions;
+
+  private TomlMemoryStats(Builder builder) {
+    this.strings = builder.strings;
+    this.boxedNumbers = builder.boxedNumbers;
+    this.temporals = builder.temporals;
+    this.tables = builder.tables;
+    this.arrays = builder.arrays;
+    this.positions = builder.positions;
+  }
+
+  /**
+   * Estimate the memory retained by a table.
+   *
+   * @param table The table.
+   * @return The estimate.
+   */
+  public static TomlMemoryStats of(TomlTable table) {
+    requireNonNull(table);
+    Builder builder = new Builder();
+    builder.value(table);
+    return new TomlMemoryStats(builder);
+  }
+
+  /**
+   * @return The bytes held by string keys and values, including their character arrays.
+   */
+  public long strings() {
+    return strings;
+  }
+
+  /**
+   * @return The bytes held by boxed integer, float and boolean values. Tables and primitive arrays hold these values
+   *         unboxed, so this only counts values held in arrays of mixed types.
+   */
+  public long boxedNumbers() {
+    return boxedNumbers;
+  }
+
+  /**
+   * @return The bytes held by date and time values.
+   */
+  public long temporals() {
+    return temporals;
+  }
+
+  /**
+   * @return The bytes held by tables, including their key and value arrays, lookup indexes and unboxed values.
+   */
+  public long tables() {
+    return tables;
+  }
+
+  /**
+   * @return The bytes held by arrays, including their element arrays.
+   */
+  public long arrays() {
+    return arrays;
+  }
+
+  /**
+   * @return The bytes held by the input positions of values.
+   */
+  public long positions() {
+    return positions;
+  }
+
+  /**
+   * @return The total bytes retained.
+   */
+  public long total() {
+    return strings + boxedNumbers + temporals + tables + arrays + positions;
+  }
+
+  @Override
+  public String toString() {
+    return "TomlMemoryStats{total="
+        + total()
+        + ", strings="
+        + strings
+        + ", boxedNumbers="
+        + boxedNumbers
+        + ", temporals="
+        + temporals
+        + ", tables="
+        + tables
+        + ", arrays="
+        + arrays
+        + ", positions="
+        + positions
+        + "}";
+  }
+
+  /**
+   * The size of an object.
+   *
+   * @param references The number of reference fields.
+   * @param primitiveBytes The total size of primitive fields.
+   * @return The aligned size in bytes.
+   */
+  static long objectSize(int references, int primitiveBytes) {
+    return align(OBJECT_HEADER + (long) references * REFERENCE + primitiveBytes);
+  }
+
+  /**
+   * The size of an array.
+   *
+   * @param length The length of the array.
+   * @param elementBytes The size of each element (use {@code 0} for references).
+   * @return The aligned size in bytes.
+   */
+  static long arraySize(int length, int elementBytes) {
+    return align(ARRAY_HEADER + (long) length * ((elementBytes == 0) ? REFERENCE : elementBytes));
+  }
+
+  private static long align(long size) {
+    return (size + ALIGNMENT - 1) & -ALIGNMENT;
+  }
+
+  /**
+   * Accumulates sizes while walking a document.
+   */
+  static final class Builder {
+    private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    long strings;
+    long boxedNumbers;
+    long temporals;
+    long tables;
+    long arrays;
+    long positions;
+
+    void table(long bytes) {
+      tables += bytes;
+    }
+
+    void array(long bytes) {
+      arrays += bytes;
+    }
+
+    void positions(long bytes) {
+      positions += bytes;
+    }
+
+    void string(String value) {
+      if (seen.add(value)) {
+        // a compact string holds latin-1 text in one byte per character, and other text in two
+        boolean latin1 = value.chars().allMatch(c -> c < 0x100);
+        strings += objectSize(1, 6) + arraySize(value.length() * (latin1 ? 1 : 2), 1);
+      }
+    }
+
+    void value(Object value) {
+      if (value instanceof String) {
+        string((String) value);
+        return;
+      }
+      if (value == Boolean.TRUE || value == Boolean.FALSE || !seen.add(value)) {
+        return;
+      }
+      if (value instanceof Long) {
+        long l = (Long) value;
+        if (l < -128 || l > 127) {
+          boxedNumbers += objectSize(0, 8);
+        }
+      } else if (value instanceof Double || value instanceof Boolean) {
+        boxedNumbers += objectSize(0, (value instanceof Double) ? 8 : 1);
+      } else if (value instanceof OffsetDateTime) {
+        temporals += objectSize(2, 0) + localDateTimeSize();
+      } else if (value instanceof LocalDateTime) {
+        temporals += localDateTimeSize();
+      } else if (value instanceof LocalDate) {
+        temporals += objectSize(0, 8);
+      } else if (value instanceof LocalTime) {
+        temporals += objectSize(0, 7);
+      } else if (value instanceof FrozenTomlParseResult) {
+        ((FrozenTomlParseResult) value).measure(this);
+      } else if (value instanceof FrozenTomlTable) {
+        ((FrozenTomlTable) value).measure(this);
+      } else if (value instanceof FrozenTomlArray) {
+        ((FrozenTomlArray) value).measure(this);
+      } else if (value instanceof PrimitiveTomlArray) {
+        ((PrimitiveTomlArray) value).measure(this);
+      } else if (value instanceof TapeTomlTable) {
+        // the contents of a tape are held outside of the heap
+        table(objectSize(1, 8));
+      } else if (value instanceof TapeTomlArray) {
+        array(objectSize(1, 8));
+      } else if (value instanceof TomlTable) {
+        otherTable((TomlTable) value);
+      } else if (value instanceof TomlArray) {
+        otherArray((TomlArray) value);
+      }
+    }
+
+    private static long localDateTimeSize() {
+      return objectSize(2, 0) + objectSize(0, 8) + objectSize(0, 7);
+    }
+
+    // tables of other implementations are estimated as if they were frozen
+    private void otherTable(TomlTable table) {
+      int size = table.size();
+      table(objectSize(5, 4) + 2 * arraySize(size, 0));
+      positions(arraySize(size, 8));
+      table.forEach((key, value) -> {
+        string(key);
+        value(value);
+      });
+    }
+
+    private void otherArray(TomlArray array) {
+      int size = array.size();
+      array(objectSize(2, 5) + arraySize(size, 0));
+      positions(arraySize(size, 8));
+      List<Object> values = array.toList();
+      for (Object value : values) {
+        value(value);
+      }
+    }
+  }
+}
@@ -0,0 +1,599 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A merged view of a stack of tables.
+ *
+ * <p>
+ * Layers are ordered from lowest to highest precedence, so a value in a later layer overrides the value for the same
+ * key in an earlier layer:
+ *
+ * <pre>{@code
+ * TomlOverlay config = TomlOverlay.of(defaults, site, tenant, environment);
+ * long port = config.getLongOrDefault("server.port", 80);
+ * }</pre>
+ *
+ * <p>
+ * The overlay does not copy the layers. On first use, it resolves the layer providing each key of the merged view,
+ * and later lookups use that resolution directly: a lookup of a dotted key costs a single hash lookup, however many
+ * layers there are. Tables are immutable, so the resolution is only rebuilt for a new overlay, such as one returned by
+ * {@link #withLayer(int, TomlTable)}. A {@link ConcurrentTomlTable} layer is the exception: the overlay holds its
+ * {@link ConcurrentTomlTable#snapshot() snapshot}, so later updates to the table are not seen until the layer is
+ * replaced.
+ *
+ * <p>
+ * By default, tables present in several layers are merged, and arrays in a higher layer replace those in lower layers.
+ * Both behaviors can be configured with {@link #of(List, TableMode, ArrayMode)}. Keys are ordered by their first
+ * appearance, starting from the lowest layer.
+ */
+public final class TomlOverlay implements TomlTable {
+
+  /**
+   * How tables present in several layers are combined.
+   */
+  public enum TableMode {
+    /**
+     * The keys of tables in all layers are merged, resolving each key separately.
+     */
+    MERGE,
+    /**
+     * The table in the highest layer replaces tables in lower layers.
+     */
+    REPLACE
+  }
+
+  /**
+   * How arrays present in several layers are combined.
+   */
+  public enum ArrayMode {
+    /**
+     * The array in the highest layer replaces arrays in lower layers.
+     */
+    REPLACE,
+    /**
+     * The elements of arrays in higher layers are appended to the elements of arrays in lower layers.
+     */
+    APPEND
+  }
+
+  private static final class Resolved {
+    final Object value;
+    // the highest layer providing the value
+    final int layer;
+    // the table holding the key in that layer
+    final TomlTable source;
+
+    Resolved(Object value, int layer, TomlTable source) {
+      this.value = value;
+      this.layer = layer;
+      this.source = source;
+    }
+  }
+
+  private final TomlTable[] layers;
+  private final int[] layerNumbers;
+  private final TableMode tableMode;
+  private final ArrayMode arrayMode;
+  private volatile @Nullable Map<String, Resolved> resolved;
+  private volatile @Nullable FlatIndex flatIndex;
+  // the structural hash code, computed on first use
+  private int hash;
+
+  private TomlOverlay(TomlTable[] layers, int[] layerNumbers, TableMode tableMode, ArrayMode arrayMode) {
+    this.layers = layers;
+    this.layerNumbers = layerNumbers;
+    this.tableMode = tableMode;
+    this.arrayMode = arrayMode;
+  }
+
+  /**
+   * Create an overlay that merges tables and replaces arrays.
+   *
+   * @param layers The layers, from lowest to highest precedence. Concurrent tables are replaced with their current
+   *        snapshot.
+   * @return The overlay.
+   */
+  public static TomlOverlay of(TomlTable... layers) {
+    return of(Arrays.asList(layers), TableMode.MERGE, ArrayMode.REPLACE);
+  }
+
+  /**
+   * Create an overlay.
+   *
+   * @param layers The layers, from lowest to highest precedence. Concurrent tables are replaced with their current
+   *        snapshot.
+   * @param tableMode How tables present in several layers are combined.
+   * @param arrayMode How arrays present in several layers are combined.
+   * @return The overlay.
+   */
+  public static TomlOverlay of(List<? extends TomlTable> layers, TableMode tableMode, ArrayMode arrayMode) {
+    requireNonNull(tableMode);
+    requireNonNull(arrayMode);
+    TomlTable[] tables = layers.toArray(new TomlTable[0]);
+    int[] layerNumbers = new int[tables.length];
+    for (int i = 0; i < tables.length; ++i) {
+      requireNonNull(tables[i]);
+      if (tables[i] instanceof ConcurrentTomlTable) {
+        tables[i] = ((ConcurrentTomlTable) tables[i]).snapshot();
+      }
+      layerNumbers[i] = i;
+    }
+    return new TomlOverlay(tables, layerNumbers, tableMode, arrayMode);
+  }
+
+  /**
+   * @return The tables in this overlay, from lowest to highest precedence.
+   */
+  public List<TomlTable> layers() {
+    return Collections.unmodifiableList(Arrays.asList(layers));
+  }
+
+  /**
+   * Create an overlay with one layer replaced.
+   *
+   * @param index The index of the layer to replace.
+   * @param layer The new layer. A concurrent table is replaced with its current snapshot.
+   * @return A new overlay, using the same modes as this overlay.
+   * @throws IndexOutOfBoundsException If the index is out of range.
+   */
+  public TomlOverlay withLayer(int index, TomlTable layer) {
+    requireNonNull(layer);
+    List<TomlTable> tables = new ArrayList<>(Arrays.asList(layers));
+    tables.set(index, layer);
+    return of(tables, tableMode, arrayMode);
+  }
+
+  /**
+   * Create an overlay with an additional layer of highest precedence.
+   *
+   * @param layer The new layer. A concurrent table is replaced with its current snapshot.
+   * @return A new overlay, using the same modes as this overlay.
+   */
+  public TomlOverlay withLayerAdded(TomlTable layer) {
+    requireNonNull(layer);
+    List<TomlTable> tables = new ArrayList<>(Arrays.asList(layers));
+    tables.add(layer);
+    return of(tables, tableMode, arrayMode);
+  }
+
+  /**
+   * Find the layer providing a value.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @return The index of the layer providing the value, or {@code -1} if no layer has a value for the key. For a table
+   *         merged from several layers, this is the highest of those layers.
+   * @throws IllegalArgumentException If the key cannot be parsed.
+   */
+  public int layerOf(String dottedKey) {
+    return layerOf(pathOf(dottedKey));
+  }
+
+  /**
+   * Find the layer providing a value.
+   *
+   * @param path The key path.
+   * @return The index of the layer providing the value, or {@code -1} if no layer has a value for the path. For a table
+   *         merged from several layers, this is the highest of those layers.
+   */
+  public int layerOf(List<String> path) {
+    requireNonNull(path);
+    TomlOverlay overlay = this;
+    int depth = path.size();
+    for (int i = 0; i < depth; ++i) {
+      Resolved entry = overlay.resolved().get(path.get(i));
+      if (entry == null) {
+        return -1;
+      }
+      if (i == depth - 1) {
+        return entry.layer;
+      }
+      if (entry.value instanceof TomlOverlay) {
+        overlay = (TomlOverlay) entry.value;
+      } else if (entry.value instanceof TomlTable) {
+        return ((TomlTable) entry.value).contains(path.subList(i + 1, depth)) ? entry.layer : -1;
+      } else {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private Map<String, Resolved> resolved() {
+    Map<String, Resolved> map = resolved;
+    if (map == null) {
+      map = resolve();
+      resolved = map;
+    }
+    return map;
+  }
+
+  private FlatIndex flatIndex() {
+    FlatIndex index = flatIndex;
+    if (index == null) {
+      index = FlatIndex.build(this);
+      flatIndex = index;
+    }
+    return index;
+  }
+
+  private Map<String, Resolved> resolve() {
+    Map<String, Resolved> map = new LinkedHashMap<>();
+    for (TomlTable layer : layers) {
+      for (String key : layer.keySet()) {
+        if (!map.containsKey(key)) {
+          map.put(key, resolveKey(key));
+        }
+      }
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  private Resolved resolveKey(String key) {
+    List<String> path = Collections.singletonList(key);
+    int top = layers.length - 1;
+    Object value = null;
+    while ((value = layers[top].get(path)) == null) {
+      --top;
+    }
+    if (value instanceof TomlTable && tableMode == TableMode.MERGE) {
+      // merge the tables below the top layer, down to any value that is not a table
+      int bottom = top;
+      while (bottom > 0 && (layers[bottom - 1].get(path) instanceof TomlTable || !layers[bottom - 1].contains(path))) {
+        --bottom;
+      }
+      List<TomlTable> tables = new ArrayList<>();
+      List<Integer> numbers = new ArrayList<>();
+      for (int i = bottom; i <= top; ++i) {
+        Object table = layers[i].get(path);
+        if (table != null) {
+          tables.add((TomlTable) table);
+          numbers.add(layerNumbers[i]);
+        }
+      }
+      if (tables.size() > 1) {
+        int[] layerNumbers = numbers.stream().mapToInt(Integer::intValue).toArray();
+        value = new TomlOverlay(tables.toArray(new TomlTable[0]), layerNumbers, tableMode, arrayMode);
+      }
+    } else if (value instanceof TomlArray && arrayMode == ArrayMode.APPEND) {
+      // append to the arrays below the top layer, down to any value that is not an array
+      List<TomlArray> arrays = new ArrayList<>();
+      for (int i = top; i >= 0; --i) {
+        Object array = layers[i].get(path);
+        if (array instanceof TomlArray) {
+          arrays.add(0, (TomlArray) array);
+        } else if (array != null) {
+          break;
+        }
+      }
+      if (arrays.size() > 1) {
+        value = concat(arrays);
+      }
+    }
+    return new Resolved(value, layerNumbers[top], layers[top]);
+  }
+
+  private static TomlArray concat(List<TomlArray> arrays) {
+    int size = 0;
+    for (TomlArray array : arrays) {
+      size += array.size();
+    }
+    Object[] values = new Object[size];
+    long[] positions = new long[size];
+    int i = 0;
+    for (TomlArray array : arrays) {
+      for (int j = 0; j < array.size(); ++j, ++i) {
+        values[i] = array.get(j);
+        positions[i] = TomlPosition.pack(array.inputPositionOf(j));
+      }
+    }
+    return new FrozenTomlArray(values, positions, false);
+  }
+
+  /**
+   * Resolve a dotted key, using the index for keys in canonical form and parsing other keys.
+   */
+  private List<String> pathOf(String dottedKey) {
+    requireNonNull(dottedKey);
+    FlatIndex index = flatIndex();
+    int i = index.indexOf(dottedKey);
+    return (i >= 0) ? index.path(i) : Parser.parseDottedKey(dottedKey);
+  }
+
+  /**
+   * Find the table holding the last key of a path: either an overlay, or a table from a single layer.
+   *
+   * @return The table, or {@code null} if an element of the path preceding the final key is missing or not a table.
+   */
+  @Nullable
+  private TomlTable parentOf(List<String> path) {
+    TomlTable table = this;
+    int depth = path.size();
+    for (int i = 0; i < (depth - 1); ++i) {
+      if (!(table instanceof TomlOverlay)) {
+        Object value = table.get(path.subList(i, depth - 1));
+        return (value instanceof TomlTable) ? (TomlTable) value : null;
+      }
+      Resolved entry = ((TomlOverlay) table).resolved().get(path.get(i));
+      if (entry == null || !(entry.value instanceof TomlTable)) {
+        return null;
+      }
+      table = (TomlTable) entry.value;
+    }
+    return table;
+  }
+
+  @Override
+  public int size() {
+    return resolved().size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return resolved().isEmpty();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return resolved().keySet();
+  }
+
+  @Override
+  public Set<List<String>> keyPathSet(boolean includeTables) {
+    return flatIndex().keyPathSet(includeTables);
+  }
+
+  @Override
+  public Set<String> dottedKeySet(boolean includeTables) {
+    return flatIndex().dottedKeySet(includeTables);
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    Map<String, Resolved> map = resolved();
+    return new AbstractSet<Map.Entry<String, Object>>() {
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        Iterator<Map.Entry<String, Resolved>> entries = map.entrySet().iterator();
+        return new Iterator<Map.Entry<String, Object>>() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public Map.Entry<String, Object> next() {
+            Map.Entry<String, Resolved> entry = entries.next();
+            return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().value);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return map.size();
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<List<String>, Object>> entryPathSet(boolean includeTables) {
+    return flatIndex().entryPathSet(includeTables);
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> dottedEntrySet(boolean includeTables) {
+    return flatIndex().dottedEntrySet(includeTables);
+  }
+
+  @Override
+  public boolean contains(String dottedKey) {
+    requireNonNull(dottedKey);
+    return flatIndex().indexOf(dottedKey) >= 0 || contains(Parser.parseDottedKey(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public Object get(String dottedKey) {
+    requireNonNull(dottedKey);
+    FlatIndex index = flatIndex();
+    int i = index.indexOf(dottedKey);
+    return (i >= 0) ? index.value(i) : get(Parser.parseDottedKey(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public Object get(List<String> path) {
+    if (path.isEmpty()) {
+      return this;
+    }
+    TomlTable table = parentOf(path);
+    if (table == null) {
+      return null;
+    }
+    String key = path.get(path.size() - 1);
+    if (table instanceof TomlOverlay) {
+      Resolved entry = ((TomlOverlay) table).resolved().get(key);
+      return (entry != null) ? entry.value : null;
+    }
+    return table.get(Collections.singletonList(key));
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(String dottedKey) {
+    requireNonNull(dottedKey);
+    FlatIndex index = flatIndex();
+    int i = index.indexOf(dottedKey);
+    return (i >= 0) ? index.position(i) : inputPositionOf(Parser.parseDottedKey(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public TomlPosition inputPositionOf(List<String> path) {
+    if (path.isEmpty()) {
+      return TomlPosition.positionAt(1, 1);
+    }
+    TomlTable table = parentOf(path);
+    if (table == null) {
+      return null;
+    }
+    List<String> key = Collections.singletonList(path.get(path.size() - 1));
+    if (table instanceof TomlOverlay) {
+      Resolved entry = ((TomlOverlay) table).resolved().get(key.get(0));
+      return (entry != null) ? entry.source.inputPositionOf(key) : null;
+    }
+    return table.inputPositionOf(key);
+  }
+
+  @Override
+  @Nullable
+  public String getString(String dottedKey) {
+    return getString(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public Long getLong(String dottedKey) {
+    return getLong(pathOf(dottedKey));
+  }
+
+  @Override
+  public long getLongOrDefault(String dottedKey, long defaultValue) {
+    return getLongOrDefault(pathOf(dottedKey), defaultValue);
+  }
+
+  @Override
+  @Nullable
+  public Double getDouble(String dottedKey) {
+    return getDouble(pathOf(dottedKey));
+  }
+
+  @Override
+  public double getDoubleOrDefault(String dottedKey, double defaultValue) {
+    return getDoubleOrDefault(pathOf(dottedKey), defaultValue);
+  }
+
+  @Override
+  @Nullable
+  public Boolean getBoolean(String dottedKey) {
+    return getBoolean(pathOf(dottedKey));
+  }
+
+  @Override
+  public boolean getBooleanOrDefault(String dottedKey, boolean defaultValue) {
+    return getBooleanOrDefault(pathOf(dottedKey), defaultValue);
+  }
+
+  @Override
+  @Nullable
+  public OffsetDateTime getOffsetDateTime(String dottedKey) {
+    return getOffsetDateTime(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public LocalDateTime getLocalDateTime(String dottedKey) {
+    return getLocalDateTime(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public LocalDate getLocalDate(String dottedKey) {
+    return getLocalDate(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public LocalTime getLocalTime(String dottedKey) {
+    return getLocalTime(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public TomlArray getArray(String dottedKey) {
+    return getArray(pathOf(dottedKey));
+  }
+
+  @Override
+  @Nullable
+  public TomlTable getTable(String dottedKey) {
+    return getTable(pathOf(dottedKey));
+  }
+
+  @Override
+  public Map<String, Object> toMap() {
+    return new AbstractMap<String, Object>() {
+      @Override
+      public Set<Map.Entry<String, Object>> entrySet() {
+        return TomlOverlay.this.entrySet();
+      }
+
+      @Override
+      public Set<String> keySet() {
+        return TomlOverlay.this.keySet();
+      }
+
+      @Override
+      public int size() {
+        return resolved().size();
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return resolved().containsKey(key);
+      }
+
+      @Override
+      @Nullable
+      public Object get(Object key) {
+        Resolved entry = resolved().get(key);
+        return (entry != null) ? entry.value : null;
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof TomlTable) && Toml.equals(this, (TomlTable) obj);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = Toml.hashCode(this);
+      hash = h;
+    }
+    return h;
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A persistent cache of parsed documents, kept as binary snapshots in a local directory.
+ *
+ * <p>
+ * {@link #parse(Path)} can be used in place of {@link Toml#parse(Path)}. A snapshot is used when the size and
+ * modification time of the file are unchanged, or otherwise when the SHA-256 hash of its contents is unchanged.
+ * Otherwise the file is parsed and a new snapshot is written atomically, so concurrent processes sharing a directory
+ * never see a partial snapshot. Parse errors are kept in the snapshot too, so known-bad files fail fast.
+ *
+ * <p>
+ * Files modified within a couple of seconds before being snapshotted are always hashed when next read, as a later
+ * change may not have updated their modification time. Snapshots that cannot be read or written are ignored, and the
+ * file is parsed as usual.
+ */
+public final class TomlParseCache {
+
+  private static final int MAGIC = 0x544F4D43; // "TOMC"
+  private static final int FORMAT_VERSION = 1;
+  // modification times closer than this to the time of a snapshot are not trusted
+  private static final long MTIME_GRANULARITY_MICROS = TimeUnit.SECONDS.toMicros(2);
+
+  private final Path directory;
+
+  private TomlParseCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Use a cache directory, which is created when the first snapshot is written.
+   *
+   * @param directory The cache directory.
+   * @return The cache.
+   */
+  public static TomlParseCache in(Path directory) {
+    requireNonNull(directory);
+    return new TomlParseCache(directory);
+  }
+
+  /**
+   * @return The cache directory.
+   */
+  public Path directory() {
+    return directory;
+  }
+
+  /**
+   * Parse a TOML file, using a snapshot if the file is unchanged.
+   *
+   * @param file The input file to parse.
+   * @return The parse result.
+   * @throws IOException If an IO error occurs reading the input file.
+   */
+  public TomlParseResult parse(Path file) throws IOException {
+    return parse(file, TomlVersion.LATEST);
+  }
+
+  /**
+   * Parse a TOML file, using a snapshot if the file is unchanged.
+   *
+   * @param file The input file to parse.
+   * @param version The version level to parse at.
+   * @return The parse result.
+   * @throws IOException If an IO error occurs reading the input file.
+   */
+  public TomlParseResult parse(Path file, TomlVersion version) throws IOException {
+    requireNonNull(file);
+    requireNonNull(version);
+    Path source = file.toAbsolutePath().normalize();
+    String key = source + "\n" + version.canonical.name();
+    Path snapshotFile = directory.resolve(hex(sha256(key.getBytes(StandardCharsets.UTF_8))) + ".snapshot");
+
+    BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+    long size = attributes.size();
+    long mtime = attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS);
+    Snapshot snapshot = Snapshot.read(snapshotFile, key);
+    if (snapshot != null && snapshot.trusted && snapshot.size == size && snapshot.mtime == mtime) {
+      return snapshot.result();
+    }
+
+    byte[] contents = Files.readAllBytes(source);
+    byte[] hash = sha256(contents);
+    if (snapshot != null && Arrays.equals(snapshot.hash, hash)) {
+      // the contents are unchanged, so refresh the metadata of the snapshot if it is out of date
+      if (snapshot.size != size || snapshot.mtime != mtime || snapshot.trusted != isTrusted(mtime)) {
+        snapshot.write(snapshotFile, key, size, mtime);
+      }
+      return snapshot.result();
+    }
+
+    TomlParseResult result = Toml.parse(new ByteArrayInputStream(contents), version);
+    Snapshot
+        .of(hash, result)
+        .write(snapshotFile, key, contents.length, mtime);
+    return result;
+  }
+
+  private static boolean isTrusted(long mtime) {
+    return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()) - mtime > MTIME_GRANULARITY_MICROS;
+  }
+
+  /**
+   * Remove all snapshots from the cache directory.
+   *
+   * @throws IOException If an IO error occurs.
+   */
+  public void clear() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    List<Path> snapshots = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.snapshot")) {
+      stream.forEach(snapshots::add);
+    }
+    for (Path snapshot : snapshots) {
+      Files.deleteIfExists(snapshot);
+    }
+  }
+
+  private static final class Snapshot {
+    private final boolean trusted;
+    private final long size;
+    private final long mtime;
+    private final byte[] hash;
+    private final List<TomlParseError> errors;
+    // the tape of a snapshot that was read, or the table of a fresh result, which is streamed when written
+    @Nullable
+    private final ByteBuffer tape;
+    @Nullable
+    private final TomlTable table;
+
+    private Snapshot(
+        boolean trusted,
+        long size,
+        long mtime,
+        byte[] hash,
+        List<TomlParseError> errors,
+        @Nullable ByteBuffer tape,
+        @Nullable TomlTable table) {
+      this.trusted = trusted;
+      this.size = size;
+      this.mtime = mtime;
+      this.hash = hash;
+      this.errors = errors;
+      this.tape = tape;
+      this.table = table;
+    }
+
+    static Snapshot of(byte[] hash, TomlParseResult result) {
+      return new Snapshot(false, -1, -1, hash, result.errors(), null, result);
+    }
+
+    TomlParseResult result() {
+      // only snapshots that were read are reused
+      assert tape != null;
+      return new FrozenTomlParseResult(TomlTape.wrap(tape.duplicate()).decode(), errors);
+    }
+
+    @Nullable
+    static Snapshot read(Path file, String key) {
+      byte[] bytes;
+      try {
+        bytes = Files.readAllBytes(file);
+      } catch (IOException e) {
+        // including a missing snapshot
+        return null;
+      }
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(key)) {
+          return null;
+        }
+        boolean trusted = in.readBoolean();
+        long size = in.readLong();
+        long mtime = in.readLong();
+        byte[] hash = new byte[32];
+        in.readFully(hash);
+        int errorCount = in.readInt();
+        List<TomlParseError> errors = new ArrayList<>(errorCount);
+        for (int i = 0; i < errorCount; ++i) {
+          String message = in.readUTF();
+          errors.add(new TomlParseError(message, TomlPosition.positionAt(in.readInt(), in.readInt())));
+        }
+        int offset = bytes.length - in.available();
+        ByteBuffer tape = ByteBuffer.wrap(bytes, offset, bytes.length - offset);
+        // validate the header of the tape
+        TomlTape.wrap(tape);
+        return new Snapshot(trusted, size, mtime, hash, Collections.unmodifiableList(errors), tape, null);
+      } catch (IOException | IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    void write(Path file, String key, long size, long mtime) {
+      boolean trusted = isTrusted(mtime);
+      try {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+          try (OutputStream out = Files.newOutputStream(temp)) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(header);
+            data.writeInt(MAGIC);
+            data.writeInt(FORMAT_VERSION);
+            data.writeUTF(key);
+            data.writeBoolean(trusted);
+            data.writeLong(size);
+            data.writeLong(mtime);
+            data.write(hash);
+            data.writeInt(errors.size());
+            for (TomlParseError error : errors) {
+              data.writeUTF(truncate(error.getMessage()));
+              data.writeInt(error.position().line());
+              data.writeInt(error.position().column());
+            }
+            data.flush();
+            header.writeTo(out);
+            if (tape != null) {
+              out.write(tape.array(), tape.arrayOffset() + tape.position(), tape.remaining());
+            } else {
+              assert table != null;
+              TomlTape.write(table, out, true);
+            }
+          }
+          try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+          } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+          }
+        } finally {
+          Files.deleteIfExists(temp);
+        }
+      } catch (IOException e) {
+        // the cache is best-effort: the result is still returned to the caller
+      }
+    }
+
+    // writeUTF is limited to 65535 bytes of modified UTF-8
+    private static String truncate(String message) {
+      return (message.length() > 16384) ? message.substring(0, 16384) : message;
+    }
+  }
+
+  static byte[] sha256(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder builder = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return builder.toString();
+  }
+}
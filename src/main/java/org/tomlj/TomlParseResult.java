@@ -34,4 +34,25 @@ public interface TomlParseResult extends TomlTable {
    * @return A list of errors.
    */
   List<TomlParseError> errors();
+
+  /**
+   * An index of the keys in the document, for prefix and wildcard queries.
+   *
+   * <p>
+   * Results returned by the parser build the index on first use, and return the same index thereafter.
+   *
+   * @return An index of the keys in the document.
+   */
+  default TomlKeyIndex keyIndex() {
+    return TomlKeyIndex.of(this);
+  }
+
+  /**
+   * Estimate the heap memory retained by the document.
+   *
+   * @return An estimate of the bytes retained by the document, broken down by kind of value.
+   */
+  default TomlMemoryStats memoryStats() {
+    return TomlMemoryStats.of(this);
+  }
 }
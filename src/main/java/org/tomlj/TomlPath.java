@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A parsed key path.
+ *
+ * <p>
+ * A path is an immutable list of keys, so it can be passed to any method accepting a key path. Parsing a dotted key
+ * once and reusing the path avoids parsing the dotted key on every lookup:
+ *
+ * <pre>{@code
+ * static final TomlPath RATE_LIMIT = TomlPath.of("limits.requests-per-second");
+ *
+ * long limit = config.getLongOrDefault(RATE_LIMIT, 100);
+ * }</pre>
+ */
+public final class TomlPath extends AbstractList<String> implements RandomAccess {
+
+  private final String[] keys;
+  private int hash;
+
+  /**
+   * Parse a dotted key into a path.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @return The path.
+   * @throws IllegalArgumentException If the dotted key cannot be parsed.
+   */
+  public static TomlPath of(String dottedKey) {
+    requireNonNull(dottedKey);
+    return new TomlPath(Parser.parseDottedKey(dottedKey).toArray(new String[0]));
+  }
+
+  /**
+   * Create a path from individual keys.
+   *
+   * @param keys The keys in the path.
+   * @return The path.
+   */
+  public static TomlPath of(List<String> keys) {
+    requireNonNull(keys);
+    if (keys instanceof TomlPath) {
+      return (TomlPath) keys;
+    }
+    String[] array = keys.toArray(new String[0]);
+    for (String key : array) {
+      requireNonNull(key);
+    }
+    return new TomlPath(array);
+  }
+
+  TomlPath(String[] keys) {
+    this.keys = keys;
+  }
+
+  @Override
+  public String get(int index) {
+    return keys[index];
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = Arrays.hashCode(keys);
+      hash = h;
+    }
+    return h;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof TomlPath) {
+      return obj == this || Arrays.equals(keys, ((TomlPath) obj).keys);
+    }
+    return super.equals(obj);
+  }
+
+  /**
+   * The canonical dotted key for this path.
+   *
+   * @return The canonical dotted key.
+   */
+  @Override
+  public String toString() {
+    return Toml.joinKeyPath(this);
+  }
+}
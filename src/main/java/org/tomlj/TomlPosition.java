@@ -14,6 +14,7 @@ package org.tomlj;
 
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A position in an input document.
@@ -78,6 +79,27 @@ public final class TomlPosition {
     return column;
   }
 
+  /**
+   * Pack a position into a single {@code long}, for compact storage.
+   *
+   * @param position The position, or {@code null}.
+   * @return The packed position, or {@code 0} if the position was {@code null}.
+   */
+  static long pack(@Nullable TomlPosition position) {
+    return (position == null) ? 0 : ((long) position.line << 32) | (position.column & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Unpack a position packed by {@link #pack(TomlPosition)}.
+   *
+   * @param packed The packed position.
+   * @return The position, or {@code null} if a {@code null} position was packed.
+   */
+  @Nullable
+  static TomlPosition unpack(long packed) {
+    return (packed == 0) ? null : new TomlPosition((int) (packed >>> 32), (int) packed);
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj == this) {
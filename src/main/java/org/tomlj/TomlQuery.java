@@ -0,0 +1,649 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A compiled query selecting values from tables and arrays.
+ *
+ * <pre>{@code
+ * TomlQuery query = TomlQuery.compile("servers[*].endpoints[?(@.port > 8000)].host");
+ * query.matches(config).forEach(match -> System.out.println(match.path() + " at " + match.position()));
+ * }</pre>
+ *
+ * <p>
+ * A query is a sequence of steps, each selecting values from the values selected by the previous step:
+ *
+ * <ul>
+ * <li>{@code key} or {@code .key} selects a key of a table. Keys may be bare or quoted, as in TOML.</li>
+ * <li>{@code ["key"]} also selects a key of a table.</li>
+ * <li>{@code [n]} selects an element of an array. A negative index counts back from the end of the array.</li>
+ * <li>{@code .*} or {@code [*]} selects all values of a table, or all elements of an array.</li>
+ * <li>{@code [?(condition)]} selects the values of a table, or elements of an array, for which the condition holds.
+ * A condition is {@code @} or {@code @.key.path}, optionally followed by a comparison ({@code ==}, {@code !=},
+ * {@code <}, {@code <=}, {@code >} or {@code >=}) with a number, string or boolean. Without a comparison, the
+ * condition holds if the value exists. Comparisons between values of different types do not hold, except for
+ * {@code !=}.</li>
+ * </ul>
+ *
+ * <p>
+ * Matches are produced lazily, pulling the values of each step only as they are needed, so operations such as
+ * {@link Stream#findFirst()} stop as soon as they can. Consecutive keys are resolved with a single lookup, using the
+ * indexes of the table where it has them, rather than being looked up one level at a time. Compiled queries are
+ * immutable and thread-safe, so they can be compiled once and reused.
+ */
+public final class TomlQuery {
+
+  private static final Pattern BARE_KEY = Pattern.compile("[A-Za-z0-9_-]+");
+  private static final Pattern INDEX = Pattern.compile("-?[0-9]+");
+  private static final Pattern NUMBER = Pattern.compile("[+-]?[0-9]+(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+  /**
+   * A value selected by a query.
+   */
+  public static final class Match {
+    private final String path;
+    private final Object value;
+    private final @Nullable TomlPosition position;
+
+    private Match(String path, Object value, @Nullable TomlPosition position) {
+      this.path = path;
+      this.value = value;
+      this.position = position;
+    }
+
+    /**
+     * @return The path to the value from the queried table or array (e.g. {@code servers[0].host}).
+     */
+    public String path() {
+      return path;
+    }
+
+    /**
+     * @return The value.
+     */
+    public Object value() {
+      return value;
+    }
+
+    /**
+     * @return The position where the value was defined, or {@code null} if the value has no position.
+     */
+    @Nullable
+    public TomlPosition position() {
+      return position;
+    }
+
+    @Override
+    public String toString() {
+      return path + " = " + value;
+    }
+  }
+
+  private final String source;
+  private final List<Step> steps;
+
+  private TomlQuery(String source, List<Step> steps) {
+    this.source = source;
+    this.steps = steps;
+  }
+
+  /**
+   * Compile a query.
+   *
+   * @param query The query.
+   * @return The compiled query.
+   * @throws IllegalArgumentException If the query cannot be parsed.
+   */
+  public static TomlQuery compile(String query) {
+    requireNonNull(query);
+    return new TomlQuery(query, new QueryParser(query).parse());
+  }
+
+  /**
+   * Find the values of a table selected by this query.
+   *
+   * @param table The table.
+   * @return A lazy stream of the matches, in document order.
+   */
+  public Stream<Match> matches(TomlTable table) {
+    requireNonNull(table);
+    return evaluate(table);
+  }
+
+  /**
+   * Find the values of an array selected by this query.
+   *
+   * @param array The array.
+   * @return A lazy stream of the matches, in document order.
+   */
+  public Stream<Match> matches(TomlArray array) {
+    requireNonNull(array);
+    return evaluate(array);
+  }
+
+  /**
+   * Find the values of a table selected by this query.
+   *
+   * @param table The table.
+   * @return A lazy stream of the values, in document order.
+   */
+  public Stream<Object> values(TomlTable table) {
+    return matches(table).map(Match::value);
+  }
+
+  /**
+   * Find the values of an array selected by this query.
+   *
+   * @param array The array.
+   * @return A lazy stream of the values, in document order.
+   */
+  public Stream<Object> values(TomlArray array) {
+    return matches(array).map(Match::value);
+  }
+
+  private Stream<Match> evaluate(Object root) {
+    Iterator<Match> matches = new Evaluation(steps, new Match("", root, null));
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(matches, Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (obj instanceof TomlQuery) && source.equals(((TomlQuery) obj).source);
+  }
+
+  @Override
+  public int hashCode() {
+    return source.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return source;
+  }
+
+  private static String childPath(String parent, List<String> keys) {
+    String path = Toml.joinKeyPath(keys);
+    return parent.isEmpty() ? path : parent + "." + path;
+  }
+
+  private static Match element(Match match, TomlArray array, int index, Object value) {
+    return new Match(match.path + "[" + index + "]", value, array.inputPositionOf(index));
+  }
+
+  @Nullable
+  private static Object lookup(TomlTable table, List<String> keys) {
+    try {
+      return table.get(keys);
+    } catch (TomlInvalidTypeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Evaluates the steps of a query depth-first, pulling the matches of each step only as they are needed.
+   */
+  private static final class Evaluation implements Iterator<Match> {
+    private final List<Step> steps;
+    // the matches still to be followed after each number of steps, starting from the root
+    private final List<Iterator<Match>> levels = new ArrayList<>();
+    private @Nullable Match next;
+
+    Evaluation(List<Step> steps, Match root) {
+      this.steps = steps;
+      levels.add(Collections.singletonList(root).iterator());
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null) {
+        int depth = levels.size() - 1;
+        if (depth < 0) {
+          return false;
+        }
+        Iterator<Match> matches = levels.get(depth);
+        if (!matches.hasNext()) {
+          levels.remove(depth);
+        } else if (depth == steps.size()) {
+          next = matches.next();
+        } else {
+          levels.add(steps.get(depth).apply(matches.next()));
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public Match next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Match match = next;
+      assert match != null;
+      next = null;
+      return match;
+    }
+  }
+
+  /**
+   * The values of a table, or the elements of an array, that satisfy a condition.
+   */
+  private static final class Children implements Iterator<Match> {
+    private final Match parent;
+    private final Predicate<Object> condition;
+    private final @Nullable Iterator<String> keys;
+    private int index;
+    private @Nullable Match next;
+
+    Children(Match parent, Predicate<Object> condition) {
+      this.parent = parent;
+      this.condition = condition;
+      this.keys = (parent.value instanceof TomlTable) ? ((TomlTable) parent.value).keySet().iterator() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null) {
+        if (keys != null) {
+          if (!keys.hasNext()) {
+            return false;
+          }
+          TomlTable table = (TomlTable) parent.value;
+          List<String> key = Collections.singletonList(keys.next());
+          Object value = table.get(key);
+          assert value != null;
+          if (condition.test(value)) {
+            next = new Match(childPath(parent.path, key), value, table.inputPositionOf(key));
+          }
+        } else if (parent.value instanceof TomlArray && index < ((TomlArray) parent.value).size()) {
+          TomlArray array = (TomlArray) parent.value;
+          int i = index++;
+          Object value = array.get(i);
+          if (condition.test(value)) {
+            next = element(parent, array, i, value);
+          }
+        } else {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public Match next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Match match = next;
+      assert match != null;
+      next = null;
+      return match;
+    }
+  }
+
+  private interface Step {
+    Iterator<Match> apply(Match match);
+  }
+
+  private static final class KeysStep implements Step {
+    private final List<String> keys;
+
+    KeysStep(List<String> keys) {
+      this.keys = keys;
+    }
+
+    @Override
+    public Iterator<Match> apply(Match match) {
+      if (!(match.value instanceof TomlTable)) {
+        return Collections.emptyIterator();
+      }
+      TomlTable table = (TomlTable) match.value;
+      Object value = lookup(table, keys);
+      if (value == null) {
+        return Collections.emptyIterator();
+      }
+      return Collections
+          .singletonList(new Match(childPath(match.path, keys), value, table.inputPositionOf(keys)))
+          .iterator();
+    }
+  }
+
+  private static final class IndexStep implements Step {
+    private final int index;
+
+    IndexStep(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public Iterator<Match> apply(Match match) {
+      if (!(match.value instanceof TomlArray)) {
+        return Collections.emptyIterator();
+      }
+      TomlArray array = (TomlArray) match.value;
+      int i = (index < 0) ? array.size() + index : index;
+      return (i >= 0 && i < array.size())
+          ? Collections.singletonList(element(match, array, i, array.get(i))).iterator()
+          : Collections.emptyIterator();
+    }
+  }
+
+  private static final class WildcardStep implements Step {
+    @Override
+    public Iterator<Match> apply(Match match) {
+      return new Children(match, value -> true);
+    }
+  }
+
+  private static final class FilterStep implements Step {
+    private final List<String> keys;
+    private final @Nullable String operator;
+    private final @Nullable Object operand;
+
+    FilterStep(List<String> keys, @Nullable String operator, @Nullable Object operand) {
+      this.keys = keys;
+      this.operator = operator;
+      this.operand = operand;
+    }
+
+    @Override
+    public Iterator<Match> apply(Match match) {
+      return new Children(match, this::test);
+    }
+
+    private boolean test(Object element) {
+      Object value;
+      if (keys.isEmpty()) {
+        value = element;
+      } else {
+        value = (element instanceof TomlTable) ? lookup((TomlTable) element, keys) : null;
+      }
+      if (operator == null || value == null) {
+        return value != null;
+      }
+      assert operand != null;
+      if (value instanceof Boolean || operand instanceof Boolean) {
+        // booleans are only equal or not
+        boolean equal = value.equals(operand);
+        return "==".equals(operator) ? equal : ("!=".equals(operator) && !equal);
+      }
+      Integer comparison = compare(value, operand);
+      switch (operator) {
+        case "==":
+          return comparison != null && comparison == 0;
+        case "!=":
+          return comparison == null || comparison != 0;
+        case "<":
+          return comparison != null && comparison < 0;
+        case "<=":
+          return comparison != null && comparison <= 0;
+        case ">":
+          return comparison != null && comparison > 0;
+        default:
+          return comparison != null && comparison >= 0;
+      }
+    }
+
+    // null if the values cannot be compared
+    @Nullable
+    private static Integer compare(Object value, Object operand) {
+      if (value instanceof Long && operand instanceof Long) {
+        return Long.compare((Long) value, (Long) operand);
+      }
+      if (isNumber(value) && isNumber(operand)) {
+        return Double.compare(((Number) value).doubleValue(), ((Number) operand).doubleValue());
+      }
+      if (value instanceof String && operand instanceof String) {
+        return ((String) value).compareTo((String) operand);
+      }
+      return null;
+    }
+
+    private static boolean isNumber(Object value) {
+      return value instanceof Long || value instanceof Double;
+    }
+  }
+
+  private static final class QueryParser {
+    private final String input;
+    private int pos;
+
+    QueryParser(String input) {
+      this.input = input;
+    }
+
+    List<Step> parse() {
+      List<Step> steps = new ArrayList<>();
+      List<String> keys = new ArrayList<>();
+      if (peek() == '$') {
+        ++pos;
+      } else if (pos < input.length() && peek() != '[' && peek() != '.') {
+        parseKeyOrWildcard(steps, keys);
+      }
+      while (pos < input.length()) {
+        char c = input.charAt(pos++);
+        if (c == '.') {
+          parseKeyOrWildcard(steps, keys);
+        } else if (c == '[') {
+          skipWhitespace();
+          char next = peek();
+          if (next == '"' || next == '\'') {
+            keys.add(parseQuotedKey());
+          } else {
+            flushKeys(steps, keys);
+            steps.add(parseSelector());
+          }
+          skipWhitespace();
+          expect(']');
+        } else {
+          throw error("expected '.' or '['", pos - 1);
+        }
+      }
+      flushKeys(steps, keys);
+      return Collections.unmodifiableList(steps);
+    }
+
+    // consecutive keys are collected, to be resolved with a single lookup
+    private static void flushKeys(List<Step> steps, List<String> keys) {
+      if (!keys.isEmpty()) {
+        steps.add(new KeysStep(Collections.unmodifiableList(new ArrayList<>(keys))));
+        keys.clear();
+      }
+    }
+
+    private void parseKeyOrWildcard(List<Step> steps, List<String> keys) {
+      if (peek() == '*') {
+        ++pos;
+        flushKeys(steps, keys);
+        steps.add(new WildcardStep());
+      } else {
+        keys.add(parseKey());
+      }
+    }
+
+    private Step parseSelector() {
+      char c = peek();
+      if (c == '*') {
+        ++pos;
+        return new WildcardStep();
+      }
+      if (c == '?') {
+        ++pos;
+        skipWhitespace();
+        expect('(');
+        Step filter = parseCondition();
+        skipWhitespace();
+        expect(')');
+        return filter;
+      }
+      Matcher matcher = INDEX.matcher(input).region(pos, input.length());
+      if (!matcher.lookingAt()) {
+        throw error("expected an index, '*', a quoted key or a filter", pos);
+      }
+      pos = matcher.end();
+      try {
+        return new IndexStep(Integer.parseInt(matcher.group()));
+      } catch (NumberFormatException e) {
+        throw error("index out of range", matcher.start());
+      }
+    }
+
+    private Step parseCondition() {
+      skipWhitespace();
+      expect('@');
+      List<String> keys = new ArrayList<>();
+      while (peek() == '.' || peek() == '[') {
+        if (input.charAt(pos++) == '.') {
+          keys.add(parseKey());
+        } else {
+          skipWhitespace();
+          if (peek() != '"' && peek() != '\'') {
+            throw error("expected a quoted key", pos);
+          }
+          keys.add(parseQuotedKey());
+          skipWhitespace();
+          expect(']');
+        }
+      }
+      skipWhitespace();
+      String operator = null;
+      for (String candidate : new String[] {"==", "!=", "<=", ">=", "<", ">"}) {
+        if (input.startsWith(candidate, pos)) {
+          operator = candidate;
+          pos += candidate.length();
+          break;
+        }
+      }
+      if (operator == null) {
+        return new FilterStep(keys, null, null);
+      }
+      skipWhitespace();
+      return new FilterStep(keys, operator, parseLiteral());
+    }
+
+    private Object parseLiteral() {
+      char c = peek();
+      if (c == '"' || c == '\'') {
+        return parseQuotedKey();
+      }
+      if (input.startsWith("true", pos)) {
+        pos += 4;
+        return Boolean.TRUE;
+      }
+      if (input.startsWith("false", pos)) {
+        pos += 5;
+        return Boolean.FALSE;
+      }
+      Matcher matcher = NUMBER.matcher(input).region(pos, input.length());
+      if (!matcher.lookingAt()) {
+        throw error("expected a number, string or boolean", pos);
+      }
+      pos = matcher.end();
+      String number = matcher.group();
+      if (matcher.group(1) == null && matcher.group(2) == null) {
+        try {
+          return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+          throw error("integer out of range", matcher.start());
+        }
+      }
+      return Double.parseDouble(number);
+    }
+
+    private String parseKey() {
+      char c = peek();
+      if (c == '"' || c == '\'') {
+        return parseQuotedKey();
+      }
+      Matcher matcher = BARE_KEY.matcher(input).region(pos, input.length());
+      if (!matcher.lookingAt()) {
+        throw error("expected a key", pos);
+      }
+      pos = matcher.end();
+      return matcher.group();
+    }
+
+    private String parseQuotedKey() {
+      char quote = input.charAt(pos);
+      int start = pos++;
+      StringBuilder key = new StringBuilder();
+      while (pos < input.length()) {
+        char c = input.charAt(pos++);
+        if (c == quote) {
+          return key.toString();
+        }
+        if (c == '\\' && quote == '"') {
+          if (pos >= input.length()) {
+            break;
+          }
+          char escaped = input.charAt(pos++);
+          switch (escaped) {
+            case 'n':
+              key.append('\n');
+              break;
+            case 't':
+              key.append('\t');
+              break;
+            case '"':
+            case '\\':
+              key.append(escaped);
+              break;
+            default:
+              throw error("invalid escape sequence", pos - 2);
+          }
+        } else {
+          key.append(c);
+        }
+      }
+      throw error("unterminated string", start);
+    }
+
+    private char peek() {
+      return (pos < input.length()) ? input.charAt(pos) : '\0';
+    }
+
+    private void skipWhitespace() {
+      while (peek() == ' ' || peek() == '\t') {
+        ++pos;
+      }
+    }
+
+    private void expect(char c) {
+      if (peek() != c) {
+        throw error("expected '" + c + "'", pos);
+      }
+      ++pos;
+    }
+
+    private IllegalArgumentException error(String message, int at) {
+      return new IllegalArgumentException("Invalid query '" + input + "' at position " + at + ": " + message);
+    }
+  }
+}
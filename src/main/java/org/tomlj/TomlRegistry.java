@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A registry of named documents, published as immutable, versioned snapshots.
+ *
+ * <pre>{@code
+ * TomlRegistry registry = TomlRegistry.create();
+ * registry.update(batch -> batch.put("app", Toml.parse(appFile)).put("limits", Toml.parse(limitsFile)));
+ *
+ * TomlRegistry.Snapshot config = registry.snapshot();
+ * long limit = config.get("limits").getLong("requests-per-second");
+ * }</pre>
+ *
+ * <p>
+ * Reading a snapshot costs one volatile read, and a snapshot never changes, so readers get a consistent view of all
+ * documents without locking. Writers are serialized, and each {@link #update(Consumer)} publishes all of its changes
+ * at once, as a snapshot with the next version number.
+ *
+ * <p>
+ * Before being published, each new document is passed to a warmer, which can build derived indexes so that readers do
+ * not pay for building them. The default warmer is {@link #warmIndexes(TomlTable)}. Documents should be immutable,
+ * such as parse results, or frozen or persistent tables.
+ */
+public final class TomlRegistry {
+
+  /**
+   * An immutable view of the documents in a registry.
+   */
+  public static final class Snapshot {
+    private static final Snapshot EMPTY = new Snapshot(0, Collections.emptyMap());
+
+    private final long version;
+    private final Map<String, TomlTable> documents;
+
+    private Snapshot(long version, Map<String, TomlTable> documents) {
+      this.version = version;
+      this.documents = documents;
+    }
+
+    /**
+     * @return The version of this snapshot, which is incremented by each update of the registry.
+     */
+    public long version() {
+      return version;
+    }
+
+    /**
+     * Get a document.
+     *
+     * @param name The name of the document.
+     * @return The document, or {@code null} if there is no document with the name.
+     */
+    @Nullable
+    public TomlTable get(String name) {
+      return documents.get(name);
+    }
+
+    /**
+     * @return The names of the documents, in the order they were first added.
+     */
+    public Set<String> names() {
+      return documents.keySet();
+    }
+
+    /**
+     * @return An unmodifiable map of the documents, by name.
+     */
+    public Map<String, TomlTable> documents() {
+      return documents;
+    }
+
+    @Override
+    public String toString() {
+      return "TomlRegistry.Snapshot{version=" + version + ", names=" + documents.keySet() + "}";
+    }
+  }
+
+  /**
+   * A batch of changes, published together.
+   */
+  public static final class Batch {
+    private final Map<String, TomlTable> documents;
+    private final Consumer<? super TomlTable> warmer;
+    private boolean changed;
+    private boolean closed;
+
+    private Batch(Map<String, TomlTable> documents, Consumer<? super TomlTable> warmer) {
+      this.documents = documents;
+      this.warmer = warmer;
+    }
+
+    /**
+     * Add or replace a document.
+     *
+     * @param name The name of the document.
+     * @param document The document.
+     * @return This batch.
+     * @throws IllegalStateException If the batch has already been applied.
+     */
+    public Batch put(String name, TomlTable document) {
+      requireNonNull(name);
+      requireNonNull(document);
+      checkOpen();
+      if (documents.get(name) != document) {
+        warmer.accept(document);
+        documents.put(name, document);
+        changed = true;
+      }
+      return this;
+    }
+
+    /**
+     * Remove a document.
+     *
+     * @param name The name of the document.
+     * @return This batch.
+     * @throws IllegalStateException If the batch has already been applied.
+     */
+    public Batch remove(String name) {
+      requireNonNull(name);
+      checkOpen();
+      if (documents.remove(name) != null) {
+        changed = true;
+      }
+      return this;
+    }
+
+    private void checkOpen() {
+      if (closed) {
+        throw new IllegalStateException("Batch has already been applied");
+      }
+    }
+
+    /**
+     * Get a document, as changed by this batch.
+     *
+     * @param name The name of the document.
+     * @return The document, or {@code null} if there is no document with the name.
+     */
+    @Nullable
+    public TomlTable get(String name) {
+      return documents.get(name);
+    }
+  }
+
+  private final Consumer<? super TomlTable> warmer;
+  private volatile Snapshot current = Snapshot.EMPTY;
+
+  private TomlRegistry(Consumer<? super TomlTable> warmer) {
+    this.warmer = warmer;
+  }
+
+  /**
+   * @return A new, empty registry, warming documents with {@link #warmIndexes(TomlTable)}.
+   */
+  public static TomlRegistry create() {
+    return new TomlRegistry(TomlRegistry::warmIndexes);
+  }
+
+  /**
+   * Create a registry.
+   *
+   * @param warmer A function called with each new document before it is published.
+   * @return A new, empty registry.
+   */
+  public static TomlRegistry create(Consumer<? super TomlTable> warmer) {
+    requireNonNull(warmer);
+    return new TomlRegistry(warmer);
+  }
+
+  /**
+   * Build the indexes and cached values that a document builds on first use.
+   *
+   * <p>
+   * For parse results, this builds the index of all paths used by the dotted and path set views, and the
+   * {@link TomlKeyIndex}. For tables with cached structural hash codes, this computes the hash code, which makes later
+   * comparisons and diffs of the document cheap.
+   *
+   * @param document The document.
+   */
+  public static void warmIndexes(TomlTable document) {
+    if (document instanceof FrozenTomlParseResult) {
+      ((FrozenTomlParseResult) document).flatIndex();
+      ((FrozenTomlParseResult) document).keyIndex();
+    }
+    if (Toml.hasStructuralHashCode(document)) {
+      document.hashCode();
+    }
+  }
+
+  /**
+   * @return The current snapshot.
+   */
+  public Snapshot snapshot() {
+    return current;
+  }
+
+  /**
+   * Get a document from the current snapshot.
+   *
+   * @param name The name of the document.
+   * @return The document, or {@code null} if there is no document with the name.
+   */
+  @Nullable
+  public TomlTable get(String name) {
+    return current.get(name);
+  }
+
+  /**
+   * Add or replace a document.
+   *
+   * @param name The name of the document.
+   * @param document The document.
+   * @return The published snapshot.
+   */
+  public Snapshot put(String name, TomlTable document) {
+    return update(batch -> batch.put(name, document));
+  }
+
+  /**
+   * Remove a document.
+   *
+   * @param name The name of the document.
+   * @return The published snapshot.
+   */
+  public Snapshot remove(String name) {
+    return update(batch -> batch.remove(name));
+  }
+
+  /**
+   * Change several documents, publishing all changes at once.
+   *
+   * <p>
+   * Updates are serialized, and new documents are warmed while the batch is prepared, so readers never see a document
+   * before it is warmed. If the batch makes no changes, or throws an exception, nothing is published.
+   *
+   * @param changes A function making changes to a batch.
+   * @return The published snapshot, or the current snapshot if nothing changed.
+   */
+  public synchronized Snapshot update(Consumer<Batch> changes) {
+    requireNonNull(changes);
+    Snapshot snapshot = current;
+    Batch batch = new Batch(new LinkedHashMap<>(snapshot.documents), warmer);
+    try {
+      changes.accept(batch);
+    } finally {
+      batch.closed = true;
+    }
+    if (!batch.changed) {
+      return snapshot;
+    }
+    Snapshot published = new Snapshot(snapshot.version + 1, Collections.unmodifiableMap(batch.documents));
+    current = published;
+    return published;
+  }
+}
@@ -23,11 +23,14 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -41,6 +44,15 @@ import org.checkerframework.framework.qual.TypeUseLocation;
     locations = {TypeUseLocation.RETURN, TypeUseLocation.PARAMETER, TypeUseLocation.FIELD})
 public interface TomlTable {
 
+  /**
+   * Create a builder for an immutable table.
+   *
+   * @return A new builder.
+   */
+  static TomlTableBuilder builder() {
+    return new TomlTableBuilder();
+  }
+
   /**
    * Return the number of entries in tis table.
    *
@@ -145,10 +157,63 @@ public interface TomlTable {
    * a complete view of all entries available in the TOML document, use {@link #dottedEntrySet()} or
    * {@link #entryPathSet()}.
    *
+   * <p>
+   * The returned set is a read-only view of this table, and is not copied.
+   *
    * @return A set containing the immediate entries of this table.
    */
   Set<Map.Entry<String, Object>> entrySet();
 
+  /**
+   * Perform an action for each immediate entry of this table.
+   *
+   * <p>
+   * Unlike iterating over {@link #entrySet()}, no entry objects are created.
+   *
+   * @param action The action to perform for each key and value.
+   */
+  default void forEach(BiConsumer<String, Object> action) {
+    requireNonNull(action);
+    for (Map.Entry<String, Object> entry : entrySet()) {
+      action.accept(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Perform an action for each leaf value of this table and of all its sub-tables.
+   *
+   * <p>
+   * Leaf values are all values other than tables (arrays are leaf values). Entries are visited depth-first, in the
+   * order of each table's {@link #keySet()}.
+   *
+   * <p>
+   * The path passed to the action is a read-only view of a single list that is updated during the traversal, so no
+   * objects are created per entry. It must be copied if it is retained beyond the call to the action.
+   *
+   * @param action The action to perform for each key path and leaf value.
+   */
+  default void forEachLeaf(BiConsumer<List<String>, Object> action) {
+    requireNonNull(action);
+    List<String> path = new ArrayList<>();
+    TomlTraversal.forEachLeaf(this, path, Collections.unmodifiableList(path), action);
+  }
+
+  /**
+   * Get a stream of the leaf values of this table and of all its sub-tables.
+   *
+   * <p>
+   * Leaf values are all values other than tables (arrays are leaf values), as in {@link #entryPathSet()}, and are
+   * streamed depth-first in the order of each table's {@link #keySet()}. The stream is lazy, and leaves are only
+   * counted when a size is needed, so short-circuiting operations such as {@link Stream#findFirst()} stop without
+   * visiting the whole table. It splits between sub-tables into exactly sized parts, so parallel streams divide the
+   * work evenly.
+   *
+   * @return A stream of the key paths and leaf values.
+   */
+  default Stream<Map.Entry<List<String>, Object>> leafStream() {
+    return StreamSupport.stream(LeafSpliterator.of(this), false);
+  }
+
   /**
    * Get all the dotted entries of this table.
    *
@@ -245,6 +310,33 @@ public interface TomlTable {
   @Nullable
   TomlPosition inputPositionOf(List<String> path);
 
+  /**
+   * Get the type of a value in the TOML document.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @return The type, or {@code null} if no value was set in the TOML document.
+   * @throws IllegalArgumentException If the key cannot be parsed.
+   * @throws TomlInvalidTypeException If any element of the path preceding the final key is not a table.
+   */
+  @Nullable
+  default TomlType typeOf(String dottedKey) {
+    requireNonNull(dottedKey);
+    return typeOf(Parser.parseDottedKey(dottedKey));
+  }
+
+  /**
+   * Get the type of a value in the TOML document.
+   *
+   * @param path The key path.
+   * @return The type, or {@code null} if no value was set in the TOML document.
+   * @throws TomlInvalidTypeException If any element of the path preceding the final key is not a table.
+   */
+  @Nullable
+  default TomlType typeOf(List<String> path) {
+    Object value = get(path);
+    return (value == null) ? null : TomlType.of(value);
+  }
+
   /**
    * Check if a value in the TOML document is a string.
    *
@@ -439,6 +531,68 @@ public interface TomlTable {
     return defaultValue.getAsLong();
   }
 
+  /**
+   * Get a long from the TOML document, or return a default.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @param defaultValue The default value.
+   * @return The value, or the default.
+   * @throws IllegalArgumentException If the key cannot be parsed.
+   * @throws TomlInvalidTypeException If the value is present but not a long, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default long getLongOrDefault(String dottedKey, long defaultValue) {
+    requireNonNull(dottedKey);
+    return getLongOrDefault(Parser.parseDottedKey(dottedKey), defaultValue);
+  }
+
+  /**
+   * Get a long from the TOML document, or return a default.
+   *
+   * <p>
+   * Tables returned by the parser store long values unboxed, and implement this method without allocating.
+   *
+   * @param path The key path (see {@link TomlPath}).
+   * @param defaultValue The default value.
+   * @return The value, or the default.
+   * @throws TomlInvalidTypeException If the value is present but not a long, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default long getLongOrDefault(List<String> path, long defaultValue) {
+    Long value = getLong(path);
+    return (value != null) ? value : defaultValue;
+  }
+
+  /**
+   * Find a long in the TOML document.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @return The value, or an empty optional if no value was set in the TOML document.
+   * @throws IllegalArgumentException If the key cannot be parsed.
+   * @throws TomlInvalidTypeException If the value is present but not a long, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default OptionalLong findLong(String dottedKey) {
+    requireNonNull(dottedKey);
+    return findLong(Parser.parseDottedKey(dottedKey));
+  }
+
+  /**
+   * Find a long in the TOML document.
+   *
+   * <p>
+   * Unlike {@link #isLong(List)} followed by {@link #getLong(List)}, the path is only walked once.
+   *
+   * @param path The key path (see {@link TomlPath}).
+   * @return The value, or an empty optional if no value was set in the TOML document.
+   * @throws TomlInvalidTypeException If the value is present but not a long, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default OptionalLong findLong(List<String> path) {
+    Long value = getLong(path);
+    return (value != null) ? OptionalLong.of(value) : OptionalLong.empty();
+  }
+
   /**
    * Check if a value in the TOML document is a double.
    *
@@ -536,6 +690,68 @@ public interface TomlTable {
     return defaultValue.getAsDouble();
   }
 
+  /**
+   * Get a double from the TOML document, or return a default.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @param defaultValue The default value.
+   * @return The value, or the default.
+   * @throws IllegalArgumentException If the key cannot be parsed.
+   * @throws TomlInvalidTypeException If the value is present but not a double, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default double getDoubleOrDefault(String dottedKey, double defaultValue) {
+    requireNonNull(dottedKey);
+    return getDoubleOrDefault(Parser.parseDottedKey(dottedKey), defaultValue);
+  }
+
+  /**
+   * Get a double from the TOML document, or return a default.
+   *
+   * <p>
+   * Tables returned by the parser store double values unboxed, and implement this method without allocating.
+   *
+   * @param path The key path (see {@link TomlPath}).
+   * @param defaultValue The default value.
+   * @return The value, or the default.
+   * @throws TomlInvalidTypeException If the value is present but not a double, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default double getDoubleOrDefault(List<String> path, double defaultValue) {
+    Double value = getDouble(path);
+    return (value != null) ? value : defaultValue;
+  }
+
+  /**
+   * Find a double in the TOML document.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @return The value, or an empty optional if no value was set in the TOML document.
+   * @throws IllegalArgumentException If the key cannot be parsed.
+   * @throws TomlInvalidTypeException If the value is present but not a double, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default OptionalDouble findDouble(String dottedKey) {
+    requireNonNull(dottedKey);
+    return findDouble(Parser.parseDottedKey(dottedKey));
+  }
+
+  /**
+   * Find a double in the TOML document.
+   *
+   * <p>
+   * Unlike {@link #isDouble(List)} followed by {@link #getDouble(List)}, the path is only walked once.
+   *
+   * @param path The key path (see {@link TomlPath}).
+   * @return The value, or an empty optional if no value was set in the TOML document.
+   * @throws TomlInvalidTypeException If the value is present but not a double, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default OptionalDouble findDouble(List<String> path) {
+    Double value = getDouble(path);
+    return (value != null) ? OptionalDouble.of(value) : OptionalDouble.empty();
+  }
+
   /**
    * Check if a value in the TOML document is a boolean.
    *
@@ -633,6 +849,38 @@ public interface TomlTable {
     return defaultValue.getAsBoolean();
   }
 
+  /**
+   * Get a boolean from the TOML document, or return a default.
+   *
+   * @param dottedKey A dotted key (e.g. {@code "server.address.port"}).
+   * @param defaultValue The default value.
+   * @return The value, or the default.
+   * @throws IllegalArgumentException If the key cannot be parsed.
+   * @throws TomlInvalidTypeException If the value is present but not a boolean, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default boolean getBooleanOrDefault(String dottedKey, boolean defaultValue) {
+    requireNonNull(dottedKey);
+    return getBooleanOrDefault(Parser.parseDottedKey(dottedKey), defaultValue);
+  }
+
+  /**
+   * Get a boolean from the TOML document, or return a default.
+   *
+   * <p>
+   * Tables returned by the parser store boolean values unboxed, and implement this method without allocating.
+   *
+   * @param path The key path (see {@link TomlPath}).
+   * @param defaultValue The default value.
+   * @return The value, or the default.
+   * @throws TomlInvalidTypeException If the value is present but not a boolean, or any element of the path preceding
+   *         the final key is not a table.
+   */
+  default boolean getBooleanOrDefault(List<String> path, boolean defaultValue) {
+    Boolean value = getBoolean(path);
+    return (value != null) ? value : defaultValue;
+  }
+
   /**
    * Check if a value in the TOML document is an {@link OffsetDateTime}.
    *
@@ -1210,13 +1458,16 @@ public interface TomlTable {
   }
 
   /**
-   * Get the elements of this array as a {@link Map}.
+   * Get the elements of this table as a {@link Map}.
    *
    * <p>
-   * Note that this does not do a deep conversion. If this array contains tables or arrays, they will be of type
+   * Note that this does not do a deep conversion. If this table contains tables or arrays, they will be of type
    * {@link TomlTable} or {@link TomlArray} respectively.
    *
-   * @return The elements of this array as a {@link Map}.
+   * <p>
+   * The returned map is a read-only view of this table, and is not copied.
+   *
+   * @return The elements of this table as a {@link Map}.
    */
   Map<String, Object> toMap();
 
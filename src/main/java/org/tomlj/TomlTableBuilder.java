@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A builder for immutable tables.
+ *
+ * <p>
+ * Tables are built directly in the compact form used for parsed documents, without producing and parsing TOML:
+ *
+ * <pre>{@code
+ * TomlTable server = TomlTable.builder().put("host", "localhost").put("port", 8080).build();
+ * TomlTable config = TomlTable.builder().put("name", "demo").put("server", server).build();
+ * }</pre>
+ *
+ * <p>
+ * Keys are kept in the order they are added. Integer, float and boolean values added through the primitive overloads
+ * are stored without boxing. Values built by a builder have no input position.
+ *
+ * @see TomlTable#builder()
+ */
+public final class TomlTableBuilder {
+
+  private static final int LINEAR_SCAN_LIMIT = 8;
+
+  private String[] keys = new String[4];
+  private Object[] values = new Object[4];
+  private long @Nullable [] primitives;
+  private int size;
+  // an index of keys, created once the builder holds more keys than can be scanned cheaply
+  private @Nullable Map<String, Integer> lookup;
+
+  TomlTableBuilder() {}
+
+  /**
+   * Add a string value.
+   *
+   * @param key The key (which is not parsed as a dotted key).
+   * @param value The value.
+   * @return This builder.
+   * @throws IllegalArgumentException If the key was already added.
+   */
+  public TomlTableBuilder put(String key, String value) {
+    requireNonNull(value);
+    add(key, value);
+    return this;
+  }
+
+  /**
+   * Add an integer value.
+   *
+   * @param key The key (which is not parsed as a dotted key).
+   * @param value The value.
+   * @return This builder.
+   * @throws IllegalArgumentException If the key was already added.
+   */
+  public TomlTableBuilder put(String key, long value) {
+    int i = add(key, FrozenTomlTable.LONG_VALUE);
+    primitives()[i] = value;
+    return this;
+  }
+
+  /**
+   * Add a float value.
+   *
+   * @param key The key (which is not parsed as a dotted key).
+   * @param value The value.
+   * @return This builder.
+   * @throws IllegalArgumentException If the key was already added.
+   */
+  public TomlTableBuilder put(String key, double value) {
+    int i = add(key, FrozenTomlTable.DOUBLE_VALUE);
+    primitives()[i] = Double.doubleToRawLongBits(value);
+    return this;
+  }
+
+  /**
+   * Add a boolean value.
+   *
+   * @param key The key (which is not parsed as a dotted key).
+   * @param value The value.
+   * @return This builder.
+   * @throws IllegalArgumentException If the key was already added.
+   */
+  public TomlTableBuilder put(String key, boolean value) {
+    add(key, Boolean.valueOf(value));
+    return this;
+  }
+
+  /**
+   * Add a value.
+   *
+   * @param key The key (which is not parsed as a dotted key).
+   * @param value The value, which must be of a TOML type (or an {@link Integer}).
+   * @return This builder.
+   * @throws IllegalArgumentException If the key was already added, or the value is not of a TOML type.
+   */
+  public TomlTableBuilder put(String key, Object value) {
+    requireNonNull(value);
+    if (value instanceof Long || value instanceof Integer) {
+      return put(key, ((Number) value).longValue());
+    }
+    if (value instanceof Double) {
+      return put(key, ((Double) value).doubleValue());
+    }
+    if (value instanceof Boolean) {
+      return put(key, ((Boolean) value).booleanValue());
+    }
+    if (!TomlType.typeFor(value).isPresent()) {
+      throw new IllegalArgumentException("Unsupported type " + value.getClass().getSimpleName());
+    }
+    add(key, FrozenTomlTable.freezeValue(value, new HashMap<>()));
+    return this;
+  }
+
+  private int add(String key, Object value) {
+    requireNonNull(key);
+    if (indexOf(key) >= 0) {
+      throw new IllegalArgumentException(Toml.joinKeyPath(Collections.singletonList(key)) + " already set");
+    }
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+      if (primitives != null) {
+        primitives = Arrays.copyOf(primitives, size * 2);
+      }
+    }
+    int i = size++;
+    keys[i] = key;
+    values[i] = value;
+    if (lookup != null) {
+      lookup.put(key, i);
+    } else if (size > LINEAR_SCAN_LIMIT) {
+      lookup = new HashMap<>();
+      for (int j = 0; j < size; ++j) {
+        lookup.put(keys[j], j);
+      }
+    }
+    return i;
+  }
+
+  private int indexOf(String key) {
+    if (lookup != null) {
+      Integer i = lookup.get(key);
+      return (i != null) ? i : -1;
+    }
+    for (int i = 0; i < size; ++i) {
+      if (keys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private long[] primitives() {
+    long[] primitives = this.primitives;
+    if (primitives == null) {
+      primitives = new long[keys.length];
+      this.primitives = primitives;
+    }
+    return primitives;
+  }
+
+  /**
+   * Build the table.
+   *
+   * <p>
+   * The builder may continue to be used after building a table, without affecting the tables already built.
+   *
+   * @return An immutable table holding the added values.
+   */
+  public TomlTable build() {
+    return new FrozenTomlTable(
+        Arrays.copyOf(keys, size),
+        Arrays.copyOf(values, size),
+        new long[size],
+        (primitives != null) ? Arrays.copyOf(primitives, size) : null);
+  }
+}
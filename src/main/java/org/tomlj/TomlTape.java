@@ -0,0 +1,883 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A document held in a flat, self-contained "tape" of typed entries, outside of the Java heap.
+ *
+ * <p>
+ * The tables and arrays of a tape are flyweight views that decode values from the tape on access, so the heap cost of
+ * a document is constant however large it is, and the garbage collector never traverses its contents:
+ *
+ * <pre>{@code
+ * TomlTape tape = TomlTape.encode(Toml.parse(path));
+ * TomlTable config = tape.root();
+ * }</pre>
+ *
+ * <p>
+ * A tape is encoded from a table that is already in memory, so parsing a document still builds its full tree on the
+ * heap: the tape reduces what is retained after parsing, not the cost of parsing itself. Encoding makes two passes
+ * over the table, one to measure the tape and one to write it, so the tape is never assembled on the heap: it is
+ * written straight into direct memory, or with {@link #encode(TomlTable, Path, boolean)} into a file that is then
+ * mapped.
+ *
+ * <p>
+ * The tape format is position-independent, so a tape written to a file can later be mapped into memory with
+ * {@link #map(Path)} without being decoded. Offsets are 8 bytes, and tapes larger than 2 GB are held in several
+ * segments.
+ *
+ * <h2>Format</h2>
+ *
+ * All numbers are little-endian, and offsets are relative to the start of the tape.
+ *
+ * <ul>
+ * <li>A header: the magic bytes {@code TOMT}, the format version, flags (bit 0 is set if input positions are
+ * included), a reserved word, then the offset of the root table, the offset of the string table, and the length of
+ * the tape.</li>
+ * <li>Tables, arrays and date-time records, each written after everything it refers to, so the root table comes
+ * last.
+ * <ul>
+ * <li>Tables: an entry count, the capacity of the key index, the entries (key string number, type, 8-byte payload,
+ * and optionally an 8-byte packed position), then the key index (open-addressing slots holding entry number + 1).</li>
+ * <li>Arrays: an element count, flags (bit 0 is set if the array was parsed under the homogeneous array rules of
+ * TOML 0.5.0 and earlier), then the elements (type, 8-byte payload, and optionally an 8-byte packed position).</li>
+ * <li>Date-time records: the epoch second, the nano of second and, for offset date-times, the offset in seconds.</li>
+ * </ul>
+ * </li>
+ * <li>For each string, its hash code, its length and its UTF-8 bytes.</li>
+ * <li>The string table: a string count, then the offset of each string.</li>
+ * </ul>
+ *
+ * Payloads hold integers and float bits directly, booleans as 0 or 1, local dates as an epoch day, local times as a
+ * nano of day, strings as a string number, and tables, arrays and date-times as an offset.
+ */
+public final class TomlTape {
+
+  static final int MAGIC = 0x544D4F54; // "TOMT", little-endian
+  static final int VERSION = 2;
+  static final int FLAG_POSITIONS = 1;
+  static final int ARRAY_FLAG_HOMOGENEOUS = 1;
+  static final int HEADER_SIZE = 40;
+  static final int LENGTH_OFFSET = 32;
+
+  // value types, numbered from 1 in the order of TomlType
+  static final byte STRING = 1;
+  static final byte INTEGER = 2;
+  static final byte FLOAT = 3;
+  static final byte BOOLEAN = 4;
+  static final byte OFFSET_DATE_TIME = 5;
+  static final byte LOCAL_DATE_TIME = 6;
+  static final byte LOCAL_DATE = 7;
+  static final byte LOCAL_TIME = 8;
+  static final byte ARRAY = 9;
+  static final byte TABLE = 10;
+
+  private static final int LINEAR_SCAN_LIMIT = 8;
+
+  private final TapeBuffer bytes;
+  private final boolean hasPositions;
+  private final int entrySize;
+  private final long rootOffset;
+  private final long stringsOffset;
+
+  private TomlTape(TapeBuffer bytes) {
+    this.bytes = bytes;
+    if (bytes.size() < HEADER_SIZE) {
+      throw new IllegalArgumentException("Not a TOML tape");
+    }
+    checkHeader(bytes.getInt(0), bytes.getInt(4));
+    this.hasPositions = (bytes.getInt(8) & FLAG_POSITIONS) != 0;
+    this.entrySize = hasPositions ? 17 : 9;
+    this.rootOffset = bytes.getLong(16);
+    this.stringsOffset = bytes.getLong(24);
+    long length = bytes.getLong(LENGTH_OFFSET);
+    if (length != bytes.size()
+        || rootOffset < HEADER_SIZE
+        || rootOffset >= length
+        || stringsOffset < HEADER_SIZE
+        || stringsOffset >= length) {
+      throw new IllegalArgumentException("Truncated or corrupt TOML tape");
+    }
+  }
+
+  // checks the magic number and version at the start of a header
+  static void checkHeader(int magic, int version) {
+    if (magic != MAGIC) {
+      throw new IllegalArgumentException("Not a TOML tape");
+    }
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported TOML tape version " + version);
+    }
+  }
+
+  /**
+   * Encode a table, with its input positions, into a tape held in direct memory.
+   *
+   * @param table The table to encode.
+   * @return The tape.
+   */
+  public static TomlTape encode(TomlTable table) {
+    return encode(table, true);
+  }
+
+  /**
+   * Encode a table into a tape held in direct memory.
+   *
+   * @param table The table to encode.
+   * @param includePositions Whether the input positions of values are included. If not, the tables and arrays of the
+   *        tape return {@code null} from {@code inputPositionOf}.
+   * @return The tape.
+   */
+  public static TomlTape encode(TomlTable table, boolean includePositions) {
+    requireNonNull(table);
+    Writer writer = new Writer(table, includePositions);
+    TapeBuffer bytes = TapeBuffer.allocateDirect(writer.length());
+    try {
+      writer.write(bytes::put);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new TomlTape(bytes);
+  }
+
+  /**
+   * Encode a table into a file, and map the file into memory.
+   *
+   * <p>
+   * The tape is written straight to the file, so it is never held in memory as a whole.
+   *
+   * @param table The table to encode.
+   * @param file The file to write, which is replaced if it exists.
+   * @param includePositions Whether the input positions of values are included. If not, the tables and arrays of the
+   *        tape return {@code null} from {@code inputPositionOf}.
+   * @return The tape.
+   * @throws IOException If an IO error occurs.
+   */
+  public static TomlTape encode(TomlTable table, Path file, boolean includePositions) throws IOException {
+    requireNonNull(table);
+    requireNonNull(file);
+    Writer writer = new Writer(table, includePositions);
+    try (FileChannel channel = FileChannel
+        .open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writer.write((offset, bytes) -> {
+        while (bytes.hasRemaining()) {
+          channel.write(bytes);
+        }
+      });
+    }
+    return map(file);
+  }
+
+  /**
+   * Write a table as a tape to a stream.
+   */
+  static void write(TomlTable table, OutputStream out, boolean includePositions) throws IOException {
+    new Writer(table, includePositions)
+        .write((offset, bytes) -> out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining()));
+  }
+
+  /**
+   * Write a table as a tape into a buffer, starting at its position.
+   *
+   * @throws BufferOverflowException If there is insufficient space in the buffer, in which case nothing is written.
+   */
+  static void write(TomlTable table, ByteBuffer buffer, boolean includePositions) {
+    Writer writer = new Writer(table, includePositions);
+    if (writer.length() > buffer.remaining()) {
+      throw new BufferOverflowException();
+    }
+    try {
+      writer.write((offset, bytes) -> buffer.put(bytes));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Use a buffer holding a tape, without copying it.
+   *
+   * @param buffer A buffer holding a tape between its position and limit. The contents must not be modified while
+   *        the tape is in use.
+   * @return The tape.
+   * @throws IllegalArgumentException If the buffer does not hold a tape.
+   */
+  public static TomlTape wrap(ByteBuffer buffer) {
+    requireNonNull(buffer);
+    return new TomlTape(TapeBuffer.of(buffer.slice()));
+  }
+
+  /**
+   * Map a file holding a tape into memory.
+   *
+   * @param file The file, as written by {@link #encode(TomlTable, Path, boolean)} or from {@link #buffer()}.
+   * @return The tape.
+   * @throws IOException If an IO error occurs.
+   * @throws IllegalArgumentException If the file does not hold a tape.
+   */
+  public static TomlTape map(Path file) throws IOException {
+    requireNonNull(file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new TomlTape(TapeBuffer.map(channel, 0, channel.size()));
+    }
+  }
+
+  /**
+   * @return The root table of the document.
+   */
+  public TomlTable root() {
+    return new TapeTomlTable(this, rootOffset);
+  }
+
+  /**
+   * @return A read-only view of the tape.
+   * @throws IllegalStateException If the tape is larger than 2 GB, and so is held in several segments.
+   */
+  public ByteBuffer buffer() {
+    return bytes.buffer().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * @return The size of the tape, in bytes.
+   */
+  public long size() {
+    return bytes.size();
+  }
+
+  /**
+   * @return {@code true} if the tape holds the input positions of values. If not, the tables and arrays of the tape
+   *         return {@code null} from {@code inputPositionOf}.
+   */
+  public boolean hasPositions() {
+    return hasPositions;
+  }
+
+  // Table and array access, used by the flyweight views
+
+  int count(long node) {
+    return bytes.getInt(node);
+  }
+
+  private long tableEntry(long table, int i) {
+    return table + 8 + (long) i * (entrySize + 4);
+  }
+
+  private long arrayElement(long array, int i) {
+    return array + 8 + (long) i * entrySize;
+  }
+
+  int keyNumber(long table, int i) {
+    return bytes.getInt(tableEntry(table, i));
+  }
+
+  String key(long table, int i) {
+    return string(keyNumber(table, i));
+  }
+
+  Object tableValue(long table, int i) {
+    return value(tableEntry(table, i) + 4);
+  }
+
+  @Nullable
+  TomlPosition tablePosition(long table, int i) {
+    return hasPositions ? TomlPosition.unpack(bytes.getLong(tableEntry(table, i) + 13)) : null;
+  }
+
+  byte tableType(long table, int i) {
+    return bytes.get(tableEntry(table, i) + 4);
+  }
+
+  long tablePayload(long table, int i) {
+    return bytes.getLong(tableEntry(table, i) + 5);
+  }
+
+  Object arrayValue(long array, int i) {
+    return value(arrayElement(array, i));
+  }
+
+  @Nullable
+  TomlPosition arrayPosition(long array, int i) {
+    return hasPositions ? TomlPosition.unpack(bytes.getLong(arrayElement(array, i) + 9)) : null;
+  }
+
+  boolean isHomogeneous(long array) {
+    return (bytes.getInt(array + 4) & ARRAY_FLAG_HOMOGENEOUS) != 0;
+  }
+
+  byte arrayType(long array, int i) {
+    return bytes.get(arrayElement(array, i));
+  }
+
+  long arrayPayload(long array, int i) {
+    return bytes.getLong(arrayElement(array, i) + 1);
+  }
+
+  /**
+   * Find an entry of a table.
+   *
+   * @return The entry number, or {@code -1} if the table has no entry for the key.
+   */
+  int indexOf(long table, String key) {
+    int count = count(table);
+    int capacity = bytes.getInt(table + 4);
+    int hash = key.hashCode();
+    if (capacity == 0) {
+      for (int i = 0; i < count; ++i) {
+        if (stringEquals(keyNumber(table, i), key, hash)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    long slots = tableEntry(table, count);
+    int mask = capacity - 1;
+    int slot = spread(hash) & mask;
+    int entry;
+    while ((entry = bytes.getInt(slots + slot * 4L)) != 0) {
+      if (stringEquals(keyNumber(table, entry - 1), key, hash)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private Object value(long at) {
+    byte type = bytes.get(at);
+    long payload = bytes.getLong(at + 1);
+    switch (type) {
+      case STRING:
+        return string((int) payload);
+      case INTEGER:
+        return payload;
+      case FLOAT:
+        return Double.longBitsToDouble(payload);
+      case BOOLEAN:
+        return payload != 0;
+      case OFFSET_DATE_TIME:
+        return OffsetDateTime.of(localDateTime(payload), ZoneOffset.ofTotalSeconds(bytes.getInt(payload + 12)));
+      case LOCAL_DATE_TIME:
+        return localDateTime(payload);
+      case LOCAL_DATE:
+        return LocalDate.ofEpochDay(payload);
+      case LOCAL_TIME:
+        return LocalTime.ofNanoOfDay(payload);
+      case ARRAY:
+        return new TapeTomlArray(this, payload);
+      case TABLE:
+        return new TapeTomlTable(this, payload);
+      default:
+        throw new IllegalStateException("Corrupt TOML tape: unknown type " + type + " at offset " + at);
+    }
+  }
+
+  /**
+   * Decode the whole tape into heap tables and arrays.
+   *
+   * <p>
+   * Each string of the string table is decoded once, and integer and float values are never boxed.
+   */
+  FrozenTomlTable decode() {
+    return decodeTable(rootOffset, new String[bytes.getInt(stringsOffset)]);
+  }
+
+  private FrozenTomlTable decodeTable(long table, String[] strings) {
+    int count = count(table);
+    String[] keys = new String[count];
+    Object[] values = new Object[count];
+    long[] positions = new long[count];
+    long[] primitives = null;
+    for (int i = 0; i < count; ++i) {
+      long entry = tableEntry(table, i);
+      keys[i] = decodedString(bytes.getInt(entry), strings);
+      byte type = bytes.get(entry + 4);
+      long payload = bytes.getLong(entry + 5);
+      if (type == INTEGER || type == FLOAT) {
+        if (primitives == null) {
+          primitives = new long[count];
+        }
+        primitives[i] = payload;
+        values[i] = (type == INTEGER) ? FrozenTomlTable.LONG_VALUE : FrozenTomlTable.DOUBLE_VALUE;
+      } else {
+        values[i] = decodeValue(entry + 4, strings);
+      }
+      if (hasPositions) {
+        positions[i] = bytes.getLong(entry + 13);
+      }
+    }
+    return new FrozenTomlTable(keys, values, positions, primitives);
+  }
+
+  private TomlArray decodeArray(long array, String[] strings) {
+    int count = count(array);
+    boolean homogeneous = isHomogeneous(array);
+    long[] positions = new long[count];
+    byte type = (count > 0) ? arrayType(array, 0) : 0;
+    for (int i = 0; i < count; ++i) {
+      if (arrayType(array, i) != type) {
+        type = 0;
+      }
+      if (hasPositions) {
+        positions[i] = bytes.getLong(arrayElement(array, i) + 9);
+      }
+    }
+    switch (type) {
+      case INTEGER:
+        long[] longs = new long[count];
+        for (int i = 0; i < count; ++i) {
+          longs[i] = arrayPayload(array, i);
+        }
+        return new PrimitiveTomlArray.OfLong(longs, positions, homogeneous);
+      case FLOAT:
+        double[] doubles = new double[count];
+        for (int i = 0; i < count; ++i) {
+          doubles[i] = Double.longBitsToDouble(arrayPayload(array, i));
+        }
+        return new PrimitiveTomlArray.OfDouble(doubles, positions, homogeneous);
+      case BOOLEAN:
+        boolean[] booleans = new boolean[count];
+        for (int i = 0; i < count; ++i) {
+          booleans[i] = arrayPayload(array, i) != 0;
+        }
+        return new PrimitiveTomlArray.OfBoolean(booleans, positions, homogeneous);
+      default:
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; ++i) {
+          values[i] = decodeValue(arrayElement(array, i), strings);
+        }
+        return new FrozenTomlArray(values, positions, homogeneous);
+    }
+  }
+
+  private Object decodeValue(long at, String[] strings) {
+    byte type = bytes.get(at);
+    long payload = bytes.getLong(at + 1);
+    switch (type) {
+      case STRING:
+        return decodedString((int) payload, strings);
+      case ARRAY:
+        return decodeArray(payload, strings);
+      case TABLE:
+        return decodeTable(payload, strings);
+      default:
+        return value(at);
+    }
+  }
+
+  private String decodedString(int number, String[] strings) {
+    String string = strings[number];
+    if (string == null) {
+      string = string(number);
+      strings[number] = string;
+    }
+    return string;
+  }
+
+  private LocalDateTime localDateTime(long record) {
+    return LocalDateTime.ofEpochSecond(bytes.getLong(record), bytes.getInt(record + 8), ZoneOffset.UTC);
+  }
+
+  private long stringOffset(int number) {
+    return bytes.getLong(stringsOffset + 4 + number * 8L);
+  }
+
+  String string(int number) {
+    long offset = stringOffset(number);
+    byte[] utf8 = new byte[bytes.getInt(offset + 4)];
+    bytes.get(offset + 8, utf8);
+    return new String(utf8, UTF_8);
+  }
+
+  private boolean stringEquals(int number, String key, int hash) {
+    long offset = stringOffset(number);
+    if (bytes.getInt(offset) != hash) {
+      return false;
+    }
+    int length = bytes.getInt(offset + 4);
+    int keyLength = key.length();
+    for (int i = 0; i < keyLength; ++i) {
+      char c = key.charAt(i);
+      if (c >= 0x80) {
+        return string(number).equals(key);
+      }
+      if (i >= length || bytes.get(offset + 8 + i) != c) {
+        return false;
+      }
+    }
+    return length == keyLength;
+  }
+
+  /**
+   * Receives the bytes of a tape, in order.
+   */
+  private interface Sink {
+    void write(long offset, ByteBuffer bytes) throws IOException;
+  }
+
+  /**
+   * Encodes a table into a tape.
+   *
+   * <p>
+   * The table is measured first, so the header can be written before anything else, and the tape is then appended to
+   * the sink through a small staging buffer.
+   */
+  private static final class Writer {
+    private static final int STAGING_SIZE = 64 * 1024;
+
+    private final TomlTable root;
+    private final boolean includePositions;
+    private final int entrySize;
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final long rootOffset;
+    private final long stringsOffset;
+    private final long length;
+    private ByteBuffer staging;
+    private Sink sink;
+    private long flushed;
+
+    Writer(TomlTable table, boolean includePositions) {
+      // encode a consistent view of a table that may be modified concurrently
+      this.root = (table instanceof ConcurrentTomlTable) ? ((ConcurrentTomlTable) table).snapshot() : table;
+      this.includePositions = includePositions;
+      this.entrySize = includePositions ? 17 : 9;
+      long nodes = measureTable(root);
+      long stringData = 0;
+      for (String value : strings.keySet()) {
+        stringData += 8 + utf8Length(value);
+      }
+      this.rootOffset = HEADER_SIZE + nodes - tableSize(root.size());
+      this.stringsOffset = HEADER_SIZE + nodes + stringData;
+      this.length = stringsOffset + 4 + 8L * strings.size();
+    }
+
+    long length() {
+      return length;
+    }
+
+    void write(Sink sink) throws IOException {
+      this.sink = sink;
+      this.staging = ByteBuffer.allocate((int) Math.min(STAGING_SIZE, length)).order(ByteOrder.LITTLE_ENDIAN);
+      this.flushed = 0;
+      reserve(HEADER_SIZE);
+      staging.putInt(MAGIC);
+      staging.putInt(VERSION);
+      staging.putInt(includePositions ? FLAG_POSITIONS : 0);
+      staging.putInt(0);
+      staging.putLong(rootOffset);
+      staging.putLong(stringsOffset);
+      staging.putLong(length);
+      long root = writeTable(this.root);
+      long[] offsets = new long[strings.size()];
+      int i = 0;
+      for (String value : strings.keySet()) {
+        offsets[i++] = position();
+        byte[] utf8 = value.getBytes(UTF_8);
+        reserve(8);
+        staging.putInt(value.hashCode());
+        staging.putInt(utf8.length);
+        put(utf8);
+      }
+      if (root != rootOffset || position() != stringsOffset) {
+        throw new ConcurrentModificationException();
+      }
+      reserve(4);
+      staging.putInt(offsets.length);
+      for (long offset : offsets) {
+        reserve(8);
+        staging.putLong(offset);
+      }
+      flush();
+      if (flushed != length) {
+        throw new ConcurrentModificationException();
+      }
+    }
+
+    private long position() {
+      return flushed + staging.position();
+    }
+
+    private void reserve(int bytes) throws IOException {
+      if (staging.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+      int written = 0;
+      while (written < bytes.length) {
+        if (!staging.hasRemaining()) {
+          flush();
+        }
+        int chunk = Math.min(bytes.length - written, staging.remaining());
+        staging.put(bytes, written, chunk);
+        written += chunk;
+      }
+    }
+
+    private void flush() throws IOException {
+      staging.flip();
+      int count = staging.remaining();
+      sink.write(flushed, staging);
+      flushed += count;
+      staging.clear();
+    }
+
+    private int stringNumber(String value) {
+      Integer number = strings.get(value);
+      if (number == null) {
+        number = strings.size();
+        strings.put(value, number);
+      }
+      return number;
+    }
+
+    private static int capacity(int count) {
+      return (count > LINEAR_SCAN_LIMIT) ? Integer.highestOneBit(count * 2 - 1) << 1 : 0;
+    }
+
+    private long tableSize(int count) {
+      return 8 + (long) count * (entrySize + 4) + (long) capacity(count) * 4;
+    }
+
+    // the size of a table and everything it refers to, numbering strings in the order they are written
+    private long measureTable(TomlTable table) {
+      long size = tableSize(table.size());
+      for (String key : table.keySet()) {
+        stringNumber(key);
+        Object value = table.get(Collections.singletonList(key));
+        assert value != null;
+        size += measureValue(value);
+      }
+      return size;
+    }
+
+    private long measureArray(TomlArray array) {
+      int count = array.size();
+      long size = 8 + (long) count * entrySize;
+      for (int i = 0; i < count; ++i) {
+        size += measureValue(array.get(i));
+      }
+      return size;
+    }
+
+    // the size of any records a value refers to
+    private long measureValue(Object value) {
+      if (value instanceof String) {
+        stringNumber((String) value);
+        return 0;
+      } else if (value instanceof Long
+          || value instanceof Double
+          || value instanceof Boolean
+          || value instanceof LocalDate
+          || value instanceof LocalTime) {
+        return 0;
+      } else if (value instanceof OffsetDateTime) {
+        return 16;
+      } else if (value instanceof LocalDateTime) {
+        return 12;
+      } else if (value instanceof TomlArray) {
+        return measureArray((TomlArray) value);
+      } else if (value instanceof TomlTable) {
+        return measureTable((TomlTable) value);
+      } else {
+        throw new IllegalArgumentException("Unsupported type " + value.getClass().getSimpleName());
+      }
+    }
+
+    // the length of the bytes that String.getBytes(UTF_8) returns, which replaces unpaired surrogates with '?'
+    private static long utf8Length(String value) {
+      long length = 0;
+      int count = value.length();
+      for (int i = 0; i < count; ++i) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          length += 1;
+        } else if (c < 0x800) {
+          length += 2;
+        } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(value.charAt(i + 1))) {
+          length += 4;
+          ++i;
+        } else if (Character.isSurrogate(c)) {
+          length += 1;
+        } else {
+          length += 3;
+        }
+      }
+      return length;
+    }
+
+    private long writeTable(TomlTable table) throws IOException {
+      int count = table.size();
+      String[] keys = new String[count];
+      Object[] values = new Object[count];
+      int i = 0;
+      for (String key : table.keySet()) {
+        if (i == count) {
+          throw new ConcurrentModificationException();
+        }
+        Object value = table.get(Collections.singletonList(key));
+        assert value != null;
+        keys[i] = key;
+        values[i] = value;
+        ++i;
+      }
+      long[] payloads = writeRecords(values);
+      int capacity = capacity(count);
+      int[] slots = new int[capacity];
+      long start = position();
+      reserve(8);
+      staging.putInt(count);
+      staging.putInt(capacity);
+      for (i = 0; i < count; ++i) {
+        reserve(entrySize + 4);
+        staging.putInt(stringNumber(keys[i]));
+        staging.put(type(values[i]));
+        staging.putLong(payloads[i]);
+        if (includePositions) {
+          staging.putLong(TomlPosition.pack(table.inputPositionOf(Collections.singletonList(keys[i]))));
+        }
+        if (capacity > 0) {
+          int mask = capacity - 1;
+          int slot = spread(keys[i].hashCode()) & mask;
+          while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+          slots[slot] = i + 1;
+        }
+      }
+      for (int slot : slots) {
+        reserve(4);
+        staging.putInt(slot);
+      }
+      return start;
+    }
+
+    private long writeArray(TomlArray array) throws IOException {
+      int count = array.size();
+      Object[] values = new Object[count];
+      for (int i = 0; i < count; ++i) {
+        values[i] = array.get(i);
+      }
+      long[] payloads = writeRecords(values);
+      long start = position();
+      reserve(8);
+      staging.putInt(count);
+      staging.putInt(FrozenTomlArray.isHomogeneous(array) ? ARRAY_FLAG_HOMOGENEOUS : 0);
+      for (int i = 0; i < count; ++i) {
+        reserve(entrySize);
+        staging.put(type(values[i]));
+        staging.putLong(payloads[i]);
+        if (includePositions) {
+          staging.putLong(TomlPosition.pack(array.inputPositionOf(i)));
+        }
+      }
+      return start;
+    }
+
+    // write the records that values refer to, returning the payload of each value
+    private long[] writeRecords(Object[] values) throws IOException {
+      long[] payloads = new long[values.length];
+      for (int i = 0; i < values.length; ++i) {
+        Object value = values[i];
+        if (value instanceof String) {
+          payloads[i] = stringNumber((String) value);
+        } else if (value instanceof Long) {
+          payloads[i] = (Long) value;
+        } else if (value instanceof Double) {
+          payloads[i] = Double.doubleToRawLongBits((Double) value);
+        } else if (value instanceof Boolean) {
+          payloads[i] = ((Boolean) value) ? 1 : 0;
+        } else if (value instanceof OffsetDateTime) {
+          OffsetDateTime dateTime = (OffsetDateTime) value;
+          payloads[i] = writeDateTime(dateTime.toLocalDateTime(), dateTime.getOffset());
+        } else if (value instanceof LocalDateTime) {
+          payloads[i] = writeDateTime((LocalDateTime) value, null);
+        } else if (value instanceof LocalDate) {
+          payloads[i] = ((LocalDate) value).toEpochDay();
+        } else if (value instanceof LocalTime) {
+          payloads[i] = ((LocalTime) value).toNanoOfDay();
+        } else if (value instanceof TomlArray) {
+          payloads[i] = writeArray((TomlArray) value);
+        } else if (value instanceof TomlTable) {
+          payloads[i] = writeTable((TomlTable) value);
+        } else {
+          throw new IllegalArgumentException("Unsupported type " + value.getClass().getSimpleName());
+        }
+      }
+      return payloads;
+    }
+
+    private static byte type(Object value) {
+      if (value instanceof String) {
+        return STRING;
+      } else if (value instanceof Long) {
+        return INTEGER;
+      } else if (value instanceof Double) {
+        return FLOAT;
+      } else if (value instanceof Boolean) {
+        return BOOLEAN;
+      } else if (value instanceof OffsetDateTime) {
+        return OFFSET_DATE_TIME;
+      } else if (value instanceof LocalDateTime) {
+        return LOCAL_DATE_TIME;
+      } else if (value instanceof LocalDate) {
+        return LOCAL_DATE;
+      } else if (value instanceof LocalTime) {
+        return LOCAL_TIME;
+      } else if (value instanceof TomlArray) {
+        return ARRAY;
+      } else {
+        return TABLE;
+      }
+    }
+
+    private long writeDateTime(LocalDateTime dateTime, @Nullable ZoneOffset offset) throws IOException {
+      long start = position();
+      reserve(16);
+      staging.putLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+      staging.putInt(dateTime.getNano());
+      if (offset != null) {
+        staging.putInt(offset.getTotalSeconds());
+      }
+      return start;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Traversals shared by the table implementations.
+ */
+final class TomlTraversal {
+  private TomlTraversal() {}
+
+  /**
+   * Visit the leaf values of a table, depth-first.
+   *
+   * @param table The table.
+   * @param path The path to the table, which is updated (and restored) as sub-tables are visited.
+   * @param pathView A read-only view of the path, which is passed to the action.
+   * @param action The action to perform for each leaf value.
+   */
+  static void forEachLeaf(
+      TomlTable table,
+      List<String> path,
+      List<String> pathView,
+      BiConsumer<List<String>, Object> action) {
+    table.forEach((key, value) -> {
+      path.add(key);
+      if (value instanceof TomlTable) {
+        forEachLeaf((TomlTable) value, path, pathView, action);
+      } else {
+        action.accept(pathView, value);
+      }
+      path.remove(path.size() - 1);
+    });
+  }
+
+  /**
+   * Count the leaf values of a table and of all its sub-tables.
+   *
+   * @param value A table, or a leaf value (which counts as one leaf).
+   * @return The number of leaf values.
+   */
+  static long leafCount(Object value) {
+    if (value instanceof FrozenTomlTable) {
+      return ((FrozenTomlTable) value).leafCount();
+    }
+    if (!(value instanceof TomlTable)) {
+      return 1;
+    }
+    long count = 0;
+    for (Map.Entry<String, Object> entry : ((TomlTable) value).entrySet()) {
+      count += leafCount(entry.getValue());
+    }
+    return count;
+  }
+}
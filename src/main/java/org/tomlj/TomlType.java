@@ -16,35 +16,84 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
-import java.util.Arrays;
 import java.util.Optional;
 
-enum TomlType {
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The types of TOML values.
+ */
+public enum TomlType {
+  /** A string. */
   STRING("string", String.class),
+  /** An integer, held as a {@link Long}. */
   INTEGER("integer", Long.class),
+  /** A float, held as a {@link Double}. */
   FLOAT("float", Double.class),
+  /** A boolean. */
   BOOLEAN("boolean", Boolean.class),
+  /** An offset date-time. */
   OFFSET_DATE_TIME("offset date-time", OffsetDateTime.class),
+  /** A local date-time. */
   LOCAL_DATE_TIME("local date-time", LocalDateTime.class),
+  /** A local date. */
   LOCAL_DATE("local date", LocalDate.class),
+  /** A local time. */
   LOCAL_TIME("local time", LocalTime.class),
+  /** An array. */
   ARRAY("array", TomlArray.class),
+  /** A table. */
   TABLE("table", TomlTable.class);
 
+  private static final TomlType[] VALUES = values();
+  // the type of each class of value, found by a scan of the types on first use
+  private static final ClassValue<Optional<TomlType>> TYPES = new ClassValue<Optional<TomlType>>() {
+    @Override
+    protected Optional<TomlType> computeValue(Class<?> clazz) {
+      for (TomlType type : VALUES) {
+        if (type.clazz.isAssignableFrom(clazz)) {
+          return type.optional;
+        }
+      }
+      return Optional.empty();
+    }
+  };
+
   private final String name;
   private final Class<?> clazz;
+  // shared, so that lookups do not allocate
+  private final Optional<TomlType> optional;
 
   TomlType(String name, Class<?> clazz) {
     this.name = name;
     this.clazz = clazz;
+    this.optional = Optional.of(this);
   }
 
   static Optional<TomlType> typeFor(Object obj) {
-    return typeForClass(obj.getClass());
+    return TYPES.get(obj.getClass());
   }
 
   static Optional<TomlType> typeForClass(Class<?> clazz) {
-    return Arrays.stream(values()).filter(t -> t.clazz.isAssignableFrom(clazz)).findAny();
+    return TYPES.get(clazz);
+  }
+
+  /**
+   * Get the type of a TOML value.
+   *
+   * @param value The value.
+   * @return The type, or {@code null} if the value is not of a TOML type.
+   */
+  @Nullable
+  public static TomlType of(Object value) {
+    return TYPES.get(value.getClass()).orElse(null);
+  }
+
+  /**
+   * The type stored for a value in a {@link TomlTape}, where types are numbered from 1 in declaration order.
+   */
+  static TomlType ofTapeType(byte type) {
+    return VALUES[type - 1];
   }
 
   static String typeNameFor(Object obj) {
@@ -55,6 +104,9 @@ enum TomlType {
     return typeForClass(clazz).map(t -> t.name).orElseGet(clazz::getSimpleName);
   }
 
+  /**
+   * @return The name of the type, as used in the TOML specification (e.g. {@code "offset date-time"}).
+   */
   public String typeName() {
     return name;
   }
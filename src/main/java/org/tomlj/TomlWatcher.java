@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Keeps a set of TOML files up to date, notifying listeners of the key paths that change.
+ *
+ * <pre>{@code
+ * TomlWatcher watcher = TomlWatcher.create(Duration.ofMillis(200));
+ * TomlParseResult config = watcher.watch(path);
+ * watcher.addListener("server", (file, changes, document) -> reconfigure(document));
+ * }</pre>
+ *
+ * <p>
+ * Directories are watched with a {@link WatchService}, so nothing is read while files are unchanged. Bursts of events
+ * for a file, such as those of an editor saving it, are debounced: the file is reparsed on a background thread once no
+ * event has arrived for the debounce delay. The new document is compared with the previous one using
+ * {@link TomlDiff}, and each listener is called with the changes under its key path prefix, if there are any.
+ *
+ * <p>
+ * A document that fails to parse, or has parse errors, is not published: the previous document is kept and the
+ * failure is reported to the error listeners. Listeners are called on the background thread, one at a time.
+ */
+public final class TomlWatcher implements Closeable {
+
+  /**
+   * A listener for changes to watched documents.
+   */
+  @FunctionalInterface
+  public interface Listener {
+    /**
+     * Called when a watched document has changed under the prefix of the listener.
+     *
+     * @param file The file that changed.
+     * @param changes The changes under the prefix of the listener.
+     * @param document The new document.
+     */
+    void changed(Path file, List<TomlDiff.Change> changes, TomlParseResult document);
+  }
+
+  private static final class Registration {
+    final List<String> prefix;
+    final Listener listener;
+
+    Registration(List<String> prefix, Listener listener) {
+      this.prefix = prefix;
+      this.listener = listener;
+    }
+  }
+
+  private final long debounceNanos;
+  private final TomlVersion version;
+  private final WatchService watchService;
+  private final ScheduledExecutorService executor;
+  private final Thread watchThread;
+  private final Map<Path, TomlParseResult> documents = new ConcurrentHashMap<>();
+  private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+  private final Map<Path, Reparse> pending = new ConcurrentHashMap<>();
+  private final List<Registration> listeners = new CopyOnWriteArrayList<>();
+  private final List<BiConsumer<Path, Exception>> errorListeners = new CopyOnWriteArrayList<>();
+
+  private TomlWatcher(Duration debounce, TomlVersion version) throws IOException {
+    this.debounceNanos = debounce.toNanos();
+    this.version = version;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "tomlj-watcher-reparse");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.watchThread = new Thread(this::pollEvents, "tomlj-watcher");
+    watchThread.setDaemon(true);
+    watchThread.start();
+  }
+
+  /**
+   * Create a watcher, parsing at the latest TOML version.
+   *
+   * @param debounce The delay without events after which a changed file is reparsed.
+   * @return The watcher.
+   * @throws IOException If the watch service cannot be created.
+   */
+  public static TomlWatcher create(Duration debounce) throws IOException {
+    return create(debounce, TomlVersion.LATEST);
+  }
+
+  /**
+   * Create a watcher.
+   *
+   * @param debounce The delay without events after which a changed file is reparsed.
+   * @param version The version level to parse at.
+   * @return The watcher.
+   * @throws IOException If the watch service cannot be created.
+   */
+  public static TomlWatcher create(Duration debounce, TomlVersion version) throws IOException {
+    requireNonNull(debounce);
+    requireNonNull(version);
+    if (debounce.isNegative()) {
+      throw new IllegalArgumentException("debounce must not be negative");
+    }
+    return new TomlWatcher(debounce, version);
+  }
+
+  /**
+   * Start watching a file.
+   *
+   * @param file The file to watch.
+   * @return The current document.
+   * @throws IOException If an IO error occurs reading the file or watching its directory.
+   */
+  public TomlParseResult watch(Path file) throws IOException {
+    Path path = file.toAbsolutePath().normalize();
+    Path directory = path.getParent();
+    if (directory == null) {
+      throw new IllegalArgumentException("Cannot watch " + file);
+    }
+    TomlParseResult document = Toml.parse(path, version);
+    // directories are registered and cancelled together with the documents they hold
+    synchronized (directories) {
+      documents.put(path, document);
+      if (!directories.containsKey(directory)) {
+        directories
+            .put(
+                directory,
+                directory
+                    .register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE));
+      }
+    }
+    return document;
+  }
+
+  /**
+   * Stop watching a file.
+   *
+   * <p>
+   * The directory of the file is no longer watched once none of its files are.
+   *
+   * @param file The file.
+   */
+  public void unwatch(Path file) {
+    Path path = file.toAbsolutePath().normalize();
+    synchronized (directories) {
+      documents.remove(path);
+      Path directory = path.getParent();
+      if (directory != null && documents.keySet().stream().noneMatch(p -> directory.equals(p.getParent()))) {
+        WatchKey key = directories.remove(directory);
+        if (key != null) {
+          key.cancel();
+        }
+      }
+    }
+    Reparse reparse = pending.remove(path);
+    if (reparse != null) {
+      reparse.future.cancel(false);
+    }
+  }
+
+  /**
+   * Get the current document for a watched file.
+   *
+   * @param file The file.
+   * @return The current document, or {@code null} if the file is not watched.
+   */
+  @Nullable
+  public TomlParseResult current(Path file) {
+    return documents.get(file.toAbsolutePath().normalize());
+  }
+
+  /**
+   * Add a listener for changes under a key path prefix, in any watched file.
+   *
+   * @param dottedKeyPrefix A dotted key prefix (e.g. {@code "server.address"}), or {@code ""} for all changes.
+   * @param listener The listener.
+   * @throws IllegalArgumentException If the prefix cannot be parsed.
+   */
+  public void addListener(String dottedKeyPrefix, Listener listener) {
+    requireNonNull(dottedKeyPrefix);
+    addListener(dottedKeyPrefix.isEmpty() ? Collections.emptyList() : Toml.parseDottedKey(dottedKeyPrefix), listener);
+  }
+
+  /**
+   * Add a listener for changes under a key path prefix, in any watched file.
+   *
+   * @param prefix A key path prefix, or an empty list for all changes.
+   * @param listener The listener.
+   */
+  public void addListener(List<String> prefix, Listener listener) {
+    requireNonNull(prefix);
+    requireNonNull(listener);
+    listeners.add(new Registration(new ArrayList<>(prefix), listener));
+  }
+
+  /**
+   * Remove a listener from all prefixes it was added for.
+   *
+   * @param listener The listener.
+   */
+  public void removeListener(Listener listener) {
+    listeners.removeIf(registration -> registration.listener == listener);
+  }
+
+  /**
+   * Add a listener for files that could not be read, or that had parse errors.
+   *
+   * @param listener A listener, called with the file and either the {@link IOException} or the first
+   *        {@link TomlParseError}.
+   */
+  public void addErrorListener(BiConsumer<Path, Exception> listener) {
+    errorListeners.add(requireNonNull(listener));
+  }
+
+  private void pollEvents() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            for (Path path : documents.keySet()) {
+              if (directory.equals(path.getParent())) {
+                schedule(path);
+              }
+            }
+          } else {
+            Path path = directory.resolve((Path) event.context());
+            if (documents.containsKey(path)) {
+              schedule(path);
+            }
+          }
+        }
+        if (!key.reset()) {
+          // the directory may have been registered again, with a new key
+          directories.remove(directory, key);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException | RejectedExecutionException e) {
+      // closed
+    }
+  }
+
+  private void schedule(Path path) {
+    pending.compute(path, (p, previous) -> {
+      if (previous != null) {
+        previous.future.cancel(false);
+      }
+      Reparse reparse = new Reparse(p);
+      reparse.future = executor.schedule(reparse, debounceNanos, TimeUnit.NANOSECONDS);
+      return reparse;
+    });
+  }
+
+  /**
+   * A scheduled reparse of a file, which is pending until it starts.
+   */
+  private final class Reparse implements Runnable {
+    private final Path path;
+    // assigned when scheduled, before the reparse is visible in pending
+    private ScheduledFuture<?> future;
+
+    Reparse(Path path) {
+      this.path = path;
+    }
+
+    @Override
+    public void run() {
+      // a later event may already have scheduled another reparse, which must stay pending
+      pending.remove(path, this);
+      reparse(path);
+    }
+  }
+
+  private void reparse(Path path) {
+    TomlParseResult previous = documents.get(path);
+    if (previous == null) {
+      return;
+    }
+    TomlParseResult document;
+    try {
+      document = Toml.parse(path, version);
+    } catch (IOException e) {
+      notifyError(path, e);
+      return;
+    }
+    if (document.hasErrors()) {
+      notifyError(path, document.errors().get(0));
+      return;
+    }
+    TomlDiff diff = TomlDiff.compute(previous, document);
+    if (diff.isEmpty() || !documents.replace(path, previous, document)) {
+      return;
+    }
+    for (Registration registration : listeners) {
+      List<TomlDiff.Change> changes = new ArrayList<>();
+      for (TomlDiff.Change change : diff.changes()) {
+        if (overlaps(change.path(), registration.prefix)) {
+          changes.add(change);
+        }
+      }
+      if (!changes.isEmpty()) {
+        try {
+          registration.listener.changed(path, Collections.unmodifiableList(changes), document);
+        } catch (RuntimeException e) {
+          notifyError(path, e);
+        }
+      }
+    }
+  }
+
+  // whether a change is under a prefix, or replaces a table holding it
+  private static boolean overlaps(List<String> path, List<String> prefix) {
+    int length = Math.min(path.size(), prefix.size());
+    return path.subList(0, length).equals(prefix.subList(0, length));
+  }
+
+  private void notifyError(Path path, Exception error) {
+    for (BiConsumer<Path, Exception> listener : errorListeners) {
+      listener.accept(path, error);
+    }
+  }
+
+  /**
+   * Stop watching all files, and stop the background threads.
+   *
+   * @throws IOException If an IO error occurs closing the watch service.
+   */
+  @Override
+  public void close() throws IOException {
+    executor.shutdownNow();
+    watchService.close();
+    watchThread.interrupt();
+  }
+}
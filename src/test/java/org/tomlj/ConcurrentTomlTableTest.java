@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentTomlTableTest {
+
+  @Test
+  void shouldUpdateValues() {
+    ConcurrentTomlTable table = ConcurrentTomlTable.create();
+    table.set("server.host", "localhost");
+    table.set(Arrays.asList("server", "port"), 8080, TomlPosition.positionAt(3, 1));
+    table.set("name", "demo");
+    table.set("server.host", "example.com");
+
+    assertEquals(Arrays.asList("server", "name"), new ArrayList<>(table.keySet()));
+    assertEquals("example.com", table.getString("server.host"));
+    assertEquals(8080L, table.getLongOrDefault("server.port", 0));
+    assertEquals(TomlPosition.positionAt(3, 1), table.inputPositionOf("server.port"));
+    assertSame(table, table.get(Collections.emptyList()));
+
+    assertTrue(table.remove("server.host"));
+    assertFalse(table.remove("server.host"));
+    assertFalse(table.contains("server.host"));
+    assertThrows(IllegalArgumentException.class, () -> table.set("name.first", "x"));
+
+    table.merge(TomlTable.builder().put("extra", true).build());
+    assertEquals(Boolean.TRUE, table.getBoolean("extra"));
+    assertEquals(table.snapshot(), table);
+    assertEquals(table.snapshot().hashCode(), table.hashCode());
+  }
+
+  @Test
+  void shouldIterateOverSnapshots() {
+    ConcurrentTomlTable table = ConcurrentTomlTable.of(TomlTable.builder().put("a", 1).put("b", 2).build());
+    PersistentTomlTable snapshot = table.snapshot();
+    Iterator<String> keys = table.keySet().iterator();
+    table.set("c", 3);
+    table.remove("a");
+
+    List<String> seen = new ArrayList<>();
+    keys.forEachRemaining(seen::add);
+    assertEquals(Arrays.asList("a", "b"), seen);
+    assertEquals(2, snapshot.size());
+    assertFalse(snapshot.contains("c"));
+    assertEquals(Arrays.asList("b", "c"), new ArrayList<>(table.keySet()));
+  }
+
+  @Test
+  void shouldNotLoseConcurrentUpdates() throws Exception {
+    ConcurrentTomlTable table = ConcurrentTomlTable.create();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Callable<Void>> writers = new ArrayList<>();
+      for (int t = 0; t < 4; ++t) {
+        int thread = t;
+        writers.add(() -> {
+          for (int i = 0; i < 250; ++i) {
+            table.set(Arrays.asList("t" + thread, "k" + i), i);
+            table.update(current -> current.with("count", current.getLongOrDefault("count", 0) + 1));
+          }
+          return null;
+        });
+      }
+      for (Future<Void> future : executor.invokeAll(writers)) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1000L, table.getLongOrDefault("count", 0));
+    for (int t = 0; t < 4; ++t) {
+      assertEquals(250, table.getTableOrEmpty("t" + t).size());
+    }
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.tomlj.TomlPosition.positionAt;
+import static org.tomlj.TomlVersion.HEAD;
+import static org.tomlj.TomlVersion.V0_4_0;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class FrozenTomlTableTest {
+
+  @Test
+  void emptyTableIsEmpty() {
+    TomlTable table = new MutableTomlTable(HEAD).freeze(new HashMap<>());
+    assertTrue(table.isEmpty());
+    assertEquals(0, table.size());
+    assertTrue(table.keySet().isEmpty());
+  }
+
+  @Test
+  void shouldKeepValuesPositionsAndOrder() {
+    MutableTomlTable mutable = new MutableTomlTable(HEAD);
+    mutable.set("bar", "one", positionAt(1, 1));
+    mutable.set("foo.baz", 2L, positionAt(2, 3));
+    mutable.set("alpha", true, positionAt(3, 1));
+    TomlTable table = mutable.freeze(new HashMap<>());
+
+    assertEquals(Arrays.asList("bar", "foo", "alpha"), new ArrayList<>(table.keySet()));
+    assertEquals("one", table.getString("bar"));
+    assertEquals(Long.valueOf(2), table.getLong("foo.baz"));
+    assertTrue(table.getBoolean("alpha"));
+    assertEquals(positionAt(2, 3), table.inputPositionOf("foo.baz"));
+    assertEquals(positionAt(1, 1), table.inputPositionOf(Collections.emptyList()));
+    assertNull(table.get("baz"));
+    assertNull(table.get("bar.baz"));
+    assertNull(table.inputPositionOf("foo.bar"));
+    assertEquals(mutable.dottedKeySet(), table.dottedKeySet());
+    assertEquals(mutable.keyPathSet(true), table.keyPathSet(true));
+    assertEquals(mutable.toJson(), table.toJson());
+  }
+
+  @Test
+  void shouldIndexLargeTables() {
+    MutableTomlTable mutable = new MutableTomlTable(HEAD);
+    for (int i = 0; i < 100; ++i) {
+      mutable.set("key" + i, (long) i, positionAt(i + 1, 1));
+    }
+    TomlTable table = mutable.freeze(new HashMap<>());
+    assertEquals(100, table.size());
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(Long.valueOf(i), table.getLong("key" + i));
+      assertEquals(positionAt(i + 1, 1), table.inputPositionOf("key" + i));
+      assertTrue(table.keySet().contains("key" + i));
+    }
+    assertFalse(table.contains("key100"));
+    assertEquals("key0", table.keySet().iterator().next());
+    assertEquals(mutable.toMap(), table.toMap());
+  }
+
+  @Test
+  void shouldShareKeysBetweenTables() {
+    MutableTomlTable mutable = new MutableTomlTable(HEAD);
+    MutableTomlTable first = mutable.createTableArray(Arrays.asList("servers"), positionAt(1, 1));
+    first.set("host", "a", positionAt(2, 1));
+    MutableTomlTable second = mutable.createTableArray(Arrays.asList("servers"), positionAt(3, 1));
+    second.set(new String("host"), "b", positionAt(4, 1));
+    TomlTable table = mutable.freeze(new HashMap<>());
+
+    TomlArray servers = table.getArrayOrEmpty("servers");
+    assertEquals(2, servers.size());
+    assertSame(
+        servers.getTable(0).keySet().iterator().next(),
+        servers.getTable(1).keySet().iterator().next());
+    assertEquals("b", servers.getTable(1).getString("host"));
+    assertEquals(positionAt(3, 1), servers.inputPositionOf(1));
+  }
+
+  @Test
+  void shouldKeepHomogeneousArrayTypes() {
+    MutableTomlTable mutable = new MutableTomlTable(V0_4_0);
+    mutable.set("strings", MutableTomlArray.create(V0_4_0).append("a", positionAt(1, 1)), positionAt(1, 1));
+    mutable.set("mixed", MutableTomlArray.create(HEAD).append("a", positionAt(2, 1)), positionAt(2, 1));
+    TomlTable table = mutable.freeze(new HashMap<>());
+
+    TomlArray strings = table.getArrayOrEmpty("strings");
+    assertTrue(strings.containsStrings());
+    assertFalse(strings.containsLongs());
+    assertThrows(UnsupportedOperationException.class, () -> table.getArrayOrEmpty("mixed").containsStrings());
+  }
+
+  @Test
+  void shouldBeImmutable() {
+    MutableTomlTable mutable = new MutableTomlTable(HEAD);
+    mutable.set("bar", "one", positionAt(1, 1));
+    TomlTable table = mutable.freeze(new HashMap<>());
+    assertThrows(UnsupportedOperationException.class, () -> table.keySet().remove("bar"));
+    assertThrows(UnsupportedOperationException.class, () -> table.entrySet().clear());
+    assertEquals("one", table.getString("bar"));
+  }
+
+  @Test
+  void shouldReadUnboxedValues() {
+    MutableTomlTable mutable = new MutableTomlTable(HEAD);
+    mutable.set("limits.rps", 250L, positionAt(1, 1));
+    mutable.set("limits.ratio", 0.25, positionAt(2, 1));
+    mutable.set("limits.enabled", true, positionAt(3, 1));
+    mutable.set("limits.name", "default", positionAt(4, 1));
+    TomlTable table = new FrozenTomlParseResult(mutable.freeze(new HashMap<>()), Collections.emptyList());
+
+    TomlPath rps = TomlPath.of("limits.rps");
+    assertEquals(Arrays.asList("limits", "rps"), rps);
+    assertEquals("limits.rps", rps.toString());
+    assertEquals(250L, table.getLongOrDefault(rps, 1));
+    assertEquals(1L, table.getLongOrDefault(TomlPath.of("limits.burst"), 1));
+    assertEquals(1L, table.getLongOrDefault("limits.rps.burst", 1));
+    assertEquals(OptionalLong.of(250), table.findLong(rps));
+    assertEquals(OptionalLong.empty(), table.findLong("limits.burst"));
+    assertEquals(Long.valueOf(250), table.getLong(rps));
+    assertEquals(Long.valueOf(250), table.get(rps));
+    assertTrue(table.isLong(rps));
+    assertFalse(table.isDouble(rps));
+
+    assertEquals(0.25, table.getDoubleOrDefault("limits.ratio", 1.0));
+    assertEquals(OptionalDouble.of(0.25), table.findDouble("limits.ratio"));
+    assertEquals(0.25, table.getDouble("limits.ratio", () -> 1.0));
+    assertTrue(table.getBooleanOrDefault("limits.enabled", false));
+    assertTrue(table.getBooleanOrDefault("limits.disabled", true));
+
+    TomlInvalidTypeException e =
+        assertThrows(TomlInvalidTypeException.class, () -> table.getLongOrDefault("limits.ratio", 1));
+    assertEquals("Value of 'limits.ratio' is a float", e.getMessage());
+    e = assertThrows(TomlInvalidTypeException.class, () -> table.findDouble("limits.name"));
+    assertEquals("Value of 'limits.name' is a string", e.getMessage());
+    assertEquals("{\"rps\":250,\"ratio\":0.25,\"enabled\":true,\"name\":\"default\"}",
+        table.getTable("limits").toJson().replaceAll("\\s", ""));
+  }
+
+  @Test
+  void shouldTraverseWithoutCopying() {
+    MutableTomlTable mutable = new MutableTomlTable(HEAD);
+    mutable.set("a", 1L, positionAt(1, 1));
+    mutable.set("b.c", "two", positionAt(2, 1));
+    mutable.set("b.d.e", 3.0, positionAt(3, 1));
+    mutable.set("f", MutableTomlArray.create(HEAD).append(4L, positionAt(4, 5)), positionAt(4, 1));
+    TomlTable table = mutable.freeze(new HashMap<>());
+
+    List<String> keys = new ArrayList<>();
+    table.forEach((key, value) -> keys.add(key));
+    assertEquals(Arrays.asList("a", "b", "f"), keys);
+
+    List<List<String>> paths = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    table.forEachLeaf((path, value) -> {
+      paths.add(new ArrayList<>(path));
+      values.add(value);
+    });
+    assertEquals(
+        Arrays.asList(Arrays.asList("a"), Arrays.asList("b", "c"), Arrays.asList("b", "d", "e"), Arrays.asList("f")),
+        paths);
+    assertEquals(Arrays.asList(1L, "two", 3.0, table.getArray("f")), values);
+    assertThrows(UnsupportedOperationException.class, () -> table.forEachLeaf((path, value) -> path.clear()));
+
+    Map<String, Object> map = table.toMap();
+    assertEquals(3, map.size());
+    assertEquals(1L, map.get("a"));
+    assertTrue(map.containsKey("b"));
+    assertNull(map.get("c"));
+    assertEquals(Arrays.asList("a", "b", "f"), new ArrayList<>(map.keySet()));
+    assertThrows(UnsupportedOperationException.class, () -> map.remove("a"));
+  }
+
+  @Test
+  void shouldIndexDottedKeysOfParseResults() {
+    MutableTomlTable mutable = new MutableTomlTable(HEAD);
+    mutable.set("a", 1L, positionAt(1, 1));
+    mutable.set("b.c", "two", positionAt(2, 1));
+    mutable.set(Arrays.asList("b", "d.e"), 3.0, positionAt(3, 1));
+    mutable.createTable(Arrays.asList("empty"), positionAt(4, 1));
+    TomlParseResult result = new FrozenTomlParseResult(mutable.freeze(new HashMap<>()), Collections.emptyList());
+
+    assertSame(result.dottedEntrySet(), result.dottedEntrySet());
+    assertSame(result.dottedKeySet(true), result.dottedKeySet(true));
+    assertEquals(Arrays.asList("a", "b.c", "b.\"d.e\""), new ArrayList<>(result.dottedKeySet()));
+    assertEquals(
+        Arrays.asList("a", "b", "b.c", "b.\"d.e\"", "empty"),
+        new ArrayList<>(result.dottedKeySet(true)));
+    assertEquals(mutable.keyPathSet(), result.keyPathSet());
+    assertEquals(mutable.keyPathSet(true), result.keyPathSet(true));
+    assertEquals(mutable.entryPathSet().size(), result.entryPathSet().size());
+    assertTrue(result.keyPathSet().contains(Arrays.asList("b", "d.e")));
+    assertFalse(result.keyPathSet().contains(Arrays.asList("b")));
+    assertTrue(result.keyPathSet(true).contains(Arrays.asList("b")));
+    assertTrue(result.dottedKeySet().contains("b.c"));
+    assertFalse(result.dottedKeySet().contains("empty"));
+
+    assertEquals(3.0, result.get("b.\"d.e\""));
+    assertEquals("two", result.getString("b.c"));
+    assertEquals(1L, result.getLongOrDefault("a", 0));
+    assertEquals(positionAt(3, 1), result.inputPositionOf("b.\"d.e\""));
+    assertTrue(result.contains("empty"));
+    assertTrue(result.getTable("empty").isEmpty());
+    assertNull(result.get("b.x"));
+
+    Map.Entry<String, Object> first = result.dottedEntrySet().iterator().next();
+    assertEquals("a", first.getKey());
+    assertEquals(1L, first.getValue());
+    Map.Entry<List<String>, Object> entry = new AbstractMap.SimpleImmutableEntry<>(Arrays.asList("b", "d.e"), 3.0);
+    assertTrue(result.entryPathSet().contains(entry));
+  }
+
+  @Test
+  void shouldCompareTablesStructurally() {
+    MutableTomlTable mutable = new MutableTomlTable(HEAD);
+    mutable.set("a", 1L, positionAt(1, 1));
+    mutable.set("b.c", 2.5, positionAt(2, 1));
+    mutable.set("b.d", "text", positionAt(3, 1));
+    MutableTomlArray array = new MutableTomlArray(false);
+    array.append(1L, positionAt(4, 5));
+    array.append(2L, positionAt(4, 8));
+    mutable.set("e", array, positionAt(4, 1));
+    FrozenTomlTable frozen = mutable.freeze(new HashMap<>());
+
+    TomlTable built = TomlTable
+        .builder()
+        .put("b", TomlTable.builder().put("d", "text").put("c", 2.5).build())
+        .put("e", TomlArray.builder().append(1L).append(Long.valueOf(2)).build())
+        .put("a", 1)
+        .build();
+    PersistentTomlTable persistent = PersistentTomlTable.of(built);
+
+    assertEquals(frozen, built);
+    assertEquals(frozen.hashCode(), built.hashCode());
+    assertEquals(frozen, persistent);
+    assertEquals(persistent, frozen);
+    assertEquals(frozen.hashCode(), persistent.hashCode());
+    assertEquals(frozen.hashCode(), Toml.hashCode(mutable));
+    assertTrue(Toml.equals(mutable, built));
+    assertEquals(new FrozenTomlParseResult(frozen, Collections.emptyList()), built);
+    assertEquals(TomlOverlay.of(built), frozen);
+
+    // values are compared by type
+    assertNotEquals(frozen, persistent.with("a", 1.0));
+    assertNotEquals(frozen, persistent.with("b.c", 2.0));
+    assertNotEquals(frozen, persistent.with("e", TomlArray.builder().append(1L).append("2").build()));
+    assertNotEquals(frozen, persistent.without("a"));
+
+    // parsed documents can be deduplicated
+    Set<TomlTable> tables = new HashSet<>(Arrays.asList(frozen, built, persistent));
+    assertEquals(1, tables.size());
+
+    assertEquals(TomlTable.builder().build(), EmptyTomlTable.EMPTY_TABLE);
+    assertEquals(EmptyTomlTable.EMPTY_TABLE.hashCode(), TomlTable.builder().build().hashCode());
+  }
+
+  @Test
+  void shouldEstimateRetainedMemory() {
+    TomlTable table = TomlTable.builder().put("a", "xy").build();
+    TomlMemoryStats stats = TomlMemoryStats.of(table);
+    // two 24-byte strings, each with a 24-byte character array
+    assertEquals(96, stats.strings());
+    // the table, and its key and value arrays
+    assertEquals(40 + 24 + 24, stats.tables());
+    assertEquals(24, stats.positions());
+    assertEquals(0, stats.boxedNumbers());
+    assertEquals(stats.strings() + stats.tables() + stats.positions(), stats.total());
+
+    MutableTomlTable mutable = new MutableTomlTable(HEAD);
+    MutableTomlArray mixed = new MutableTomlArray(false);
+    mixed.append(1000L, positionAt(1, 5));
+    mixed.append(2.5, positionAt(1, 11));
+    mutable.set("mixed", mixed, positionAt(1, 1));
+    mutable.set("same", "mixed", positionAt(2, 1));
+    mutable.set("count", 1000L, positionAt(3, 1));
+    TomlParseResult result = new FrozenTomlParseResult(mutable.freeze(new HashMap<>()), Collections.emptyList());
+    TomlMemoryStats resultStats = result.memoryStats();
+    // the boxed values of the mixed array; the count is held unboxed
+    assertEquals(48, resultStats.boxedNumbers());
+    assertTrue(resultStats.arrays() > 0);
+    assertTrue(resultStats.tables() > stats.tables());
+  }
+
+  @Test
+  void shouldReportValueTypes() {
+    TomlTable table = TomlTable
+        .builder()
+        .put("s", "x")
+        .put("i", 1)
+        .put("f", 1.5)
+        .put("longs", TomlArray.builder().append(1).append(2).build())
+        .put("mixed", TomlArray.builder().append(1).append("x").build())
+        .put("t", TomlTable.builder().put("b", true).build())
+        .build();
+    for (TomlTable t : Arrays.asList(table, TomlTape.encode(table).root(), PersistentTomlTable.of(table))) {
+      assertEquals(TomlType.STRING, t.typeOf("s"));
+      assertEquals(TomlType.INTEGER, t.typeOf("i"));
+      assertEquals(TomlType.FLOAT, t.typeOf("f"));
+      assertEquals(TomlType.BOOLEAN, t.typeOf("t.b"));
+      assertEquals(TomlType.TABLE, t.typeOf(Collections.emptyList()));
+      assertNull(t.typeOf("missing"));
+      assertEquals(TomlType.INTEGER, t.getArrayOrEmpty("longs").typeOf(1));
+      assertEquals(TomlType.STRING, t.getArrayOrEmpty("mixed").typeOf(1));
+      assertThrows(IndexOutOfBoundsException.class, () -> t.getArrayOrEmpty("longs").typeOf(2));
+    }
+    assertEquals(TomlType.ARRAY, TomlType.of(table.get("longs")));
+    assertNull(TomlType.of(new Object()));
+  }
+}
@@ -23,9 +23,12 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
@@ -226,4 +229,24 @@ class MutableTomlTableTest {
         + "}\n";
     assertEquals(expected.replace("\n", System.lineSeparator()), table.toJson());
   }
+
+  @Test
+  void shouldProvideReadOnlyViews() {
+    MutableTomlTable table = new MutableTomlTable(HEAD);
+    table.set("bar", "one", positionAt(1, 1));
+    Set<Map.Entry<String, Object>> entries = table.entrySet();
+    Map<String, Object> map = table.toMap();
+    table.set("foo.baz", "two", positionAt(2, 1));
+
+    assertEquals(2, entries.size());
+    assertEquals(2, map.size());
+    assertEquals("one", map.get("bar"));
+    assertTrue(map.get("foo") instanceof TomlTable);
+    assertThrows(UnsupportedOperationException.class, () -> map.put("baz", "three"));
+    assertThrows(UnsupportedOperationException.class, () -> table.keySet().remove("bar"));
+
+    List<String> paths = new ArrayList<>();
+    table.forEachLeaf((path, value) -> paths.add(Toml.joinKeyPath(path) + "=" + value));
+    assertEquals(Arrays.asList("bar=one", "foo.baz=two"), paths);
+  }
 }
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.tomlj.TomlPosition.positionAt;
+import static org.tomlj.TomlVersion.HEAD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PersistentTomlTableTest {
+
+  private static PersistentTomlTable base() {
+    MutableTomlTable table = new MutableTomlTable(HEAD);
+    table.set("name", "demo", positionAt(1, 1));
+    table.set("server.port", 8080L, positionAt(2, 1));
+    table.set("server.host", "localhost", positionAt(3, 1));
+    table.set("limits.rate", 1.5, positionAt(4, 1));
+    return PersistentTomlTable.of(table.freeze(new HashMap<>()));
+  }
+
+  @Test
+  void shouldCopyTables() {
+    PersistentTomlTable table = base();
+    assertEquals(3, table.size());
+    assertEquals(Arrays.asList("name", "server", "limits"), new ArrayList<>(table.keySet()));
+    assertEquals(Long.valueOf(8080), table.getLong("server.port"));
+    assertEquals(positionAt(3, 1), table.inputPositionOf("server.host"));
+    assertTrue(table.get("server") instanceof PersistentTomlTable);
+    assertSame(table, PersistentTomlTable.of(table));
+  }
+
+  @Test
+  void shouldUpdateWithoutChangingTheOriginal() {
+    PersistentTomlTable base = base();
+    PersistentTomlTable updated = base.with("server.port", 9090).with("server.tls.enabled", true);
+
+    assertEquals(Long.valueOf(8080), base.getLong("server.port"));
+    assertNull(base.get("server.tls"));
+    assertEquals(Long.valueOf(9090), updated.getLong("server.port"));
+    assertEquals(Boolean.TRUE, updated.getBoolean("server.tls.enabled"));
+    assertNull(updated.inputPositionOf("server.port"));
+    assertEquals(positionAt(3, 1), updated.inputPositionOf("server.host"));
+    assertEquals(Arrays.asList("port", "host", "tls"), new ArrayList<>(updated.getTable("server").keySet()));
+
+    // untouched subtrees are shared
+    assertSame(base.get("limits"), updated.get("limits"));
+
+    assertThrows(IllegalArgumentException.class, () -> base.with("name.first", "x"));
+    assertThrows(IllegalArgumentException.class, () -> base.with("name", new Object()));
+  }
+
+  @Test
+  void shouldRemoveValues() {
+    PersistentTomlTable base = base();
+    PersistentTomlTable updated = base.without("server.port").without("name");
+    assertEquals(2, updated.size());
+    assertEquals(Arrays.asList("server", "limits"), new ArrayList<>(updated.keySet()));
+    assertFalse(updated.contains("server.port"));
+    assertTrue(updated.contains("server.host"));
+    assertTrue(base.contains("server.port"));
+    assertSame(base, base.without("missing.key"));
+    assertSame(base, base.without("name.first"));
+  }
+
+  @Test
+  void shouldMergeTables() {
+    PersistentTomlTable base = base();
+    PersistentTomlTable overrides = PersistentTomlTable.empty().with("server.port", 443L).with("extra", "value");
+    PersistentTomlTable merged = base.merge(overrides);
+    assertEquals(Long.valueOf(443), merged.getLong("server.port"));
+    assertEquals("localhost", merged.getString("server.host"));
+    assertEquals("value", merged.getString("extra"));
+    assertSame(base.get("limits"), merged.get("limits"));
+  }
+
+  @Test
+  void shouldHandleManyKeysAndHashCollisions() {
+    PersistentTomlTable table = PersistentTomlTable.empty();
+    for (int i = 0; i < 2000; ++i) {
+      table = table.with(Collections.singletonList("key" + i), (long) i);
+    }
+    // "Aa" and "BB" have the same hash code
+    table = table.with("Aa", 1L).with("BB", 2L).with("Aa", 3L);
+    assertEquals(2002, table.size());
+    assertEquals(Long.valueOf(3), table.getLong("Aa"));
+    assertEquals(Long.valueOf(2), table.getLong("BB"));
+    assertEquals(Long.valueOf(1234), table.getLong("key1234"));
+    List<String> keys = new ArrayList<>(table.keySet());
+    assertEquals("key0", keys.get(0));
+    assertEquals("BB", keys.get(2001));
+
+    for (int i = 0; i < 2000; i += 2) {
+      table = table.without("key" + i);
+    }
+    table = table.without("Aa");
+    assertEquals(1001, table.size());
+    assertNull(table.get("key1234"));
+    assertEquals(Long.valueOf(1235), table.getLong("key1235"));
+    assertEquals(Long.valueOf(2), table.getLong("BB"));
+  }
+
+  @Test
+  void shouldUpdateArrays() {
+    PersistentTomlArray array = PersistentTomlArray.empty();
+    for (int i = 0; i < 1100; ++i) {
+      array = array.append(i);
+    }
+    assertEquals(1100, array.size());
+    assertEquals(1099L, array.get(1099));
+
+    PersistentTomlArray updated = array.with(40, "forty");
+    assertEquals(40L, array.get(40));
+    assertEquals("forty", updated.get(40));
+
+    PersistentTomlArray removed = updated.without(0);
+    assertEquals(1099, removed.size());
+    assertEquals("forty", removed.get(39));
+    assertEquals(1099L, removed.get(1098));
+    assertEquals(1100, updated.toList().size());
+
+    PersistentTomlArray shrunk = array;
+    while (shrunk.size() > 1) {
+      shrunk = shrunk.without(shrunk.size() - 1);
+    }
+    assertEquals(Arrays.asList(0L), shrunk.toList());
+    assertTrue(shrunk.without(0).isEmpty());
+    assertThrows(IndexOutOfBoundsException.class, () -> updated.get(1100));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.tomlj.TomlPosition.positionAt;
+import static org.tomlj.TomlVersion.HEAD;
+import static org.tomlj.TomlVersion.V0_4_0;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.jupiter.api.Test;
+
+class PrimitiveTomlArrayTest {
+
+  private static TomlArray freeze(MutableTomlArray array) {
+    return array.freeze(new HashMap<>());
+  }
+
+  @Test
+  void shouldStoreLongsUnboxed() {
+    MutableTomlArray mutable = MutableTomlArray.create(HEAD);
+    for (int i = 0; i < 1000; ++i) {
+      mutable.append((long) i, positionAt(1 + i / 10, 1 + (i % 10) * 5));
+    }
+    TomlArray array = freeze(mutable);
+    assertTrue(array instanceof PrimitiveTomlArray.OfLong);
+    assertEquals(1000, array.size());
+    assertEquals(999L, array.getLong(999));
+    assertEquals(Long.valueOf(42), array.get(42));
+    assertEquals(positionAt(5, 11), array.inputPositionOf(42));
+    assertEquals(499500L, array.longStream().sum());
+    long[] longs = array.toLongArray();
+    longs[0] = -1;
+    assertEquals(0L, array.getLong(0));
+    assertEquals(mutable.toList(), array.toList());
+    assertThrows(TomlInvalidTypeException.class, () -> array.getDouble(0));
+    assertThrows(TomlInvalidTypeException.class, array::toDoubleArray);
+    assertThrows(IndexOutOfBoundsException.class, () -> array.inputPositionOf(1000));
+  }
+
+  @Test
+  void shouldStoreDoublesAndBooleansUnboxed() {
+    TomlArray doubles = freeze(
+        MutableTomlArray
+            .create(HEAD)
+            .append(0.5, positionAt(1, 2))
+            .append(1.5, positionAt(1, 7))
+            .append(-2.0, positionAt(1, 12)));
+    assertTrue(doubles instanceof PrimitiveTomlArray.OfDouble);
+    assertArrayEquals(new double[] {0.5, 1.5, -2.0}, doubles.toDoubleArray());
+    assertEquals(0.0, doubles.doubleStream().sum());
+    assertEquals(positionAt(1, 7), doubles.inputPositionOf(1));
+
+    TomlArray booleans =
+        freeze(MutableTomlArray.create(HEAD).append(true, positionAt(1, 2)).append(false, positionAt(2, 2)));
+    assertTrue(booleans instanceof PrimitiveTomlArray.OfBoolean);
+    assertArrayEquals(new boolean[] {true, false}, booleans.toBooleanArray());
+    assertFalse(booleans.getBoolean(1));
+    assertEquals(positionAt(2, 2), booleans.inputPositionOf(1));
+    assertEquals("[\n  true,\n  false\n]\n".replace("\n", System.lineSeparator()), booleans.toJson());
+  }
+
+  @Test
+  void shouldNotSpecializeMixedArrays() {
+    TomlArray array = freeze(MutableTomlArray.create(HEAD).append(1L, positionAt(1, 1)).append(2.0, positionAt(1, 4)));
+    assertTrue(array instanceof FrozenTomlArray);
+    assertEquals(Arrays.asList(1L, 2.0), array.toList());
+    assertThrows(TomlInvalidTypeException.class, array::toLongArray);
+    assertEquals(1L, array.longStream().limit(1).sum());
+  }
+
+  @Test
+  void shouldKeepHomogeneousArrayTypes() {
+    TomlArray array = freeze(MutableTomlArray.create(V0_4_0).append(1L, positionAt(1, 1)));
+    assertTrue(array.containsLongs());
+    assertFalse(array.containsDoubles());
+    TomlArray heterogeneous = freeze(MutableTomlArray.create(HEAD).append(1L, positionAt(1, 1)));
+    assertThrows(UnsupportedOperationException.class, heterogeneous::containsLongs);
+  }
+}
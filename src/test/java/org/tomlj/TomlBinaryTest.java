@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.jupiter.api.Test;
+
+class TomlBinaryTest {
+
+  private static TomlTable document() {
+    MutableTomlTable table = new MutableTomlTable(TomlVersion.HEAD);
+    table.set("title", "binary", TomlPosition.positionAt(1, 1));
+    table.set("owner.name", "someone", TomlPosition.positionAt(3, 1));
+    table.set("owner.dob", LocalDate.of(1979, 5, 27), TomlPosition.positionAt(4, 1));
+    table.set("limits.max", 100L, TomlPosition.positionAt(6, 1));
+    table.set("limits.ratio", 0.75, TomlPosition.positionAt(7, 1));
+    MutableTomlArray ports = new MutableTomlArray(false);
+    ports.append(8000L, TomlPosition.positionAt(8, 9));
+    ports.append(8001L, TomlPosition.positionAt(8, 15));
+    table.set("ports", ports, TomlPosition.positionAt(8, 1));
+    MutableTomlArray mixed = new MutableTomlArray(false);
+    mixed.append("a", TomlPosition.positionAt(9, 10));
+    mixed.append(true, TomlPosition.positionAt(9, 15));
+    table.set("mixed", mixed, TomlPosition.positionAt(9, 1));
+    return table;
+  }
+
+  @Test
+  void shouldRoundTripThroughStreams() throws Exception {
+    TomlTable table = document();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TomlBinary.write(table, out);
+    TomlBinary.write(table, out, false);
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+
+    TomlTable read = TomlBinary.read(in);
+    assertTrue(read instanceof FrozenTomlTable);
+    assertEquals(read, table);
+    assertEquals(100L, read.getLongOrDefault("limits.max", 0));
+    assertEquals(TomlPosition.positionAt(7, 1), read.inputPositionOf("limits.ratio"));
+    assertTrue(read.getArrayOrEmpty("ports") instanceof PrimitiveTomlArray);
+    assertEquals(TomlPosition.positionAt(8, 15), read.getArrayOrEmpty("ports").inputPositionOf(1));
+    assertEquals(Arrays.asList("a", true), read.getArrayOrEmpty("mixed").toList());
+
+    TomlTable withoutPositions = TomlBinary.read(in);
+    assertEquals(withoutPositions, table);
+    assertNull(withoutPositions.inputPositionOf("title"));
+    assertEquals(0, in.available());
+    assertThrows(EOFException.class, () -> TomlBinary.read(in));
+
+    // a stream that is not a tape is rejected from its header, before its length is trusted
+    ByteBuffer header = ByteBuffer.allocate(TomlTape.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    header.putLong(TomlTape.LENGTH_OFFSET, Integer.MAX_VALUE - 16);
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> TomlBinary.read(new ByteArrayInputStream(header.array())));
+    assertEquals("Not a TOML tape", e.getMessage());
+    header.putInt(0, TomlTape.MAGIC).putInt(4, TomlTape.VERSION + 1);
+    e = assertThrows(IllegalArgumentException.class, () -> TomlBinary.read(new ByteArrayInputStream(header.array())));
+    assertEquals("Unsupported TOML tape version " + (TomlTape.VERSION + 1), e.getMessage());
+  }
+
+  @Test
+  void shouldReadAndViewBuffers() {
+    TomlTable table = document();
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    buffer.put((byte) 0);
+    TomlBinary.write(table, buffer);
+    int end = buffer.position();
+    buffer.flip();
+    buffer.get();
+
+    TomlTable view = TomlBinary.view(buffer);
+    assertTrue(view instanceof TapeTomlTable);
+    assertEquals(1, buffer.position());
+    assertEquals("someone", view.getString("owner.name"));
+    assertEquals(TomlPosition.positionAt(3, 1), view.inputPositionOf("owner.name"));
+
+    assertEquals(TomlBinary.read(buffer), table);
+    assertEquals(end, buffer.position());
+
+    assertThrows(IllegalArgumentException.class, () -> TomlBinary.read(ByteBuffer.wrap(new byte[8])));
+    ByteBuffer truncated = buffer.duplicate();
+    truncated.position(1).limit(end - 1);
+    assertThrows(IllegalArgumentException.class, () -> TomlBinary.view(truncated));
+  }
+
+  @Test
+  void shouldKeepHomogeneousArrays() throws Exception {
+    MutableTomlTable table = new MutableTomlTable(TomlVersion.V0_5_0);
+    MutableTomlArray ports = MutableTomlArray.create(TomlVersion.V0_5_0);
+    ports.append(8000L, TomlPosition.positionAt(1, 10));
+    table.set("ports", ports, TomlPosition.positionAt(1, 1));
+    MutableTomlArray names = MutableTomlArray.create(TomlVersion.V0_5_0);
+    names.append("a", TomlPosition.positionAt(2, 10));
+    table.set("names", names, TomlPosition.positionAt(2, 1));
+    table.set("empty", MutableTomlArray.create(TomlVersion.V0_5_0), TomlPosition.positionAt(3, 1));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TomlBinary.write(table, out);
+    TomlTable read = TomlBinary.read(new ByteArrayInputStream(out.toByteArray()));
+    TomlTable view = TomlBinary.view(ByteBuffer.wrap(out.toByteArray()));
+    TomlTable copied = FrozenTomlTable.copyOf(view, new HashMap<>());
+    for (TomlTable decoded : Arrays.asList(read, view, copied, table.freeze(new HashMap<>()))) {
+      assertTrue(decoded.getArrayOrEmpty("ports").containsLongs());
+      assertFalse(decoded.getArrayOrEmpty("ports").containsStrings());
+      assertTrue(decoded.getArrayOrEmpty("names").containsStrings());
+      assertTrue(decoded.getArrayOrEmpty("empty").containsTables());
+    }
+    TomlTable heterogeneous = TomlBinary.read(new ByteArrayInputStream(toBytes(document())));
+    assertThrows(UnsupportedOperationException.class, () -> heterogeneous.getArrayOrEmpty("ports").containsLongs());
+  }
+
+  private static byte[] toBytes(TomlTable table) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TomlBinary.write(table, out);
+    return out.toByteArray();
+  }
+}
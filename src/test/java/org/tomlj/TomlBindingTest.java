@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.tomlj.TomlPosition.positionAt;
+import static org.tomlj.TomlVersion.HEAD;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TomlBindingTest {
+
+  enum Mode {
+    ACTIVE, PASSIVE
+  }
+
+  static class Endpoint {
+    String host;
+    int port;
+  }
+
+  static class Server {
+    String name;
+    long timeout = 30;
+    boolean enabled;
+    double ratio;
+    Mode mode;
+    LocalDate since;
+    List<String> tags;
+    List<Endpoint> endpoints;
+    Endpoint primary;
+    Map<String, Long> limits;
+    transient String ignored;
+  }
+
+  static class Renamed extends Endpoint {
+    @TomlKey("server.\"time.out\"")
+    long timeout;
+    @TomlKey("label")
+    String name;
+  }
+
+  static final class Credentials {
+    final String user;
+    final int retries;
+
+    Credentials(String user, int retries) {
+      this.user = user;
+      this.retries = retries;
+    }
+  }
+
+  @Test
+  void shouldBindFieldsAndNestedClasses() {
+    MutableTomlTable table = new MutableTomlTable(HEAD);
+    table.set("name", "alpha", positionAt(1, 1));
+    table.set("enabled", true, positionAt(2, 1));
+    table.set("ratio", 3L, positionAt(3, 1));
+    table.set("mode", "PASSIVE", positionAt(4, 1));
+    table.set("since", LocalDate.of(2020, 1, 2), positionAt(5, 1));
+    MutableTomlArray tags = MutableTomlArray.create(HEAD).append("a", positionAt(6, 1)).append("b", positionAt(6, 2));
+    table.set("tags", tags, positionAt(6, 1));
+    table.set("primary.host", "localhost", positionAt(7, 1));
+    table.set("primary.port", 8080L, positionAt(8, 1));
+    table.set("limits.rps", 100L, positionAt(9, 1));
+    MutableTomlTable endpoint = new MutableTomlTable(HEAD);
+    endpoint.set("host", "example.com", positionAt(10, 1));
+    table.set("endpoints", MutableTomlArray.create(HEAD).append(endpoint, positionAt(10, 1)), positionAt(10, 1));
+
+    Server server = Toml.bind(table, Server.class);
+    assertEquals("alpha", server.name);
+    assertEquals(30, server.timeout);
+    assertTrue(server.enabled);
+    assertEquals(3.0, server.ratio);
+    assertEquals(Mode.PASSIVE, server.mode);
+    assertEquals(LocalDate.of(2020, 1, 2), server.since);
+    assertEquals(Arrays.asList("a", "b"), server.tags);
+    assertEquals("localhost", server.primary.host);
+    assertEquals(8080, server.primary.port);
+    assertEquals(Long.valueOf(100), server.limits.get("rps"));
+    assertEquals(1, server.endpoints.size());
+    assertEquals("example.com", server.endpoints.get(0).host);
+    assertNull(server.ignored);
+  }
+
+  @Test
+  void shouldBindAnnotatedKeys() {
+    MutableTomlTable table = new MutableTomlTable(HEAD);
+    table.set("host", "localhost", positionAt(1, 1));
+    table.set(Arrays.asList("server", "time.out"), 5L, positionAt(2, 1));
+    table.set("label", "alpha", positionAt(3, 1));
+    table.set("name", "ignored", positionAt(4, 1));
+    Renamed renamed = Toml.bind(table, Renamed.class);
+    assertEquals("localhost", renamed.host);
+    assertEquals(5, renamed.timeout);
+    assertEquals("alpha", renamed.name);
+  }
+
+  @Test
+  void shouldBindThroughConstructor() {
+    MutableTomlTable table = new MutableTomlTable(HEAD);
+    table.set("user", "admin", positionAt(1, 1));
+    Credentials credentials = Toml.bind(table, Credentials.class);
+    assertEquals("admin", credentials.user);
+    assertEquals(0, credentials.retries);
+  }
+
+  @Test
+  void shouldReportMismatchedTypes() {
+    MutableTomlTable table = new MutableTomlTable(HEAD);
+    table.set("primary.port", "http", positionAt(1, 1));
+    TomlInvalidTypeException e = assertThrows(TomlInvalidTypeException.class, () -> Toml.bind(table, Server.class));
+    assertEquals("Value of 'primary.port' is a string", e.getMessage());
+
+    MutableTomlTable nested = new MutableTomlTable(HEAD);
+    MutableTomlArray endpoints = new MutableTomlArray(false);
+    MutableTomlTable endpoint = new MutableTomlTable(HEAD);
+    endpoint.set("port", true, positionAt(2, 1));
+    endpoints.append(TomlTable.builder().put("port", 80).build(), positionAt(1, 1));
+    endpoints.append(endpoint, positionAt(2, 1));
+    nested.set("endpoints", endpoints, positionAt(1, 1));
+    e = assertThrows(TomlInvalidTypeException.class, () -> Toml.bind(nested, Server.class));
+    assertEquals("Value of 'endpoints.1.port' is a boolean", e.getMessage());
+
+    MutableTomlTable map = new MutableTomlTable(HEAD);
+    map.set("limits.max", "many", positionAt(1, 1));
+    e = assertThrows(TomlInvalidTypeException.class, () -> Toml.bind(map, Server.class));
+    assertEquals("Value of 'limits.max' is a string", e.getMessage());
+  }
+
+  @Test
+  void shouldRejectOutOfRangeInts() {
+    MutableTomlTable table = new MutableTomlTable(HEAD);
+    table.set("port", 1L << 40, positionAt(1, 1));
+    assertThrows(TomlInvalidTypeException.class, () -> Toml.bind(table, Endpoint.class));
+  }
+
+  @Test
+  void shouldParseDirectlyIntoClass() {
+    Server server = Toml.parse("name = 'beta'\nunused = [1, 2, 3]\n[primary]\nhost = 'h'\nport = 1\n", Server.class);
+    assertEquals("beta", server.name);
+    assertEquals("h", server.primary.host);
+    assertEquals(1, server.primary.port);
+  }
+
+  @Test
+  void shouldThrowParseErrorsWhenBinding() {
+    assertThrows(TomlParseError.class, () -> Toml.parse("name = ", Server.class));
+  }
+}
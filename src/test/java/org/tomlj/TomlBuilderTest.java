@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class TomlBuilderTest {
+
+  @Test
+  void shouldBuildTables() {
+    TomlTable server = TomlTable.builder().put("host", "localhost").put("port", 8080).put("ratio", 0.5).build();
+    TomlTableBuilder builder = TomlTable
+        .builder()
+        .put("name", "demo")
+        .put("enabled", true)
+        .put("released", LocalDate.of(2020, 1, 1))
+        .put("count", Integer.valueOf(3))
+        .put("server", server);
+    TomlTable table = builder.build();
+
+    assertTrue(table instanceof FrozenTomlTable);
+    assertEquals(Arrays.asList("name", "enabled", "released", "count", "server"), new ArrayList<>(table.keySet()));
+    assertEquals("demo", table.getString("name"));
+    assertEquals(Boolean.TRUE, table.getBoolean("enabled"));
+    assertEquals(LocalDate.of(2020, 1, 1), table.getLocalDate("released"));
+    assertEquals(3L, table.getLongOrDefault("count", 0));
+    assertEquals(8080L, table.getLongOrDefault("server.port", 0));
+    assertEquals(0.5, table.getDoubleOrDefault("server.ratio", 0));
+    assertNull(table.inputPositionOf("name"));
+
+    // the builder can continue to be used
+    TomlTable extended = builder.put("extra", "x").build();
+    assertEquals(5, table.size());
+    assertEquals(6, extended.size());
+
+    assertThrows(IllegalArgumentException.class, () -> builder.put("name", "again"));
+    assertThrows(IllegalArgumentException.class, () -> builder.put("other", new Object()));
+  }
+
+  @Test
+  void shouldBuildLargeTables() {
+    TomlTableBuilder builder = TomlTable.builder();
+    for (int i = 0; i < 100; ++i) {
+      builder.put("key" + i, i);
+    }
+    assertThrows(IllegalArgumentException.class, () -> builder.put("key42", 0));
+    TomlTable table = builder.build();
+    assertEquals(100, table.size());
+    assertEquals(42L, table.getLongOrDefault("key42", -1));
+  }
+
+  @Test
+  void shouldCopyOtherTables() {
+    PersistentTomlTable persistent = PersistentTomlTable.empty().with("a.b", 1L);
+    TomlTable table = TomlTable.builder().put("p", persistent).build();
+    assertTrue(table.get("p") instanceof FrozenTomlTable);
+    assertEquals(1L, table.getLongOrDefault("p.a.b", 0));
+  }
+
+  @Test
+  void shouldBuildArrays() {
+    TomlArray longs = TomlArray.builder().append(1).append(2L).append(3).build();
+    assertTrue(longs instanceof PrimitiveTomlArray);
+    assertArrayEquals(new long[] {1, 2, 3}, longs.toLongArray());
+
+    TomlArray doubles = TomlArray.builder().append(1.5).append(Double.valueOf(2.5)).build();
+    assertArrayEquals(new double[] {1.5, 2.5}, doubles.toDoubleArray());
+
+    TomlArray booleans = TomlArray.builder().append(true).append(false).build();
+    assertArrayEquals(new boolean[] {true, false}, booleans.toBooleanArray());
+
+    TomlArray mixed = TomlArray.builder().append(1).append("two").append(3.0).append(longs).build();
+    assertTrue(mixed instanceof FrozenTomlArray);
+    assertEquals(Arrays.asList(1L, "two", 3.0, longs), mixed.toList());
+
+    // built values were not defined in a document, so have no position
+    assertNull(longs.inputPositionOf(0));
+    assertNull(mixed.inputPositionOf(1));
+    assertThrows(IndexOutOfBoundsException.class, () -> longs.inputPositionOf(3));
+
+    assertTrue(TomlArray.builder().build().isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> TomlArray.builder().append(new Object()));
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class TomlCacheTest {
+
+  private static Path write(Path directory, String name, String contents, long mtime) throws IOException {
+    Path file = directory.resolve(name);
+    Files.write(file, contents.getBytes(UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(mtime));
+    return file;
+  }
+
+  @Test
+  void shouldCacheUnchangedFiles() throws Exception {
+    Path directory = Files.createTempDirectory("tomlj");
+    Path file = write(directory, "a.toml", "a = 1\n", 1000);
+    try {
+      TomlCache cache = TomlCache.create(1 << 20);
+      TomlParseResult first = cache.parse(file);
+      assertSame(first, cache.parse(file));
+      assertEquals(1, cache.hitCount());
+      assertEquals(1, cache.missCount());
+      assertEquals(first.memoryStats().total(), cache.weightedSize());
+
+      write(directory, "a.toml", "a = 2\n", 2000);
+      assertEquals(2L, cache.parse(file).getLongOrDefault("a", 0));
+      assertEquals(2, cache.missCount());
+      assertEquals(1, cache.size());
+
+      cache.invalidate(file);
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.weightedSize());
+      assertThrows(NoSuchFileException.class, () -> cache.parse(directory.resolve("missing.toml")));
+    } finally {
+      Files.delete(file);
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  void shouldHashRecentlyModifiedFiles() throws Exception {
+    Path directory = Files.createTempDirectory("tomlj");
+    long mtime = System.currentTimeMillis();
+    Path file = write(directory, "a.toml", "a = 1\n", mtime);
+    try {
+      TomlCache cache = TomlCache.create(1 << 20);
+      TomlParseResult first = cache.parse(file);
+      assertSame(first, cache.parse(file));
+      assertEquals(1, cache.hitCount());
+
+      // a change within the granularity of the modification time leaves the size and time unchanged
+      write(directory, "a.toml", "a = 2\n", mtime);
+      assertEquals(2L, cache.parse(file).getLongOrDefault("a", 0));
+      assertEquals(2, cache.missCount());
+    } finally {
+      Files.delete(file);
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedResults() throws Exception {
+    Path directory = Files.createTempDirectory("tomlj");
+    Path a = write(directory, "a.toml", "a = \"" + String.join("", Collections.nCopies(100, "x")) + "\"\n", 1000);
+    Path b = write(directory, "b.toml", "b = \"" + String.join("", Collections.nCopies(100, "y")) + "\"\n", 1000);
+    Path c = write(directory, "c.toml", "c = \"" + String.join("", Collections.nCopies(100, "z")) + "\"\n", 1000);
+    try {
+      long weight = TomlCache.create(Long.MAX_VALUE).parse(a).memoryStats().total();
+      TomlCache cache = TomlCache.create(weight * 2);
+      cache.parse(a);
+      cache.parse(b);
+      cache.parse(a);
+      cache.parse(c);
+      assertEquals(1, cache.evictionCount());
+      assertEquals(2, cache.size());
+      assertTrue(cache.weightedSize() <= cache.maximumBytes());
+
+      long misses = cache.missCount();
+      cache.parse(a);
+      assertEquals(misses, cache.missCount());
+      cache.parse(b);
+      assertEquals(misses + 1, cache.missCount());
+
+      TomlCache tiny = TomlCache.create(1);
+      assertEquals(1L, tiny.parse(a).size());
+      assertEquals(0, tiny.size());
+    } finally {
+      Files.delete(a);
+      Files.delete(b);
+      Files.delete(c);
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  void shouldShareResultsBetweenThreads() throws Exception {
+    Path directory = Files.createTempDirectory("tomlj");
+    Path file = write(directory, "a.toml", "a = 1\n", 1000);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      TomlCache cache = TomlCache.create(1 << 20);
+      List<Callable<TomlParseResult>> tasks = new ArrayList<>();
+      for (int i = 0; i < 16; ++i) {
+        tasks.add(() -> cache.parse(file));
+      }
+      List<Future<TomlParseResult>> results = executor.invokeAll(tasks);
+      for (Future<TomlParseResult> result : results) {
+        assertEquals(1L, result.get().getLongOrDefault("a", 0));
+      }
+      assertEquals(16, cache.hitCount() + cache.missCount());
+      assertEquals(1, cache.size());
+    } finally {
+      executor.shutdown();
+      Files.delete(file);
+      Files.delete(directory);
+    }
+  }
+}
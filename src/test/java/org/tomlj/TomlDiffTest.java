@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.tomlj.TomlPosition.positionAt;
+import static org.tomlj.TomlVersion.HEAD;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TomlDiffTest {
+
+  private static TomlTable parse(Object... entries) {
+    MutableTomlTable table = new MutableTomlTable(HEAD);
+    for (int i = 0; i < entries.length; i += 2) {
+      table.set((String) entries[i], entries[i + 1], positionAt(i / 2 + 1, 1));
+    }
+    return new FrozenTomlParseResult(table.freeze(new HashMap<>()), Collections.emptyList());
+  }
+
+  @Test
+  void shouldReportAddedRemovedAndChangedPaths() {
+    TomlTable oldTable = parse("a", 1L, "server.host", "localhost", "server.port", 80L, "old.x", true, "same.y", "z");
+    TomlTable newTable = parse("a", 1L, "server.host", "example.com", "server.tls", true, "new.x", 2.5, "same.y", "z");
+    TomlDiff diff = TomlDiff.compute(oldTable, newTable);
+
+    List<TomlDiff.Change> changes = diff.changes();
+    assertEquals(5, changes.size(), diff.toString());
+
+    TomlDiff.Change host = changes.get(0);
+    assertEquals(TomlDiff.Kind.CHANGED, host.kind());
+    assertEquals(Arrays.asList("server", "host"), host.path());
+    assertEquals("localhost", host.oldValue());
+    assertEquals("example.com", host.newValue());
+    assertEquals(positionAt(2, 1), host.oldPosition());
+    assertEquals(positionAt(2, 1), host.newPosition());
+
+    assertEquals(TomlDiff.Kind.REMOVED, changes.get(1).kind());
+    assertEquals("server.port", changes.get(1).dottedKey());
+    assertEquals(TomlDiff.Kind.ADDED, changes.get(2).kind());
+    assertEquals("server.tls", changes.get(2).dottedKey());
+    assertEquals(TomlDiff.Kind.REMOVED, changes.get(3).kind());
+    assertEquals("old", changes.get(3).dottedKey());
+    assertEquals(TomlDiff.Kind.ADDED, changes.get(4).kind());
+    assertEquals("new", changes.get(4).dottedKey());
+    assertTrue(changes.get(4).newValue() instanceof TomlTable);
+
+    PersistentTomlTable applied = diff.apply(oldTable);
+    assertEquals(newTable, applied);
+  }
+
+  @Test
+  void shouldCompareValuesByType() {
+    TomlDiff diff = TomlDiff.compute(parse("a", 1L, "b.c", 2L), parse("a", 1.0, "b", "c"));
+    assertEquals(2, diff.changes().size());
+    assertEquals("a", diff.changes().get(0).dottedKey());
+    assertEquals("b", diff.changes().get(1).dottedKey());
+    assertEquals(TomlDiff.Kind.CHANGED, diff.changes().get(1).kind());
+  }
+
+  @Test
+  void shouldFindNoChangesBetweenEqualTables() {
+    TomlTable table = parse("a", 1L, "b.c", "d");
+    assertTrue(TomlDiff.compute(table, table).isEmpty());
+    assertTrue(TomlDiff.compute(table, parse("a", 1L, "b.c", "d")).isEmpty());
+    assertTrue(TomlDiff.compute(table, PersistentTomlTable.of(table)).isEmpty());
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.tomlj.TomlPosition.positionAt;
+import static org.tomlj.TomlVersion.HEAD;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TomlKeyIndexTest {
+
+  private static TomlParseResult parse() {
+    MutableTomlTable table = new MutableTomlTable(HEAD);
+    table.set("services.web.endpoints.public", "https://example.com", positionAt(1, 1));
+    table.set("services.web.endpoints.internal", "http://web", positionAt(2, 1));
+    table.set("services.web.replicas", 3L, positionAt(3, 1));
+    table.set("services.api.endpoints.public", "https://api.example.com", positionAt(4, 1));
+    table.set(Arrays.asList("services", "*", "endpoints", "x"), "star", positionAt(5, 1));
+    table.set("feature.alpha", true, positionAt(6, 1));
+    table.set("feature.beta", false, positionAt(7, 1));
+    table.set("name", "demo", positionAt(8, 1));
+    table.createTable(Arrays.asList("empty"), positionAt(9, 1));
+    return new FrozenTomlParseResult(table.freeze(new HashMap<>()), Collections.emptyList());
+  }
+
+  private static List<String> keys(Iterable<TomlEntry> entries) {
+    List<String> keys = new ArrayList<>();
+    for (TomlEntry entry : entries) {
+      keys.add(entry.dottedKey());
+    }
+    return keys;
+  }
+
+  @Test
+  void shouldIterateInKeyOrder() {
+    TomlParseResult result = parse();
+    TomlKeyIndex index = result.keyIndex();
+    assertSame(index, result.keyIndex());
+    assertEquals(8, index.size());
+    assertEquals(
+        Arrays.asList(
+            "feature.alpha",
+            "feature.beta",
+            "name",
+            "services.\"*\".endpoints.x",
+            "services.api.endpoints.public",
+            "services.web.endpoints.internal",
+            "services.web.endpoints.public",
+            "services.web.replicas"),
+        keys(index.entries()));
+  }
+
+  @Test
+  void shouldQueryByPrefix() {
+    TomlKeyIndex index = parse().keyIndex();
+    assertEquals(Arrays.asList("feature.alpha", "feature.beta"), keys(index.entriesUnder(Arrays.asList("feature"))));
+    assertEquals(Arrays.asList("name"), keys(index.entriesUnder(Arrays.asList("name"))));
+    assertEquals(Collections.emptyList(), keys(index.entriesUnder(Arrays.asList("missing"))));
+    assertEquals(Collections.emptyList(), keys(index.entriesUnder(Arrays.asList("empty"))));
+
+    TomlEntry entry = index.entry(Arrays.asList("services", "web", "replicas"));
+    assertNotNull(entry);
+    assertEquals(3L, entry.value());
+    assertEquals(positionAt(3, 1), entry.position());
+    assertEquals(Arrays.asList("services", "web", "replicas"), entry.path());
+    assertNull(index.entry(Arrays.asList("services", "web")));
+  }
+
+  @Test
+  void shouldQueryWithWildcards() {
+    TomlKeyIndex index = parse().keyIndex();
+    assertEquals(
+        Arrays
+            .asList(
+                "services.\"*\".endpoints.x",
+                "services.api.endpoints.public",
+                "services.web.endpoints.internal",
+                "services.web.endpoints.public"),
+        keys(index.entriesMatching("services.*.endpoints")));
+    assertEquals(
+        Arrays.asList("services.api.endpoints.public", "services.web.endpoints.public"),
+        keys(index.entriesMatching("services.*.*.public")));
+    assertEquals(8, keys(index.entriesMatching("")).size());
+    assertEquals(Arrays.asList("feature.beta"), keys(index.entriesMatching("*.beta")));
+    assertThrows(IllegalArgumentException.class, () -> index.entriesMatching("services.\"web"));
+  }
+}
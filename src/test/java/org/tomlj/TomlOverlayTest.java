@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class TomlOverlayTest {
+
+  private static final TomlTable DEFAULTS = TomlTable
+      .builder()
+      .put("name", "default")
+      .put("server", TomlTable.builder().put("host", "localhost").put("port", 80).build())
+      .put("tags", TomlArray.builder().append("a").build())
+      .put("debug", false)
+      .build();
+  private static final TomlTable TENANT = TomlTable
+      .builder()
+      .put("server", TomlTable.builder().put("port", 8080).build())
+      .put("tags", TomlArray.builder().append("b").build())
+      .build();
+  private static final TomlTable ENVIRONMENT =
+      TomlTable.builder().put("debug", true).put("extra", TomlTable.builder().put("x", 1).build()).build();
+
+  @Test
+  void shouldResolveValuesFromTheHighestLayer() {
+    TomlOverlay overlay = TomlOverlay.of(DEFAULTS, TENANT, ENVIRONMENT);
+    assertEquals(Arrays.asList("name", "server", "tags", "debug", "extra"), new ArrayList<>(overlay.keySet()));
+    assertEquals("default", overlay.getString("name"));
+    assertEquals(8080L, overlay.getLongOrDefault("server.port", 0));
+    assertEquals("localhost", overlay.getString("server.host"));
+    assertEquals(Boolean.TRUE, overlay.getBoolean("debug"));
+    assertEquals(Arrays.asList("b"), overlay.getArray("tags").toList());
+    assertEquals(1L, overlay.get(Arrays.asList("extra", "x")));
+    assertNull(overlay.get("server.missing"));
+    assertNull(overlay.get("name.first"));
+
+    assertEquals(Arrays.asList("host", "port"), new ArrayList<>(overlay.getTable("server").keySet()));
+    assertTrue(overlay.dottedKeySet().contains("server.host"));
+    assertEquals(6, overlay.dottedKeySet().size());
+
+    assertEquals(0, overlay.layerOf("name"));
+    assertEquals(1, overlay.layerOf("server.port"));
+    assertEquals(0, overlay.layerOf("server.host"));
+    assertEquals(1, overlay.layerOf("server"));
+    assertEquals(2, overlay.layerOf("extra.x"));
+    assertEquals(-1, overlay.layerOf("missing"));
+
+    // an untouched table from a single layer is not copied
+    assertSame(ENVIRONMENT.get("extra"), overlay.get("extra"));
+  }
+
+  @Test
+  void shouldSupportConfigurableModes() {
+    TomlOverlay overlay = TomlOverlay
+        .of(Arrays.asList(DEFAULTS, TENANT), TomlOverlay.TableMode.REPLACE, TomlOverlay.ArrayMode.APPEND);
+    assertEquals(8080L, overlay.getLongOrDefault("server.port", 0));
+    assertNull(overlay.get("server.host"));
+    assertEquals(Arrays.asList("a", "b"), overlay.getArray("tags").toList());
+  }
+
+  @Test
+  void shouldShadowLowerValuesOfOtherTypes() {
+    TomlTable middle = TomlTable.builder().put("server", "none").build();
+    TomlOverlay overlay = TomlOverlay.of(DEFAULTS, middle, TENANT);
+    assertEquals(8080L, overlay.getLongOrDefault("server.port", 0));
+    assertNull(overlay.get("server.host"));
+  }
+
+  @Test
+  void shouldReplaceLayers() {
+    TomlOverlay overlay = TomlOverlay.of(DEFAULTS, TENANT);
+    TomlOverlay replaced = overlay.withLayer(1, ENVIRONMENT);
+    assertEquals(80L, replaced.getLongOrDefault("server.port", 0));
+    assertEquals(8080L, overlay.getLongOrDefault("server.port", 0));
+    TomlOverlay added = overlay.withLayerAdded(ENVIRONMENT);
+    assertEquals(3, added.layers().size());
+    assertEquals(Boolean.TRUE, added.getBoolean("debug"));
+  }
+
+  @Test
+  void shouldSnapshotConcurrentLayers() {
+    ConcurrentTomlTable shared = ConcurrentTomlTable.of(TENANT);
+    TomlOverlay overlay = TomlOverlay.of(DEFAULTS, shared);
+    assertEquals(8080L, overlay.getLongOrDefault("server.port", 0));
+    shared.set("server.port", 9090L);
+    assertEquals(8080L, overlay.getLongOrDefault("server.port", 0));
+    assertTrue(overlay.layers().get(1) instanceof PersistentTomlTable);
+    assertEquals(9090L, overlay.withLayer(1, shared).getLongOrDefault("server.port", 0));
+  }
+}
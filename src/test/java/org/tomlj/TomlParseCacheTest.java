@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+class TomlParseCacheTest {
+
+  // an old modification time, so snapshots trust the file metadata
+  private static final FileTime MTIME = FileTime.fromMillis(1_000_000_000_000L);
+
+  private static void write(Path file, String contents) throws IOException {
+    Files.write(file, contents.getBytes(UTF_8));
+    Files.setLastModifiedTime(file, MTIME);
+  }
+
+  private static List<Path> snapshots(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.collect(Collectors.toList());
+    }
+  }
+
+  private static void delete(Path directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Test
+  void shouldReuseSnapshotsOfUnchangedFiles() throws Exception {
+    Path directory = Files.createTempDirectory("tomlj");
+    try {
+      Path file = directory.resolve("config.toml");
+      TomlParseCache cache = TomlParseCache.in(directory.resolve("cache"));
+      write(file, "a = 1\nb = \"two\"\n");
+
+      TomlParseResult parsed = cache.parse(file);
+      assertEquals(1, snapshots(cache.directory()).size());
+      TomlParseResult cached = cache.parse(file);
+      assertEquals(parsed, cached);
+      assertEquals(TomlPosition.positionAt(2, 1), cached.inputPositionOf("b"));
+
+      // same size and modification time: the snapshot is used without reading the file
+      write(file, "a = 3\nb = \"two\"\n");
+      assertEquals(1L, cache.parse(file).getLongOrDefault("a", 0));
+
+      // a new modification time: the contents are hashed and found to have changed
+      Files.setLastModifiedTime(file, FileTime.fromMillis(MTIME.toMillis() + 1000));
+      assertEquals(3L, cache.parse(file).getLongOrDefault("a", 0));
+      assertEquals(1, snapshots(cache.directory()).size());
+
+      write(file, "a = 4\n");
+      assertEquals(4L, cache.parse(file).getLongOrDefault("a", 0));
+
+      cache.clear();
+      assertTrue(snapshots(cache.directory()).isEmpty());
+    } finally {
+      delete(directory);
+    }
+  }
+
+  @Test
+  void shouldOnlyRewriteSnapshotsWithChangedMetadata() throws Exception {
+    Path directory = Files.createTempDirectory("tomlj");
+    try {
+      Path file = directory.resolve("config.toml");
+      TomlParseCache cache = TomlParseCache.in(directory.resolve("cache"));
+      Files.write(file, "a = 1\n".getBytes(UTF_8));
+
+      // a recent modification time: the snapshot is not trusted, so the contents are hashed on each parse
+      cache.parse(file);
+      Path snapshot = snapshots(cache.directory()).get(0);
+      Files.setLastModifiedTime(snapshot, MTIME);
+      assertEquals(1L, cache.parse(file).getLongOrDefault("a", 0));
+      assertEquals(MTIME, Files.getLastModifiedTime(snapshot));
+
+      // the same contents with a new modification time: the snapshot is rewritten
+      Files.setLastModifiedTime(file, MTIME);
+      assertEquals(1L, cache.parse(file).getLongOrDefault("a", 0));
+      assertNotEquals(MTIME, Files.getLastModifiedTime(snapshot));
+    } finally {
+      delete(directory);
+    }
+  }
+
+  @Test
+  void shouldCacheErrors() throws Exception {
+    Path directory = Files.createTempDirectory("tomlj");
+    try {
+      Path file = directory.resolve("bad.toml");
+      TomlParseCache cache = TomlParseCache.in(directory.resolve("cache"));
+      write(file, "a = 1\nb = \n");
+
+      TomlParseResult parsed = cache.parse(file);
+      assertTrue(parsed.hasErrors());
+      TomlParseResult cached = cache.parse(file);
+      assertEquals(parsed.errors().size(), cached.errors().size());
+      assertEquals(parsed.errors().get(0).getMessage(), cached.errors().get(0).getMessage());
+      assertEquals(parsed.errors().get(0).position(), cached.errors().get(0).position());
+      assertEquals(1L, cached.getLongOrDefault("a", 0));
+    } finally {
+      delete(directory);
+    }
+  }
+
+  @Test
+  void shouldIgnoreCorruptSnapshots() throws Exception {
+    Path directory = Files.createTempDirectory("tomlj");
+    try {
+      Path file = directory.resolve("config.toml");
+      TomlParseCache cache = TomlParseCache.in(directory.resolve("cache"));
+      write(file, "a = 1\n");
+      cache.parse(file);
+      Path snapshot = snapshots(cache.directory()).get(0);
+      Files.write(snapshot, "garbage".getBytes(UTF_8));
+
+      assertEquals(1L, cache.parse(file).getLongOrDefault("a", 0));
+      assertTrue(Files.size(snapshot) > 7);
+    } finally {
+      delete(directory);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class TomlQueryTest {
+
+  private static TomlTable endpoint(String host, long port) {
+    return TomlTable.builder().put("host", host).put("port", port).build();
+  }
+
+  private static TomlTable config() {
+    TomlArray first = TomlArray.builder().append(endpoint("a", 80)).append(endpoint("b", 8080)).build();
+    TomlArray second = TomlArray.builder().append(endpoint("c", 9000)).build();
+    TomlArray servers = TomlArray
+        .builder()
+        .append(TomlTable.builder().put("name", "one").put("endpoints", first).put("enabled", true).build())
+        .append(TomlTable.builder().put("name", "two").put("endpoints", second).put("enabled", false).build())
+        .build();
+    return TomlTable
+        .builder()
+        .put("servers", servers)
+        .put("limits", TomlTable.builder().put("max", 10).put("ratio", 0.5).put("odd key", "x").build())
+        .build();
+  }
+
+  private static List<Object> values(String query) {
+    return TomlQuery.compile(query).values(config()).collect(Collectors.toList());
+  }
+
+  @Test
+  void shouldSelectValues() {
+    assertEquals(Arrays.asList("b", "c"), values("servers[*].endpoints[?(@.port > 8000)].host"));
+    assertEquals(Arrays.asList("a", "b", "c"), values("servers[*].endpoints[*].host"));
+    assertEquals(Arrays.asList("one"), values("servers[?(@.enabled == true)].name"));
+    assertEquals(Arrays.asList("two"), values("$.servers[-1].name"));
+    assertEquals(Arrays.asList(10L), values("limits.max"));
+    assertEquals(Arrays.asList("x"), values("limits.\"odd key\""));
+    assertEquals(Arrays.asList("x"), values("limits['odd key']"));
+    assertEquals(Arrays.asList(10L, 0.5, "x"), values("limits.*"));
+    assertEquals(Arrays.asList(10L), values("limits[?(@ >= 1)]"));
+    assertEquals(Arrays.asList("one", "two"), values("servers[?(@.name)].name"));
+    assertEquals(Arrays.asList(0.5, "x"), values("limits[?(@ != 10)]"));
+    assertTrue(values("servers[5]").isEmpty());
+    assertTrue(values("limits.max.deeper").isEmpty());
+    assertTrue(values("missing[*]").isEmpty());
+    assertEquals(
+        Arrays.asList("two"),
+        TomlQuery.compile("[1].name").values(config().getArrayOrEmpty("servers")).collect(Collectors.toList()));
+  }
+
+  @Test
+  void shouldReportPathsAndPositions() {
+    MutableTomlTable table = new MutableTomlTable(TomlVersion.HEAD);
+    table.set("server.port", 8080L, TomlPosition.positionAt(2, 1));
+    List<TomlQuery.Match> matches = TomlQuery.compile("server.port").matches(table).collect(Collectors.toList());
+    assertEquals(1, matches.size());
+    assertEquals("server.port", matches.get(0).path());
+    assertEquals(TomlPosition.positionAt(2, 1), matches.get(0).position());
+
+    TomlQuery.Match match = TomlQuery.compile("servers[*].endpoints[1]").matches(config()).findFirst().get();
+    assertEquals("servers[0].endpoints[1]", match.path());
+    assertEquals(
+        Arrays.asList("limits.max", "limits.ratio", "limits.\"odd key\""),
+        TomlQuery.compile("limits.*").matches(config()).map(TomlQuery.Match::path).collect(Collectors.toList()));
+  }
+
+  @Test
+  void shouldStopAtFirstMatch() {
+    AtomicInteger visited = new AtomicInteger();
+    MutableTomlArray servers = new MutableTomlArray(true) {
+      @Override
+      public Object get(int index) {
+        visited.incrementAndGet();
+        return super.get(index);
+      }
+    };
+    for (int i = 0; i < 1000; ++i) {
+      servers.append(endpoint("host" + i, 8000 + i), TomlPosition.positionAt(i + 1, 1));
+    }
+    MutableTomlTable table = new MutableTomlTable(TomlVersion.HEAD);
+    table.set("servers", servers, TomlPosition.positionAt(1, 1));
+
+    assertEquals("host1", TomlQuery.compile("servers[?(@.port > 8000)].host").values(table).findFirst().get());
+    assertEquals(2, visited.get());
+    visited.set(0);
+    assertEquals("host0", TomlQuery.compile("servers[*].host").values(table).findFirst().get());
+    assertEquals(1, visited.get());
+  }
+
+  @Test
+  void shouldRejectInvalidQueries() {
+    assertThrows(IllegalArgumentException.class, () -> TomlQuery.compile("servers["));
+    assertThrows(IllegalArgumentException.class, () -> TomlQuery.compile("servers[?(@.port >)]"));
+    assertThrows(IllegalArgumentException.class, () -> TomlQuery.compile("servers..name"));
+    assertThrows(IllegalArgumentException.class, () -> TomlQuery.compile("a.\"b"));
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> TomlQuery.compile("servers[?(@[port] > 1)]"));
+    assertTrue(e.getMessage().contains("expected a quoted key"), e.getMessage());
+    assertEquals(TomlQuery.compile("a[*]"), TomlQuery.compile("a[*]"));
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class TomlRegistryTest {
+
+  @Test
+  void shouldPublishBatchesAtomically() {
+    List<TomlTable> warmed = new ArrayList<>();
+    TomlRegistry registry = TomlRegistry.create(warmed::add);
+    TomlTable app = TomlTable.builder().put("name", "demo").build();
+    TomlTable limits = TomlTable.builder().put("rps", 100).build();
+
+    TomlRegistry.Snapshot empty = registry.snapshot();
+    assertEquals(0, empty.version());
+    TomlRegistry.Snapshot first = registry.update(batch -> batch.put("app", app).put("limits", limits));
+    assertEquals(1, first.version());
+    assertSame(first, registry.snapshot());
+    assertEquals(Arrays.asList("app", "limits"), new ArrayList<>(first.names()));
+    assertEquals(Arrays.asList(app, limits), warmed);
+    assertNull(empty.get("app"));
+
+    // unchanged documents are neither warmed nor published again
+    assertSame(first, registry.put("app", app));
+    assertEquals(2, warmed.size());
+
+    TomlRegistry.Snapshot second = registry.remove("limits");
+    assertEquals(2, second.version());
+    assertNull(second.get("limits"));
+    assertSame(limits, first.get("limits"));
+    assertThrows(UnsupportedOperationException.class, () -> second.documents().clear());
+  }
+
+  @Test
+  void shouldNotPublishFailedBatches() {
+    TomlRegistry registry = TomlRegistry.create();
+    registry.put("a", TomlTable.builder().put("x", 1).build());
+    assertThrows(IllegalStateException.class, () -> registry.update(batch -> {
+      batch.put("b", TomlTable.builder().build());
+      throw new IllegalStateException("failed");
+    }));
+    assertEquals(1, registry.snapshot().version());
+    assertNull(registry.get("b"));
+
+    AtomicReference<TomlRegistry.Batch> escaped = new AtomicReference<>();
+    registry.update(escaped::set);
+    assertThrows(IllegalStateException.class, () -> escaped.get().remove("a"));
+    assertNotNull(registry.get("a"));
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class TomlStreamTest {
+
+  private static TomlTable nested(int width, int depth) {
+    TomlTableBuilder builder = TomlTable.builder();
+    for (int i = 0; i < width; ++i) {
+      if (depth > 0) {
+        builder.put("t" + i, nested(width, depth - 1));
+      }
+      builder.put("k" + i, (long) i);
+    }
+    builder.put("empty", TomlTable.builder().build());
+    builder.put("array", TomlArray.builder().append(1L).append(2L).build());
+    return builder.build();
+  }
+
+  @Test
+  void shouldStreamLeavesOfAllSubTables() {
+    TomlTable table = nested(3, 2);
+    List<Map.Entry<List<String>, Object>> leaves = table.leafStream().collect(Collectors.toList());
+    assertEquals(table.entryPathSet(), new HashSet<>(leaves));
+    assertEquals(leaves.size(), table.entryPathSet().size());
+    assertEquals(Arrays.asList("t0", "t0", "k0"), leaves.get(0).getKey());
+    assertEquals(0L, leaves.get(0).getValue());
+  }
+
+  @Test
+  void shouldStreamNothingForEmptyTables() {
+    assertEquals(0, TomlTable.builder().build().leafStream().count());
+    TomlTable table = TomlTable.builder().put("a", TomlTable.builder().build()).build();
+    assertEquals(0, table.leafStream().count());
+  }
+
+  @Test
+  void shouldSplitIntoExactlySizedParts() {
+    FrozenTomlTable table = (FrozenTomlTable) nested(4, 3);
+    long total = table.entryPathSet().size();
+    assertEquals(total, table.leafCount());
+    Spliterator<Map.Entry<List<String>, Object>> suffix = table.leafStream().spliterator();
+    assertEquals(total, suffix.getExactSizeIfKnown());
+    Spliterator<Map.Entry<List<String>, Object>> prefix = suffix.trySplit();
+    assertNotNull(prefix);
+    assertTrue(prefix.getExactSizeIfKnown() > 0);
+    assertTrue(suffix.getExactSizeIfKnown() > 0);
+    assertEquals(total, prefix.getExactSizeIfKnown() + suffix.getExactSizeIfKnown());
+
+    List<Map.Entry<List<String>, Object>> leaves = new ArrayList<>();
+    prefix.forEachRemaining(leaves::add);
+    assertEquals(0, prefix.getExactSizeIfKnown());
+    suffix.forEachRemaining(leaves::add);
+    assertEquals(table.leafStream().collect(Collectors.toList()), leaves);
+  }
+
+  @Test
+  void shouldStreamLeavesInParallel() {
+    TomlTable table = nested(6, 3);
+    List<Map.Entry<List<String>, Object>> sequential = table.leafStream().collect(Collectors.toList());
+    assertEquals(sequential, table.leafStream().parallel().collect(Collectors.toList()));
+    long sum = table
+        .leafStream()
+        .parallel()
+        .map(Map.Entry::getValue)
+        .filter(Long.class::isInstance)
+        .mapToLong(Long.class::cast)
+        .sum();
+    assertEquals(sequential.stream().map(Map.Entry::getValue).filter(Long.class::isInstance).count() * 5 / 2, sum);
+  }
+
+  @Test
+  void shouldFindFirstLeaf() {
+    Optional<Map.Entry<List<String>, Object>> first =
+        nested(3, 2).leafStream().filter(e -> e.getValue() instanceof TomlArray).findFirst();
+    assertTrue(first.isPresent());
+    assertEquals(Arrays.asList("t0", "t0", "array"), first.get().getKey());
+
+    // leaves are not counted up front
+    FrozenTomlTable table = (FrozenTomlTable) nested(3, 2);
+    Spliterator<Map.Entry<List<String>, Object>> leaves = table.leafStream().spliterator();
+    assertFalse(leaves.hasCharacteristics(Spliterator.SIZED));
+    assertTrue(leaves.tryAdvance(leaf -> {}));
+    assertEquals(-1, table.cachedLeafCount());
+    assertEquals(table.entryPathSet().size() - 1, leaves.estimateSize());
+    assertFalse(leaves.hasCharacteristics(Spliterator.SIZED));
+    Spliterator<Map.Entry<List<String>, Object>> prefix = table.leafStream().spliterator().trySplit();
+    assertNotNull(prefix);
+    assertTrue(prefix.hasCharacteristics(Spliterator.SIZED));
+    table.leafCount();
+    assertTrue(table.leafStream().spliterator().hasCharacteristics(Spliterator.SIZED));
+  }
+
+  @Test
+  void shouldStreamSnapshotsOfConcurrentTables() {
+    ConcurrentTomlTable table = ConcurrentTomlTable.of(nested(2, 1));
+    Iterator<Map.Entry<List<String>, Object>> leaves = table.leafStream().iterator();
+    table.remove("t1");
+    table.set("extra", 1L);
+    List<List<String>> paths = new ArrayList<>();
+    leaves.forEachRemaining(leaf -> paths.add(leaf.getKey()));
+    assertEquals(nested(2, 1).leafStream().map(Map.Entry::getKey).collect(Collectors.toList()), paths);
+  }
+
+  @Test
+  void shouldStreamArrayElements() {
+    TomlArray array = TomlArray.builder().append("a").append(2L).append(true).build();
+    assertEquals(Arrays.asList("a", 2L, true), array.elementStream().collect(Collectors.toList()));
+    assertEquals(3, array.elementStream().parallel().count());
+    assertEquals(0, TomlArray.builder().build().elementStream().count());
+  }
+}
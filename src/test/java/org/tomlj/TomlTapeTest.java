@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class TomlTapeTest {
+
+  private static TomlTable document() {
+    TomlTableBuilder large = TomlTable.builder();
+    for (int i = 0; i < 100; ++i) {
+      large.put("key" + i, i);
+    }
+    TomlArray floats = TomlArray.builder().append(3.0).build();
+    TomlArray mixed = TomlArray.builder().append(1).append("two").append(floats).build();
+    TomlTable server =
+        TomlTable.builder().put("host", "localhost").put("ports", TomlArray.builder().append(80).build()).build();
+    return TomlTable
+        .builder()
+        .put("name", "démo")
+        .put("emoji", "\uD83D\uDE00 \u20AC")
+        .put("count", 42)
+        .put("ratio", 0.25)
+        .put("enabled", true)
+        .put("odt", OffsetDateTime.of(2020, 1, 2, 3, 4, 5, 6, ZoneOffset.ofHours(-7)))
+        .put("ldt", LocalDateTime.of(1960, 1, 2, 3, 4, 5, 999_999_999))
+        .put("ld", LocalDate.of(2020, 1, 2))
+        .put("lt", LocalTime.of(23, 59, 59, 1))
+        .put("mixed", mixed)
+        .put("server", server)
+        .put("large", large.build())
+        .build();
+  }
+
+  @Test
+  void shouldDecodeEncodedTables() {
+    TomlTable table = document();
+    TomlTape tape = TomlTape.encode(table);
+    TomlTable root = tape.root();
+
+    assertTrue(tape.buffer().isDirect());
+    assertEquals(table, root);
+    assertEquals(root, table);
+    assertEquals(table.hashCode(), root.hashCode());
+    assertEquals(new ArrayList<>(table.keySet()), new ArrayList<>(root.keySet()));
+    assertEquals("démo", root.getString("name"));
+    assertEquals(42L, root.getLongOrDefault("count", 0));
+    assertEquals(0.25, root.getDoubleOrDefault("ratio", 0));
+    assertEquals("localhost", root.getString("server.host"));
+    assertEquals(80L, root.getArrayOrEmpty("server.ports").getLong(0));
+    assertEquals(99L, root.getLongOrDefault("large.key99", 0));
+    assertEquals(Arrays.asList(1L, "two", root.getArray("mixed").get(2)), root.getArrayOrEmpty("mixed").toList());
+    assertTrue(root.contains("large.key0"));
+    assertFalse(root.contains("large.key100"));
+    assertFalse(root.contains("name.more"));
+    assertNull(root.get("missing"));
+    assertThrows(TomlInvalidTypeException.class, () -> root.getLongOrDefault("name", 0));
+    assertThrows(IndexOutOfBoundsException.class, () -> root.getArrayOrEmpty("mixed").get(3));
+    assertEquals(table.toMap().keySet(), root.toMap().keySet());
+
+    // unpaired surrogates are replaced, as by String.getBytes
+    TomlTable lone = TomlTape.encode(TomlTable.builder().put("lone", "\uD800x").build()).root();
+    assertEquals("?x", lone.getString("lone"));
+  }
+
+  @Test
+  void shouldKeepInputPositions() throws Exception {
+    MutableTomlTable table = new MutableTomlTable(TomlVersion.HEAD);
+    table.set("a", 1L, TomlPosition.positionAt(3, 5));
+    MutableTomlArray array = new MutableTomlArray(false);
+    array.append("x", TomlPosition.positionAt(4, 6));
+    table.set("b", array, TomlPosition.positionAt(4, 1));
+    TomlTable root = TomlTape.encode(table).root();
+    assertEquals(TomlPosition.positionAt(3, 5), root.inputPositionOf("a"));
+    assertEquals(TomlPosition.positionAt(4, 6), root.getArrayOrEmpty("b").inputPositionOf(0));
+    TomlTable withoutPositions = TomlTape.encode(table, false).root();
+    assertNull(withoutPositions.inputPositionOf("a"));
+    assertNull(withoutPositions.getArrayOrEmpty("b").inputPositionOf(0));
+    assertFalse(TomlTape.encode(table, false).hasPositions());
+  }
+
+  @Test
+  void shouldMapTapesFromFiles() throws Exception {
+    TomlTape tape = TomlTape.encode(document(), false);
+    Path file = Files.createTempFile("tomlj", ".tape");
+    try {
+      ByteBuffer buffer = tape.buffer();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      Files.write(file, bytes);
+
+      TomlTape mapped = TomlTape.map(file);
+      assertEquals(tape.size(), mapped.size());
+      assertEquals(document(), mapped.root());
+
+      TomlTape written = TomlTape.encode(document(), file, true);
+      assertEquals(Files.size(file), written.size());
+      assertTrue(written.hasPositions());
+      assertEquals(document(), written.root());
+    } finally {
+      Files.delete(file);
+    }
+    assertThrows(IllegalArgumentException.class, () -> TomlTape.wrap(ByteBuffer.allocate(64)));
+  }
+}
@@ -15,6 +15,7 @@ package org.tomlj;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -28,8 +29,10 @@ import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -975,6 +978,47 @@ class TomlTest {
     assertTrue(Toml.equals(result, resultReparse));
   }
 
+  @Test
+  void testProjectionOnlyMaterializesWantedPaths() {
+    String input = "title = 'example'\n"
+        + "owner.name = 'Tom'\n"
+        + "[database]\n"
+        + "server = '192.168.1.1'\n"
+        + "ports = [8001, 8002]\n"
+        + "[servers.alpha]\n"
+        + "ip = '10.0.0.1'\n"
+        + "[[products]]\n"
+        + "name = 'Hammer'\n"
+        + "sku = 738594937\n"
+        + "[[products]]\n"
+        + "name = 'Nail'\n";
+    Set<List<String>> wanted = new HashSet<>(
+        Arrays
+            .asList(
+                Arrays.asList("database", "ports"),
+                Collections.singletonList("owner"),
+                Arrays.asList("products", "name")));
+    TomlParseResult result = Toml.parse(input, wanted);
+    assertFalse(result.hasErrors(), () -> joinErrors(result));
+    assertNull(result.get("title"));
+    assertEquals("Tom", result.getString("owner.name"));
+    assertNull(result.get("database.server"));
+    assertEquals(2, result.getArrayOrEmpty("database.ports").size());
+    assertFalse(result.contains("servers"));
+    TomlArray products = result.getArray("products");
+    assertNotNull(products);
+    assertEquals(2, products.size());
+    assertEquals("Nail", products.getTable(1).getString("name"));
+    assertNull(products.getTable(0).get("sku"));
+  }
+
+  @Test
+  void testProjectionStillReportsSyntaxErrors() {
+    TomlParseResult result = Toml.parse("a = 1\nb = = 2\n", Collections.singleton(Collections.singletonList("a")));
+    assertTrue(result.hasErrors());
+    assertEquals(Long.valueOf(1), result.getLong("a"));
+  }
+
   private String joinErrors(TomlParseResult result) {
     return result.errors().stream().map(TomlParseError::toString).collect(Collectors.joining("\n"));
   }
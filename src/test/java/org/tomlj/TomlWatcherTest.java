@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.tomlj;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TomlWatcherTest {
+
+  @Test
+  void shouldNotifyListenersOfChangesUnderTheirPrefix() throws Exception {
+    Path directory = Files.createTempDirectory("tomlj");
+    Path file = directory.resolve("config.toml");
+    Files.write(file, "a.b = 1\nc = 2\n".getBytes(UTF_8));
+    BlockingQueue<List<TomlDiff.Change>> aChanges = new LinkedBlockingQueue<>();
+    BlockingQueue<List<TomlDiff.Change>> cChanges = new LinkedBlockingQueue<>();
+    BlockingQueue<Exception> errors = new LinkedBlockingQueue<>();
+    try (TomlWatcher watcher = TomlWatcher.create(Duration.ofMillis(50))) {
+      assertEquals(1L, watcher.watch(file).getLongOrDefault("a.b", 0));
+      watcher.addListener("a", (f, changes, document) -> aChanges.add(changes));
+      watcher.addListener(Collections.singletonList("c"), (f, changes, document) -> cChanges.add(changes));
+      watcher.addErrorListener((f, e) -> errors.add(e));
+
+      Files.write(file, "a.b = 3\nc = 2\n".getBytes(UTF_8));
+      List<TomlDiff.Change> changes = aChanges.poll(10, TimeUnit.SECONDS);
+      assertNotNull(changes);
+      assertEquals(1, changes.size());
+      assertEquals("a.b", changes.get(0).dottedKey());
+      assertEquals(3L, changes.get(0).newValue());
+      assertEquals(3L, watcher.current(file).getLongOrDefault("a.b", 0));
+      assertTrue(cChanges.isEmpty());
+
+      // a failed parse keeps the previous document
+      Files.write(file, "a.b = \n".getBytes(UTF_8));
+      assertNotNull(errors.poll(10, TimeUnit.SECONDS));
+      assertEquals(3L, watcher.current(file).getLongOrDefault("a.b", 0));
+
+      Files.write(file, "a.b = 3\n".getBytes(UTF_8));
+      changes = cChanges.poll(10, TimeUnit.SECONDS);
+      assertNotNull(changes);
+      assertEquals(TomlDiff.Kind.REMOVED, changes.get(0).kind());
+      assertTrue(aChanges.isEmpty());
+
+      watcher.unwatch(file);
+      assertNull(watcher.current(file));
+
+      // the directory is watched again after it was released
+      assertEquals(3L, watcher.watch(file).getLongOrDefault("a.b", 0));
+      Files.write(file, "a.b = 4\n".getBytes(UTF_8));
+      changes = aChanges.poll(10, TimeUnit.SECONDS);
+      assertNotNull(changes);
+      assertEquals(4L, changes.get(0).newValue());
+    } finally {
+      Files.delete(file);
+      Files.delete(directory);
+    }
+  }
+}